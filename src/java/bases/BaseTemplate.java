@@ -11,9 +11,9 @@ import org.luaj.vm2.LuaValue;
 import util.Vector2f;
 
 import java.io.IOException;
-import java.util.Collections;
-import java.util.LinkedHashMap;
-import java.util.LinkedHashSet;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Value
 public class BaseTemplate {
@@ -22,6 +22,8 @@ public class BaseTemplate {
     Group group;
     LinkedHashMap<String, LinkedHashSet<Vector2f>> units;
 
+    private static final Map<String, Map<String, List<Vector2f>>> PARSED_TEMPLATES = new ConcurrentHashMap<>();
+
     public BaseTemplate(Vector2f center, Army army, Group group, LinkedHashMap<String, LinkedHashSet<Vector2f>> units) {
         this.center = center;
         this.army = army;
@@ -36,7 +38,43 @@ public class BaseTemplate {
         this.units = new LinkedHashMap<>(loadUnits(luaFile));
     }
 
+    /**
+     * Returns a fresh copy of the units of the given template, so callers are free to move and flip the positions.
+     * The lua file itself is only parsed the first time it is requested.
+     */
     public static LinkedHashMap<String, LinkedHashSet<Vector2f>> loadUnits(String luaFile) throws IOException {
+        LinkedHashMap<String, LinkedHashSet<Vector2f>> units = new LinkedHashMap<>();
+        getParsedTemplate(luaFile).forEach((type, positions) -> {
+            LinkedHashSet<Vector2f> copies = new LinkedHashSet<>();
+            positions.forEach(position -> copies.add(new Vector2f(position)));
+            units.put(type, copies);
+        });
+        return units;
+    }
+
+    public static void preload(String... luaFiles) throws IOException {
+        for (String luaFile : luaFiles) {
+            getParsedTemplate(luaFile);
+        }
+    }
+
+    private static Map<String, List<Vector2f>> getParsedTemplate(String luaFile) throws IOException {
+        try {
+            return PARSED_TEMPLATES.computeIfAbsent(luaFile, file -> {
+                try {
+                    Map<String, List<Vector2f>> template = new LinkedHashMap<>();
+                    parseUnits(file).forEach((type, positions) -> template.put(type, List.copyOf(positions)));
+                    return Collections.unmodifiableMap(template);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static LinkedHashMap<String, LinkedHashSet<Vector2f>> parseUnits(String luaFile) throws IOException {
         LinkedHashMap<String, LinkedHashSet<Vector2f>> units = new LinkedHashMap<>();
         LuaValue lua = LuaLoader.load(BaseTemplate.class.getResourceAsStream(luaFile));
         LuaTable luaUnits = lua.get("Units").checktable();
@@ -0,0 +1,30 @@
+package batch;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One entry of a batch manifest. Options are passed to the tool as they would be on its command line,
+ * the input and output folders are added from the job itself.
+ */
+@Data
+public strictfp class BatchJob {
+    private BatchTool tool;
+    private String input;
+    private String output;
+    private List<String> options = new ArrayList<>();
+
+    public String[] getArguments() {
+        List<String> arguments = new ArrayList<>();
+        arguments.add("--in-folder-path");
+        arguments.add(input);
+        arguments.add("--out-folder-path");
+        arguments.add(output);
+        if (options != null) {
+            arguments.addAll(options);
+        }
+        return arguments.toArray(new String[0]);
+    }
+}
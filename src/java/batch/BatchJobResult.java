@@ -0,0 +1,22 @@
+package batch;
+
+import lombok.Data;
+
+import java.util.LinkedHashMap;
+
+@Data
+public strictfp class BatchJobResult {
+    private final int index;
+    private final BatchTool tool;
+    private final String input;
+    private final String output;
+    private final LinkedHashMap<String, Long> timings = new LinkedHashMap<>();
+    private String error;
+
+    public BatchJobResult(int index, BatchJob job) {
+        this.index = index;
+        this.tool = job.getTool();
+        this.input = job.getInput();
+        this.output = job.getOutput();
+    }
+}
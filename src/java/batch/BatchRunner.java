@@ -0,0 +1,250 @@
+package batch;
+
+import biomes.Biomes;
+import brushes.Brushes;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import generator.UnitGenerator;
+import populator.MapPopulator;
+import transformer.MapTransformer;
+import util.ArgumentParser;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the transformer and populator over every job of a manifest in one JVM. Biomes, brushes and base templates
+ * are loaded once before the first job and shared by all of them. Each job gets one json line in the report
+ * with its timings or the error it failed with, and a failed job never stops the others.
+ */
+public strictfp class BatchRunner {
+
+    private Path manifestPath;
+    private Path reportPath;
+    private int threadCount = Runtime.getRuntime().availableProcessors();
+    private final Gson gson = new Gson();
+    private final AtomicInteger failedCount = new AtomicInteger();
+    private BufferedWriter writer;
+
+    public static void main(String[] args) throws IOException {
+
+        Locale.setDefault(Locale.US);
+
+        BatchRunner runner = new BatchRunner();
+
+        runner.interpretArguments(args);
+
+        System.out.println("Running jobs from " + runner.manifestPath);
+        int failed = runner.run();
+        System.out.println("Saved report to " + runner.reportPath.toAbsolutePath());
+        System.out.println("Done");
+        if (failed > 0) {
+            System.exit(5);
+        }
+    }
+
+    public void interpretArguments(String[] args) {
+        interpretArguments(ArgumentParser.parse(args));
+    }
+
+    private void interpretArguments(Map<String, String> arguments) {
+        if (arguments.containsKey("help")) {
+            System.out.println("batch-runner usage:\n" +
+                    "--help                 produce help message\n" +
+                    "--manifest-path arg    required, set the json manifest listing the jobs as {tool (" + Arrays.toString(BatchTool.values()) + "), input, output, options}\n" +
+                    "--report-path arg      required, set the file the json lines report is written to\n" +
+                    "--threads arg          optional, set the number of jobs run at once\n");
+            System.exit(0);
+        }
+
+        if (!arguments.containsKey("manifest-path")) {
+            System.out.println("Manifest not Specified");
+            System.exit(1);
+        }
+
+        if (!arguments.containsKey("report-path")) {
+            System.out.println("Report Path not Specified");
+            System.exit(2);
+        }
+
+        manifestPath = Paths.get(arguments.get("manifest-path"));
+        reportPath = Paths.get(arguments.get("report-path"));
+        if (arguments.containsKey("threads")) {
+            threadCount = Integer.parseInt(arguments.get("threads"));
+        }
+    }
+
+    /**
+     * Runs every job of the manifest and returns the number of jobs that failed.
+     */
+    public int run() throws IOException {
+        List<BatchJob> jobs = readManifest(manifestPath);
+        System.out.printf("Found %d jobs\n", jobs.size());
+        warmUpCaches();
+        if (reportPath.getParent() != null) {
+            Files.createDirectories(reportPath.getParent());
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(StrictMath.max(threadCount, 1));
+        try (BufferedWriter reportWriter = Files.newBufferedWriter(reportPath)) {
+            writer = reportWriter;
+            for (int i = 0; i < jobs.size(); i++) {
+                int index = i;
+                executor.execute(() -> writeResult(runJob(index, jobs.get(index))));
+            }
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new IOException("Batch run interrupted", e);
+        }
+        System.out.printf("%d of %d jobs failed\n", failedCount.get(), jobs.size());
+        return failedCount.get();
+    }
+
+    public static List<BatchJob> readManifest(Path manifestPath) throws IOException {
+        try (Reader reader = Files.newBufferedReader(manifestPath)) {
+            BatchJob[] jobs = new Gson().fromJson(reader, BatchJob[].class);
+            if (jobs == null) {
+                throw new IOException("Manifest is empty: " + manifestPath);
+            }
+            return Arrays.asList(jobs);
+        } catch (JsonParseException e) {
+            throw new IOException("Manifest could not be parsed: " + manifestPath, e);
+        }
+    }
+
+    private static void warmUpCaches() {
+        long sTime = System.currentTimeMillis();
+        int biomeCount = Biomes.list.size();
+        Brushes.preload(Brushes.MOUNTAIN_BRUSHES);
+        Brushes.preload(Brushes.HILL_BRUSHES);
+        UnitGenerator.preloadTemplates();
+        System.out.printf("Loaded %d biomes, brushes and base templates: %d ms\n", biomeCount, System.currentTimeMillis() - sTime);
+    }
+
+    private BatchJobResult runJob(int index, BatchJob job) {
+        long sTime = System.currentTimeMillis();
+        BatchJobResult result = new BatchJobResult(index, job);
+        try {
+            String argumentError = getArgumentError(job);
+            if (argumentError != null) {
+                result.setError(argumentError);
+            } else {
+                switch (job.getTool()) {
+                    case TRANSFORM -> runTransformer(job, result);
+                    case POPULATE -> runPopulator(job, result);
+                }
+            }
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            result.setError(e.toString());
+        }
+        result.getTimings().put("total", System.currentTimeMillis() - sTime);
+        return result;
+    }
+
+    private static void runTransformer(BatchJob job, BatchJobResult result) {
+        MapTransformer transformer = new MapTransformer();
+        transformer.interpretArguments(job.getArguments());
+        long sTime = System.currentTimeMillis();
+        transformer.importMap();
+        result.getTimings().put("import", System.currentTimeMillis() - sTime);
+        if (transformer.getMap() == null) {
+            result.setError(transformer.getError() != null ? transformer.getError() : "Map could not be imported");
+            return;
+        }
+        sTime = System.currentTimeMillis();
+        transformer.transform();
+        result.getTimings().put("transform", System.currentTimeMillis() - sTime);
+        sTime = System.currentTimeMillis();
+        transformer.exportMap();
+        result.getTimings().put("export", System.currentTimeMillis() - sTime);
+        result.setError(transformer.getError());
+    }
+
+    private static void runPopulator(BatchJob job, BatchJobResult result) {
+        MapPopulator populator = new MapPopulator();
+        populator.interpretArguments(job.getArguments());
+        long sTime = System.currentTimeMillis();
+        populator.importMap();
+        result.getTimings().put("import", System.currentTimeMillis() - sTime);
+        if (populator.getMap() == null) {
+            result.setError(populator.getError() != null ? populator.getError() : "Map could not be imported");
+            return;
+        }
+        sTime = System.currentTimeMillis();
+        populator.populate();
+        result.getTimings().put("populate", System.currentTimeMillis() - sTime);
+        if (populator.getError() != null) {
+            result.setError(populator.getError());
+            return;
+        }
+        sTime = System.currentTimeMillis();
+        populator.exportMap();
+        result.getTimings().put("export", System.currentTimeMillis() - sTime);
+        result.setError(populator.getError());
+    }
+
+    /**
+     * The tools exit the JVM on missing arguments, so everything they would reject is checked here first.
+     */
+    private static String getArgumentError(BatchJob job) {
+        if (job.getTool() == null) {
+            return "Tool not Specified";
+        }
+        if (job.getInput() == null || job.getOutput() == null) {
+            return "Input and Output Folders must be Specified";
+        }
+        Map<String, String> arguments;
+        try {
+            arguments = ArgumentParser.parse(job.getArguments());
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+        if (arguments.containsKey("help")) {
+            return "Help is not supported in batch jobs";
+        }
+        for (String argument : job.getTool().getRequiredArguments()) {
+            if (arguments.get(argument) == null) {
+                return String.format("Argument %s not Specified", argument);
+            }
+        }
+        if (job.getTool() == BatchTool.POPULATE && arguments.containsKey("props")
+                && (arguments.get("props") == null || !Files.isRegularFile(Paths.get(arguments.get("props"))))) {
+            return String.format("Props file %s not found", arguments.get("props"));
+        }
+        return null;
+    }
+
+    private void writeResult(BatchJobResult result) {
+        if (result.getError() != null) {
+            failedCount.incrementAndGet();
+            System.out.printf("Job %d failed: %s\n", result.getIndex(), result.getError());
+        }
+        try {
+            writeLine(gson.toJson(result));
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.err.printf("Error while writing the report entry for job %d\n", result.getIndex());
+        }
+    }
+
+    private synchronized void writeLine(String line) throws IOException {
+        writer.write(line);
+        writer.newLine();
+        writer.flush();
+    }
+}
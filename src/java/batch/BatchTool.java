@@ -0,0 +1,15 @@
+package batch;
+
+import lombok.Getter;
+
+@Getter
+public strictfp enum BatchTool {
+    TRANSFORM("symmetry", "source"),
+    POPULATE("team-symmetry", "spawn-symmetry");
+
+    private final String[] requiredArguments;
+
+    BatchTool(String... requiredArguments) {
+        this.requiredArguments = requiredArguments;
+    }
+}
@@ -0,0 +1,13 @@
+package benchmark;
+
+import lombok.Value;
+
+/**
+ * One map of the benchmark corpus, given as the arguments the generator is run with.
+ * The id is what results are matched on against the baseline, so it has to stay the same across versions.
+ */
+@Value
+public strictfp class BenchmarkCase {
+    String id;
+    String[] arguments;
+}
@@ -0,0 +1,13 @@
+package benchmark;
+
+import lombok.Data;
+
+import java.util.TreeMap;
+
+@Data
+public strictfp class BenchmarkCaseResult {
+    private final String id;
+    private final String mapName;
+    private final TreeMap<String, Long> times = new TreeMap<>();
+    private long peakRssKb = -1;
+}
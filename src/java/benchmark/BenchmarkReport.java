@@ -0,0 +1,15 @@
+package benchmark;
+
+import lombok.Data;
+
+import java.util.LinkedHashMap;
+
+@Data
+public strictfp class BenchmarkReport {
+    private String generatorVersion;
+    private String javaVersion;
+    private int processors;
+    private int warmupPasses;
+    private int iterations;
+    private final LinkedHashMap<String, BenchmarkCaseResult> cases = new LinkedHashMap<>();
+}
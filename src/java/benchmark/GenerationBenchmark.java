@@ -0,0 +1,303 @@
+package benchmark;
+
+import biomes.Biome;
+import biomes.Biomes;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import generator.MapGenerator;
+import util.ArgumentParser;
+import util.Pipeline;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Times {@link MapGenerator#generate()} over a pinned corpus of maps and compares the results against a stored baseline.
+ * The default corpus covers every spawn count, every map size from 256 to 1024 and every biome with fixed seeds.
+ * Every map is generated a number of times after the warm up passes, and the median of each stage time is kept
+ * together with the peak resident set size of the process, which is read from /proc and reset before each map.
+ */
+public strictfp class GenerationBenchmark {
+
+    private static final long CORPUS_SEED = 1234;
+    private static final int[] SPAWN_COUNTS = {2, 4, 6, 8, 10, 12, 14, 16};
+    private static final int[] MAP_SIZES = {256, 512, 768, 1024};
+    private static final Path STATUS_PATH = Paths.get("/proc/self/status");
+    private static final Path CLEAR_REFS_PATH = Paths.get("/proc/self/clear_refs");
+
+    private Path corpusPath;
+    private Path reportPath;
+    private Path baselinePath;
+    private boolean saveBaseline;
+    private int warmupPasses = 1;
+    private int iterations = 3;
+    private float threshold = 10f;
+    private float memoryThreshold = 10f;
+    private long minTime = 50;
+    private final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+
+    public static void main(String[] args) throws IOException {
+
+        Locale.setDefault(Locale.US);
+
+        GenerationBenchmark benchmark = new GenerationBenchmark();
+
+        benchmark.interpretArguments(args);
+
+        BenchmarkReport report = benchmark.run();
+        int regressions = 0;
+        if (benchmark.reportPath != null) {
+            benchmark.writeReport(report, benchmark.reportPath);
+            System.out.println("Saved report to " + benchmark.reportPath.toAbsolutePath());
+        }
+        if (benchmark.saveBaseline) {
+            benchmark.writeReport(report, benchmark.baselinePath);
+            System.out.println("Saved baseline to " + benchmark.baselinePath.toAbsolutePath());
+        } else if (benchmark.baselinePath != null) {
+            regressions = benchmark.compare(benchmark.readReport(benchmark.baselinePath), report);
+        }
+        System.out.println("Done");
+        if (regressions > 0) {
+            System.exit(5);
+        }
+    }
+
+    public void interpretArguments(String[] args) {
+        interpretArguments(ArgumentParser.parse(args));
+    }
+
+    private void interpretArguments(Map<String, String> arguments) {
+        if (arguments.containsKey("help")) {
+            System.out.println("generation-benchmark usage:\n" +
+                    "--help                 produce help message\n" +
+                    "--corpus-path arg      optional, set a file with one map name per line to use instead of the default corpus\n" +
+                    "--report-path arg      optional, set the json file the results are written to\n" +
+                    "--baseline-path arg    optional, set the json baseline the results are compared against\n" +
+                    "--save-baseline        optional, write the results to the baseline path instead of comparing\n" +
+                    "--warmup arg           optional, set the number of unmeasured passes over the corpus (default 1)\n" +
+                    "--iterations arg       optional, set the number of measured runs per map (default 3)\n" +
+                    "--threshold arg        optional, set the allowed time regression in percent (default 10)\n" +
+                    "--memory-threshold arg optional, set the allowed peak rss regression in percent (default 10)\n" +
+                    "--min-time arg         optional, only compare stages that took at least arg ms in the baseline (default 50)\n");
+            System.exit(0);
+        }
+
+        if (arguments.containsKey("save-baseline") && !arguments.containsKey("baseline-path")) {
+            System.out.println("Baseline Path not Specified");
+            System.exit(1);
+        }
+
+        if (arguments.containsKey("corpus-path") && arguments.get("corpus-path") != null) {
+            corpusPath = Paths.get(arguments.get("corpus-path"));
+        }
+
+        if (arguments.containsKey("report-path") && arguments.get("report-path") != null) {
+            reportPath = Paths.get(arguments.get("report-path"));
+        }
+
+        if (arguments.containsKey("baseline-path") && arguments.get("baseline-path") != null) {
+            baselinePath = Paths.get(arguments.get("baseline-path"));
+        }
+
+        saveBaseline = arguments.containsKey("save-baseline");
+
+        if (arguments.containsKey("warmup") && arguments.get("warmup") != null) {
+            warmupPasses = Integer.parseInt(arguments.get("warmup"));
+        }
+
+        if (arguments.containsKey("iterations") && arguments.get("iterations") != null) {
+            iterations = StrictMath.max(Integer.parseInt(arguments.get("iterations")), 1);
+        }
+
+        if (arguments.containsKey("threshold") && arguments.get("threshold") != null) {
+            threshold = Float.parseFloat(arguments.get("threshold"));
+        }
+
+        if (arguments.containsKey("memory-threshold") && arguments.get("memory-threshold") != null) {
+            memoryThreshold = Float.parseFloat(arguments.get("memory-threshold"));
+        }
+
+        if (arguments.containsKey("min-time") && arguments.get("min-time") != null) {
+            minTime = Long.parseLong(arguments.get("min-time"));
+        }
+    }
+
+    public BenchmarkReport run() throws IOException {
+        List<BenchmarkCase> corpus = corpusPath != null ? readCorpus(corpusPath) : getDefaultCorpus();
+        System.out.printf("Benchmarking %d maps\n", corpus.size());
+
+        long sTime = System.currentTimeMillis();
+        for (int i = 0; i < warmupPasses; i++) {
+            for (BenchmarkCase benchmarkCase : corpus) {
+                generate(benchmarkCase, new TreeMap<>());
+            }
+        }
+        System.out.printf("Warm up done: %d ms\n", System.currentTimeMillis() - sTime);
+
+        BenchmarkReport report = new BenchmarkReport();
+        report.setGeneratorVersion(MapGenerator.VERSION);
+        report.setJavaVersion(System.getProperty("java.version"));
+        report.setProcessors(Runtime.getRuntime().availableProcessors());
+        report.setWarmupPasses(warmupPasses);
+        report.setIterations(iterations);
+        for (BenchmarkCase benchmarkCase : corpus) {
+            resetPeakRss();
+            List<Map<String, Long>> runs = new ArrayList<>();
+            String mapName = null;
+            for (int i = 0; i < iterations; i++) {
+                System.gc();
+                Map<String, Long> times = new TreeMap<>();
+                mapName = generate(benchmarkCase, times);
+                runs.add(times);
+            }
+            BenchmarkCaseResult result = new BenchmarkCaseResult(benchmarkCase.getId(), mapName);
+            runs.stream().flatMap(times -> times.keySet().stream()).distinct().forEach(stage ->
+                    result.getTimes().put(stage, getMedian(runs.stream().map(times -> times.getOrDefault(stage, 0L)).collect(Collectors.toList()))));
+            result.setPeakRssKb(readPeakRss());
+            report.getCases().put(result.getId(), result);
+            System.out.printf("%s: total %d ms, pipeline %d ms, peak rss %d KB\n", result.getId(),
+                    result.getTimes().get("total"), result.getTimes().get("pipeline"), result.getPeakRssKb());
+        }
+        return report;
+    }
+
+    /**
+     * Generates the map once and puts the stage times of the generator and the summed pipeline function times into times.
+     */
+    private static String generate(BenchmarkCase benchmarkCase, Map<String, Long> times) throws IOException {
+        Pipeline.reset();
+        MapGenerator generator = new MapGenerator();
+        generator.interpretArguments(benchmarkCase.getArguments());
+        generator.generate();
+        times.putAll(generator.getStageTimes());
+        Pipeline.getFunctionTimesByMask().forEach((maskName, time) -> times.put("pipeline." + maskName, time));
+        Pipeline.reset();
+        return generator.getMapName();
+    }
+
+    /**
+     * Pairs spawn counts, map sizes and biomes round robin so every value of each shows up at least once.
+     * Biomes are sorted by name, since the order of the biome list depends on the file system.
+     */
+    public static List<BenchmarkCase> getDefaultCorpus() {
+        List<String> biomeNames = Biomes.list.stream().map(Biome::getName).sorted().collect(Collectors.toList());
+        int caseCount = StrictMath.max(StrictMath.max(SPAWN_COUNTS.length, MAP_SIZES.length), biomeNames.size());
+        List<BenchmarkCase> corpus = new ArrayList<>();
+        for (int i = 0; i < caseCount; i++) {
+            int spawnCount = SPAWN_COUNTS[i % SPAWN_COUNTS.length];
+            int mapSize = MAP_SIZES[i % MAP_SIZES.length];
+            String biomeName = biomeNames.get(i % biomeNames.size());
+            String[] arguments = {"--seed", Long.toString(CORPUS_SEED + i),
+                    "--spawn-count", Integer.toString(spawnCount),
+                    "--map-size", Integer.toString(mapSize),
+                    "--biome", biomeName};
+            corpus.add(new BenchmarkCase(String.format("%d_%d_%s", spawnCount, mapSize, biomeName), arguments));
+        }
+        return corpus;
+    }
+
+    public static List<BenchmarkCase> readCorpus(Path corpusPath) throws IOException {
+        return Files.readAllLines(corpusPath).stream()
+                .map(String::trim)
+                .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                .map(mapName -> new BenchmarkCase(mapName, new String[]{"--map-name", mapName}))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Prints every stage slower than the baseline by more than the threshold and returns how many there are.
+     * Stages under the minimum time in the baseline are skipped since they are mostly timer noise, apart from the total.
+     */
+    public int compare(BenchmarkReport baseline, BenchmarkReport report) {
+        int regressions = 0;
+        for (BenchmarkCaseResult baselineResult : baseline.getCases().values()) {
+            BenchmarkCaseResult result = report.getCases().get(baselineResult.getId());
+            if (result == null) {
+                System.out.printf("%s: not in the corpus anymore\n", baselineResult.getId());
+                continue;
+            }
+            for (Map.Entry<String, Long> baselineTime : baselineResult.getTimes().entrySet()) {
+                String stage = baselineTime.getKey();
+                Long time = result.getTimes().get(stage);
+                if (time == null || (baselineTime.getValue() < minTime && !stage.equals("total"))) {
+                    continue;
+                }
+                if (isRegression(baselineTime.getValue(), time, threshold)) {
+                    regressions++;
+                    System.out.printf("%s: %s regressed from %d ms to %d ms\n", result.getId(), stage, baselineTime.getValue(), time);
+                }
+            }
+            if (baselineResult.getPeakRssKb() > 0 && result.getPeakRssKb() > 0
+                    && isRegression(baselineResult.getPeakRssKb(), result.getPeakRssKb(), memoryThreshold)) {
+                regressions++;
+                System.out.printf("%s: peak rss regressed from %d KB to %d KB\n", result.getId(), baselineResult.getPeakRssKb(), result.getPeakRssKb());
+            }
+        }
+        report.getCases().keySet().stream().filter(id -> !baseline.getCases().containsKey(id))
+                .forEach(id -> System.out.printf("%s: no baseline\n", id));
+        System.out.printf("%d regressions over %.1f%% time and %.1f%% memory\n", regressions, threshold, memoryThreshold);
+        return regressions;
+    }
+
+    private static boolean isRegression(long baseline, long value, float threshold) {
+        return value > baseline * (1 + threshold / 100f);
+    }
+
+    private static long getMedian(List<Long> values) {
+        List<Long> sorted = values.stream().sorted().collect(Collectors.toList());
+        int middle = sorted.size() / 2;
+        return sorted.size() % 2 == 1 ? sorted.get(middle) : (sorted.get(middle - 1) + sorted.get(middle)) / 2;
+    }
+
+    /**
+     * Writing 5 to clear_refs resets the peak resident set size of the process on linux.
+     * On other systems this does nothing and the peak covers the whole run.
+     */
+    private static void resetPeakRss() {
+        try {
+            Files.writeString(CLEAR_REFS_PATH, "5");
+        } catch (IOException | SecurityException ignored) {
+        }
+    }
+
+    private static long readPeakRss() {
+        try {
+            for (String line : Files.readAllLines(STATUS_PATH)) {
+                if (line.startsWith("VmHWM:")) {
+                    return Long.parseLong(line.substring("VmHWM:".length()).replace("kB", "").trim());
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            return -1;
+        }
+        return -1;
+    }
+
+    private BenchmarkReport readReport(Path path) throws IOException {
+        try (Reader reader = Files.newBufferedReader(path)) {
+            BenchmarkReport report = gson.fromJson(reader, BenchmarkReport.class);
+            if (report == null) {
+                throw new IOException("Baseline is empty: " + path);
+            }
+            return report;
+        } catch (JsonParseException e) {
+            throw new IOException("Baseline could not be parsed: " + path, e);
+        }
+    }
+
+    private void writeReport(BenchmarkReport report, Path path) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        try (Writer writer = Files.newBufferedWriter(path)) {
+            gson.toJson(report, writer);
+        }
+    }
+}
@@ -7,8 +7,12 @@ import map.SymmetrySettings;
 import util.ImageUtils;
 
 import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Data
 public strictfp class Brushes {
@@ -20,13 +24,34 @@ public strictfp class Brushes {
 
     public static final List<String> goodBrushes = Arrays.asList("mountain1.png", "mountain2.png", "mountain4.png", "mountain5.png", "mountain6.png", "volcano2.png");
 
+    private static final Map<String, BufferedImage> BRUSH_IMAGES = new ConcurrentHashMap<>();
+
     public static FloatMask loadBrush(String brushName, Long seed) {
         try {
-            BufferedImage image = ImageUtils.readImage(CUSTOM_BRUSHES_DIR.concat(brushName));
+            BufferedImage image = getBrushImage(brushName);
             return new FloatMask(image, seed, new SymmetrySettings(Symmetry.NONE, Symmetry.NONE, Symmetry.NONE));
         } catch (Exception e) {
             e.printStackTrace();
             throw new RuntimeException("Could not load brush");
         }
     }
+
+    /**
+     * Decodes the given brushes once so every later {@link #loadBrush} only has to copy the image into a mask.
+     */
+    public static void preload(String... brushNames) {
+        for (String brushName : brushNames) {
+            getBrushImage(brushName);
+        }
+    }
+
+    private static BufferedImage getBrushImage(String brushName) {
+        return BRUSH_IMAGES.computeIfAbsent(brushName, name -> {
+            try {
+                return ImageUtils.readImage(CUSTOM_BRUSHES_DIR.concat(name));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
 }
@@ -0,0 +1,161 @@
+package evaluator;
+
+import com.google.gson.Gson;
+import map.SymmetrySettings;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Evaluates every map folder below a root folder on a fixed size pool and streams one report row per map
+ * as soon as it is done, so a long run can be followed and partial results survive an aborted run.
+ */
+public strictfp class BatchEvaluator {
+
+    private static final String[] SCORES = {"Terrain", "Texture", "Spawn", "Mex", "Hydro", "Prop", "Unit"};
+    private static final String[] TIMINGS = {"import", "terrain", "spawns", "mexes", "hydros", "props", "units", "evaluate", "total"};
+
+    private final Path rootFolder;
+    private final Path reportPath;
+    private final int threadCount;
+    private final SymmetrySettings symmetrySettings;
+    private final boolean reverseSide;
+    private final EnumSet<EvaluationStage> stages;
+    private final float symmetryThreshold;
+    private final boolean jsonLines;
+    private final Gson gson = new Gson();
+    private BufferedWriter writer;
+
+    public BatchEvaluator(Path rootFolder, Path reportPath, int threadCount, SymmetrySettings symmetrySettings,
+                          boolean reverseSide, EnumSet<EvaluationStage> stages, float symmetryThreshold) {
+        this.rootFolder = rootFolder;
+        this.reportPath = reportPath;
+        this.threadCount = StrictMath.max(threadCount, 1);
+        this.symmetrySettings = symmetrySettings;
+        this.reverseSide = reverseSide;
+        this.stages = stages;
+        this.symmetryThreshold = symmetryThreshold;
+        this.jsonLines = reportPath.getFileName().toString().endsWith(".jsonl");
+    }
+
+    public void run() throws IOException {
+        List<Path> mapFolders = findMapFolders(rootFolder);
+        System.out.printf("Found %d maps\n", mapFolders.size());
+        if (reportPath.getParent() != null) {
+            Files.createDirectories(reportPath.getParent());
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try (BufferedWriter reportWriter = Files.newBufferedWriter(reportPath)) {
+            writer = reportWriter;
+            if (!jsonLines) {
+                writeLine(getCsvHeader());
+            }
+            mapFolders.forEach(mapFolder -> executor.execute(() -> writeResult(evaluate(mapFolder))));
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new IOException("Batch evaluation interrupted", e);
+        }
+    }
+
+    public static List<Path> findMapFolders(Path rootFolder) throws IOException {
+        try (Stream<Path> paths = Files.walk(rootFolder)) {
+            return paths.filter(path -> path.getFileName().toString().endsWith(".scmap"))
+                    .map(Path::getParent)
+                    .distinct()
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private EvaluationResult evaluate(Path mapFolder) {
+        long sTime = System.currentTimeMillis();
+        MapEvaluator evaluator = new MapEvaluator(mapFolder, symmetrySettings, reverseSide, stages, symmetryThreshold);
+        String error = null;
+        try {
+            evaluator.importMap();
+            if (evaluator.getMap() == null) {
+                error = "Map could not be imported";
+            } else {
+                evaluator.evaluate();
+            }
+        } catch (RuntimeException e) {
+            error = e.toString();
+        }
+        EvaluationResult result = evaluator.getResult() != null ? evaluator.getResult() : new EvaluationResult(mapFolder.toString());
+        if (error != null && result.getError() == null) {
+            result.setError(error);
+        }
+        result.getTimings().put("total", System.currentTimeMillis() - sTime);
+        return result;
+    }
+
+    private void writeResult(EvaluationResult result) {
+        try {
+            writeLine(jsonLines ? gson.toJson(result) : getCsvRow(result));
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.err.printf("Error while writing the report entry for %s\n", result.getMapFolder());
+        }
+    }
+
+    private synchronized void writeLine(String line) throws IOException {
+        writer.write(line);
+        writer.newLine();
+        writer.flush();
+    }
+
+    private static String getCsvHeader() {
+        List<String> columns = new ArrayList<>();
+        columns.add("map");
+        columns.add("error");
+        for (String score : SCORES) {
+            columns.add(score.toLowerCase() + "Score");
+        }
+        for (String score : SCORES) {
+            columns.add(score.toLowerCase() + "ErrorBound");
+        }
+        for (String timing : TIMINGS) {
+            columns.add(timing + "Ms");
+        }
+        return String.join(",", columns);
+    }
+
+    private static String getCsvRow(EvaluationResult result) {
+        List<String> columns = new ArrayList<>();
+        columns.add(escapeCsv(result.getMapFolder()));
+        columns.add(result.getError() == null ? "" : escapeCsv(result.getError()));
+        for (String score : SCORES) {
+            Float value = result.getScores().get(score);
+            columns.add(value == null ? "" : String.format("%.4f", value));
+        }
+        for (String score : SCORES) {
+            Float value = result.getErrorBounds().get(score);
+            columns.add(value == null ? "" : String.format("%.4f", value));
+        }
+        for (String timing : TIMINGS) {
+            Long value = result.getTimings().get(timing);
+            columns.add(value == null ? "" : value.toString());
+        }
+        return String.join(",", columns);
+    }
+
+    private static String escapeCsv(String value) {
+        if (value.contains(",") || value.contains("\"") || value.contains("\n")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+}
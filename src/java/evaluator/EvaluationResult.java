@@ -0,0 +1,14 @@
+package evaluator;
+
+import lombok.Data;
+
+import java.util.LinkedHashMap;
+
+@Data
+public strictfp class EvaluationResult {
+    private final String mapFolder;
+    private final LinkedHashMap<String, Float> scores = new LinkedHashMap<>();
+    private final LinkedHashMap<String, Float> errorBounds = new LinkedHashMap<>();
+    private final LinkedHashMap<String, Long> timings = new LinkedHashMap<>();
+    private String error;
+}
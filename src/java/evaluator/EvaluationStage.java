@@ -0,0 +1,34 @@
+package evaluator;
+
+import importer.SCMapSection;
+import lombok.Getter;
+
+import java.util.EnumSet;
+
+@Getter
+public strictfp enum EvaluationStage {
+    TERRAIN(EnumSet.of(SCMapSection.HEIGHTMAP, SCMapSection.TEXTURE_MASKS), false),
+    SPAWNS(SCMapSection.none(), true),
+    MEXES(SCMapSection.none(), true),
+    HYDROS(SCMapSection.none(), true),
+    PROPS(EnumSet.of(SCMapSection.PROPS), false),
+    UNITS(SCMapSection.none(), true);
+
+    private final EnumSet<SCMapSection> sections;
+    private final boolean saveRequired;
+
+    EvaluationStage(EnumSet<SCMapSection> sections, boolean saveRequired) {
+        this.sections = sections;
+        this.saveRequired = saveRequired;
+    }
+
+    public static EnumSet<SCMapSection> getSections(EnumSet<EvaluationStage> stages) {
+        EnumSet<SCMapSection> sections = SCMapSection.none();
+        stages.forEach(stage -> sections.addAll(stage.getSections()));
+        return sections;
+    }
+
+    public static boolean isSaveRequired(EnumSet<EvaluationStage> stages) {
+        return stages.stream().anyMatch(EvaluationStage::isSaveRequired);
+    }
+}
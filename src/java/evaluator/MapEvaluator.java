@@ -5,6 +5,8 @@ import importer.SaveImporter;
 import map.*;
 import util.ArgumentParser;
 import util.FileUtils;
+import util.NearestNeighbourGrid;
+import util.Vector2f;
 import util.Vector3f;
 
 import java.io.File;
@@ -18,6 +20,7 @@ import java.util.stream.Collectors;
 public strictfp class MapEvaluator {
 
     public static boolean DEBUG = false;
+    private static final int MIN_PYRAMID_SIZE = 64;
 
     private Path inMapPath;
     private Path outFolderPath;
@@ -33,6 +36,33 @@ public strictfp class MapEvaluator {
     private float hydroScore;
     private float unitScore;
     private float propScore;
+    private EnumSet<EvaluationStage> stages = EnumSet.allOf(EvaluationStage.class);
+    private boolean printScores = true;
+    private EvaluationResult result;
+
+    private Path batchFolderPath;
+    private Path reportPath;
+    private int threadCount = Runtime.getRuntime().availableProcessors();
+    private float symmetryThreshold = -1;
+
+    public MapEvaluator() {
+    }
+
+    MapEvaluator(Path inMapPath, SymmetrySettings symmetrySettings, boolean reverseSide, EnumSet<EvaluationStage> stages, float symmetryThreshold) {
+        this.inMapPath = inMapPath;
+        this.symmetrySettings = symmetrySettings;
+        this.reverseSide = reverseSide;
+        this.stages = stages;
+        this.symmetryThreshold = symmetryThreshold;
+        this.printScores = false;
+    }
+
+    MapEvaluator(SCMap map, SymmetrySettings symmetrySettings) {
+        this.map = map;
+        this.symmetrySettings = symmetrySettings;
+        this.heightmapBase = new FloatMask(map.getSize() + 1, null, symmetrySettings);
+        this.printScores = false;
+    }
 
     public static void main(String[] args) throws IOException {
 
@@ -47,6 +77,15 @@ public strictfp class MapEvaluator {
 
         evaluator.interpretArguments(args);
 
+        if (evaluator.batchFolderPath != null) {
+            System.out.println("Evaluating maps in " + evaluator.batchFolderPath);
+            new BatchEvaluator(evaluator.batchFolderPath, evaluator.reportPath, evaluator.threadCount,
+                    evaluator.symmetrySettings, evaluator.reverseSide, evaluator.stages, evaluator.symmetryThreshold).run();
+            System.out.println("Saved report to " + evaluator.reportPath.toAbsolutePath());
+            System.out.println("Done");
+            return;
+        }
+
         System.out.println("Evaluating map " + evaluator.inMapPath);
         evaluator.importMap();
         evaluator.evaluate();
@@ -63,8 +102,13 @@ public strictfp class MapEvaluator {
         if (arguments.containsKey("help")) {
             System.out.println("map-transformer usage:\n" +
                     "--help                 produce help message\n" +
-                    "--in-folder-path arg   required, set the input folder for the map\n" +
-                    "--out-folder-path arg  required, set the output folder for the symmetry report\n" +
+                    "--in-folder-path arg   required unless batch, set the input folder for the map\n" +
+                    "--out-folder-path arg  required unless batch, set the output folder for the symmetry report\n" +
+                    "--batch-folder-path arg optional, evaluate every map folder below this folder instead of a single map\n" +
+                    "--report-path arg      required for batch, set the report file, written as json lines if it ends in .jsonl and as csv otherwise\n" +
+                    "--threads arg          optional, set the number of maps evaluated at once in batch mode\n" +
+                    "--stages arg           optional, comma separated stages to evaluate (TERRAIN, SPAWNS, MEXES, HYDROS, PROPS, UNITS)\n" +
+                    "--symmetry-threshold arg optional, score terrain and textures at low resolution first and only refine masks scoring above this value\n" +
                     "--symmetry arg         required, set the symmetry for the map(X, Z, XZ, ZX, POINT)\n" +
                     "--source arg           required, set which half to use as reference for evaluation (TOP, BOTTOM, LEFT, RIGHT, TOP_LEFT, TOP_RIGHT, BOTTOM_LEFT, BOTTOM_RIGHT)\n" +
                     "--debug                optional, turn on debugging options\n");
@@ -75,14 +119,37 @@ public strictfp class MapEvaluator {
             DEBUG = true;
         }
 
-        if (!arguments.containsKey("in-folder-path")) {
-            System.out.println("Input Folder not Specified");
-            System.exit(1);
+        if (arguments.containsKey("batch-folder-path") && arguments.get("batch-folder-path") != null) {
+            batchFolderPath = Paths.get(arguments.get("batch-folder-path"));
+            if (!arguments.containsKey("report-path") || arguments.get("report-path") == null) {
+                System.out.println("Report Path not Specified");
+                System.exit(5);
+            }
+            reportPath = Paths.get(arguments.get("report-path"));
+            if (arguments.containsKey("threads") && arguments.get("threads") != null) {
+                threadCount = Integer.parseInt(arguments.get("threads"));
+            }
+        } else {
+            if (!arguments.containsKey("in-folder-path")) {
+                System.out.println("Input Folder not Specified");
+                System.exit(1);
+            }
+
+            if (!arguments.containsKey("out-folder-path")) {
+                System.out.println("Output Folder not Specified");
+                System.exit(2);
+            }
+        }
+
+        if (arguments.containsKey("symmetry-threshold") && arguments.get("symmetry-threshold") != null) {
+            symmetryThreshold = Float.parseFloat(arguments.get("symmetry-threshold"));
         }
 
-        if (!arguments.containsKey("out-folder-path")) {
-            System.out.println("Output Folder not Specified");
-            System.exit(2);
+        if (arguments.containsKey("stages") && arguments.get("stages") != null) {
+            stages = EnumSet.noneOf(EvaluationStage.class);
+            for (String stage : arguments.get("stages").split(",")) {
+                stages.add(EvaluationStage.valueOf(stage.trim().toUpperCase()));
+            }
         }
 
         if (!arguments.containsKey("symmetry")) {
@@ -95,8 +162,10 @@ public strictfp class MapEvaluator {
             System.exit(4);
         }
 
-        inMapPath = Paths.get(arguments.get("in-folder-path"));
-        outFolderPath = Paths.get(arguments.get("out-folder-path"));
+        if (batchFolderPath == null) {
+            inMapPath = Paths.get(arguments.get("in-folder-path"));
+            outFolderPath = Paths.get(arguments.get("out-folder-path"));
+        }
         Symmetry teamSymmetry;
         switch (SymmetrySource.valueOf(arguments.get("source"))) {
             case TOP -> {
@@ -140,6 +209,8 @@ public strictfp class MapEvaluator {
     }
 
     public void importMap() {
+        long sTime = System.currentTimeMillis();
+        result = new EvaluationResult(inMapPath.toString());
         try {
             File dir = inMapPath.toFile();
 
@@ -148,15 +219,16 @@ public strictfp class MapEvaluator {
                 System.out.println("No scmap file in map folder");
                 return;
             }
-            File scmapFile = mapFiles[0];
-            String mapFolder = inMapPath.getFileName().toString();
-            String mapName = scmapFile.getName().replace(".scmap", "");
-            map = SCMapImporter.loadSCMAP(inMapPath);
-            SaveImporter.importSave(inMapPath, map);
+            map = SCMapImporter.loadSCMAP(inMapPath, EvaluationStage.getSections(stages));
+            if (map != null && EvaluationStage.isSaveRequired(stages)) {
+                SaveImporter.importSave(inMapPath, map);
+            }
         } catch (IOException e) {
             e.printStackTrace();
-            System.err.println("Error while saving the map.");
+            System.err.println("Error while importing the map.");
+            result.setError(e.toString());
         }
+        recordTiming("import", sTime);
     }
 
 //    public void saveReport() {
@@ -173,85 +245,197 @@ public strictfp class MapEvaluator {
 //        }
 //    }
 
+    public EvaluationResult getResult() {
+        return result;
+    }
+
+    public SCMap getMap() {
+        return map;
+    }
+
     public void evaluate() {
-        evaluateTerrain();
-        evaluateSpawns();
-        evaluateMexes();
-        evaluateHydros();
-        evaluateProps();
-        evaluateUnits();
+        long sTime = System.currentTimeMillis();
+        if (stages.contains(EvaluationStage.TERRAIN)) {
+            evaluateTerrain();
+        } else {
+            // the location scores only need the mask for its size and symmetry
+            heightmapBase = new FloatMask(map.getSize() + 1, null, symmetrySettings);
+        }
+        if (stages.contains(EvaluationStage.SPAWNS)) {
+            evaluateSpawns();
+        }
+        if (stages.contains(EvaluationStage.MEXES)) {
+            evaluateMexes();
+        }
+        if (stages.contains(EvaluationStage.HYDROS)) {
+            evaluateHydros();
+        }
+        if (stages.contains(EvaluationStage.PROPS)) {
+            evaluateProps();
+        }
+        if (stages.contains(EvaluationStage.UNITS)) {
+            evaluateUnits();
+        }
+        recordTiming("evaluate", sTime);
     }
 
     public void evaluateTerrain() {
         long sTime = System.currentTimeMillis();
         heightmapBase = map.getHeightMask(symmetrySettings);
-        terrainScore = getFloatMaskScore(heightmapBase);
-        System.out.println(String.format("Terrain Score: %.2f", terrainScore));
+        SymmetryScore terrainSymmetryScore = getSymmetryScore(heightmapBase);
+        terrainScore = terrainSymmetryScore.getScore();
+        recordScore("Terrain", terrainScore);
+        recordErrorBound("Terrain", terrainSymmetryScore.getErrorBound());
 
         FloatMask[] texturesMasks = map.getTextureMasksRaw(symmetrySettings);
         textureScore = 0;
+        float textureErrorBound = 0;
         for (FloatMask textureMask : texturesMasks) {
-            textureScore += getFloatMaskScore(textureMask);
-        }
-        System.out.println(String.format("Texture Score: %.2f", textureScore));
-        if (DEBUG) {
-            System.out.printf("Done: %4d ms, evaluateTerrain\n",
-                    System.currentTimeMillis() - sTime);
+            SymmetryScore textureSymmetryScore = getSymmetryScore(textureMask);
+            textureScore += textureSymmetryScore.getScore();
+            textureErrorBound += textureSymmetryScore.getErrorBound();
         }
+        recordScore("Texture", textureScore);
+        recordErrorBound("Texture", textureErrorBound);
+        recordTiming("terrain", sTime);
     }
 
     public void evaluateSpawns() {
         long sTime = System.currentTimeMillis();
         spawnScore = getLocationListScore(map.getSpawns().stream().map(Spawn::getPosition).collect(Collectors.toList()));
-        System.out.println(String.format("Spawn Score: %.2f", spawnScore));
-        if (DEBUG) {
-            System.out.printf("Done: %4d ms, evaluateSpawns\n",
-                    System.currentTimeMillis() - sTime);
-        }
+        recordScore("Spawn", spawnScore);
+        recordTiming("spawns", sTime);
     }
 
     public void evaluateMexes() {
         long sTime = System.currentTimeMillis();
         mexScore = getLocationListScore(map.getMexes().stream().map(Mex::getPosition).collect(Collectors.toList()));
-        System.out.println(String.format("Mex Score: %.2f", mexScore));
-        if (DEBUG) {
-            System.out.printf("Done: %4d ms, evaluateMexes\n",
-                    System.currentTimeMillis() - sTime);
-        }
+        recordScore("Mex", mexScore);
+        recordTiming("mexes", sTime);
     }
 
     public void evaluateHydros() {
         long sTime = System.currentTimeMillis();
         hydroScore = getLocationListScore(map.getHydros().stream().map(Hydro::getPosition).collect(Collectors.toList()));
-        System.out.println(String.format("Hydro Score: %.2f", hydroScore));
-        if (DEBUG) {
-            System.out.printf("Done: %4d ms, evaluateHydros\n",
-                    System.currentTimeMillis() - sTime);
-        }
+        recordScore("Hydro", hydroScore);
+        recordTiming("hydros", sTime);
     }
 
     public void evaluateProps() {
         long sTime = System.currentTimeMillis();
         propScore = getLocationListScore(map.getProps().stream().map(Prop::getPosition).collect(Collectors.toList()));
-        System.out.println(String.format("Prop Score: %.2f", propScore));
-        if (DEBUG) {
-            System.out.printf("Done: %4d ms, evaluateProps\n",
-                    System.currentTimeMillis() - sTime);
-        }
+        recordScore("Prop", propScore);
+        recordTiming("props", sTime);
     }
 
     public void evaluateUnits() {
         long sTime = System.currentTimeMillis();
         unitScore = getLocationListScore(map.getArmies().stream().flatMap(army -> army.getGroups().stream()
                 .flatMap(group -> group.getUnits().stream())).map(Unit::getPosition).collect(Collectors.toList()));
-        System.out.println(String.format("Unit Score: %.2f", unitScore));
+        recordScore("Unit", unitScore);
+        recordTiming("units", sTime);
+    }
+
+    /**
+     * Pairs every location with the remaining location whose mirrored position is closest and sums those distances.
+     * Locations are visited in the iteration order of a hash set of the locations, like the original scan did,
+     * so the score is identical to matching the pairs by brute force.
+     */
+    public float getLocationListScore(List<Vector3f> locations) {
+        float locationScore = 0f;
+        if (locations.isEmpty()) {
+            return locationScore;
+        }
+        HashSet<Vector3f> locationsSet = new HashSet<>(locations);
+        if (hasTreeBins(locationsSet, locations.size())) {
+            return getLocationListScoreByScan(new ArrayList<>(locations));
+        }
+        float maxDistance = (float) StrictMath.sqrt(map.getSize() * map.getSize());
+        Vector3f first = locations.get(0);
+        ArrayList<Vector3f> ordered = new ArrayList<>(locationsSet);
+        HashMap<Vector3f, Integer> indices = new HashMap<>();
+        for (int i = 0; i < ordered.size(); i++) {
+            indices.put(ordered.get(i), i);
+        }
+        int count = ordered.size();
+        float[] mirroredXs = new float[count];
+        float[] mirroredZs = new float[count];
+        if (locations.size() > 1) {
+            for (int i = 0; i < count; i++) {
+                Vector2f mirrored = heightmapBase.getSymmetryPoints(ordered.get(i), SymmetryType.SPAWN).get(0).getLocation();
+                mirroredXs[i] = mirrored.x;
+                mirroredZs[i] = mirrored.y;
+            }
+        }
+        NearestNeighbourGrid mirroredLocations = new NearestNeighbourGrid(mirroredXs, mirroredZs);
+
+        // the first location is compared against the raw list, duplicates included
+        int closest = -1;
+        float minDist = maxDistance;
+        for (int i = 1; i < locations.size(); i++) {
+            Vector3f other = locations.get(i);
+            int index = indices.get(other);
+            float dx = first.x - mirroredXs[index];
+            float dz = first.z - mirroredZs[index];
+            float dist = (float) StrictMath.sqrt(dx * dx + dz * dz);
+            if (dist < minDist) {
+                closest = index;
+                minDist = dist;
+            }
+        }
+        mirroredLocations.remove(indices.get(first));
+        if (closest != -1) {
+            mirroredLocations.remove(closest);
+        }
+        locationScore += minDist;
+
+        for (int i = 0; i < count; i++) {
+            if (mirroredLocations.isRemoved(i)) {
+                continue;
+            }
+            Vector3f location = ordered.get(i);
+            mirroredLocations.remove(i);
+            closest = mirroredLocations.getNearest(location.x, location.z, maxDistance);
+            if (closest != -1) {
+                minDist = location.getXZDistance(new Vector2f(mirroredXs[closest], mirroredZs[closest]));
+                mirroredLocations.remove(closest);
+            } else {
+                minDist = maxDistance;
+            }
+            locationScore += minDist;
+        }
+        return locationScore;
+    }
+
+    private void recordScore(String name, float score) {
+        if (result != null) {
+            result.getScores().put(name, score);
+        }
+        if (printScores) {
+            System.out.println(String.format("%s Score: %.2f", name, score));
+        }
+    }
+
+    private void recordErrorBound(String name, float errorBound) {
+        if (result != null && errorBound > 0) {
+            result.getErrorBounds().put(name, errorBound);
+        }
+        if (printScores && errorBound > 0) {
+            System.out.println(String.format("%s Score Error Bound: %.2f", name, errorBound));
+        }
+    }
+
+    private void recordTiming(String stage, long sTime) {
+        long time = System.currentTimeMillis() - sTime;
+        if (result != null) {
+            result.getTimings().put(stage, time);
+        }
         if (DEBUG) {
-            System.out.printf("Done: %4d ms, evaluateUnits\n",
-                    System.currentTimeMillis() - sTime);
+            System.out.printf("Done: %4d ms, %s\n", time, stage);
         }
     }
 
-    public float getLocationListScore(List<Vector3f> locations) {
+    private float getLocationListScoreByScan(List<Vector3f> locations) {
         float locationScore = 0f;
         Set<Vector3f> locationsSet = new HashSet<>(locations);
         while (locationsSet.size() > 0) {
@@ -274,6 +458,113 @@ public strictfp class MapEvaluator {
         return locationScore;
     }
 
+    /**
+     * HashMap turns buckets with more than eight colliding entries into trees, which reorder themselves on removal.
+     * The visiting order of the scan can then no longer be derived from a single snapshot of the set.
+     */
+    private static boolean hasTreeBins(Set<Vector3f> locationsSet, int requestedSize) {
+        int capacity = Integer.highestOneBit(StrictMath.max((int) (requestedSize / .75f) + 1, 16) - 1) << 1;
+        int[] bucketSizes = new int[capacity];
+        for (Vector3f location : locationsSet) {
+            int hash = location.hashCode();
+            if (++bucketSizes[(hash ^ (hash >>> 16)) & (capacity - 1)] > 8) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Scores the mask on a mip pyramid from the coarsest level up and stops at the first level whose score plus error
+     * bound is at most the symmetry threshold. Masks that stay above the threshold end up with the exact full resolution
+     * score. Without a threshold, or for symmetries that do not map pixels onto pixels, this is the plain full
+     * resolution score.
+     */
+    public SymmetryScore getSymmetryScore(FloatMask mask) {
+        Symmetry symmetry = symmetrySettings.getSymmetry(SymmetryType.SPAWN);
+        // reversed DIAG copies into half blocks along the diagonal, so its levels do not score like the full mask
+        boolean blockAligned = symmetry.isPerfectSymmetry() && !(reverseSide && symmetry == Symmetry.DIAG);
+        if (symmetryThreshold < 0 || !blockAligned) {
+            return new SymmetryScore(getFloatMaskScore(mask), 0, 0);
+        }
+        List<FloatMask> pyramid = new ArrayList<>();
+        pyramid.add(mask);
+        FloatMask top = mask;
+        // the blocks only line up with the half the symmetry is copied from while that half splits into whole blocks
+        while (top.getSize() / 2 % 2 == 0 && FloatMask.getDownsampledIndex(top.getSize() - 1, top.getSize()) + 1 >= MIN_PYRAMID_SIZE) {
+            top = top.copy().downsample();
+            pyramid.add(top);
+        }
+        float pointCount = symmetry.getNumSymPoints();
+        for (int level = pyramid.size() - 1; level > 0; level--) {
+            int[] blockIndices = getBlockIndices(mask.getSize(), level);
+            float score = getFloatMaskScore(pyramid.get(level), getBlockWidths(blockIndices, pyramid.get(level).getSize()));
+            // the level blown back up scores exactly the same, and every pixel is copied to at most pointCount - 1
+            // others, which bounds how much the detail lost to the downsampling can change the score
+            float errorBound = getResidual(mask, pyramid.get(level), blockIndices) * (1 + (float) StrictMath.sqrt(StrictMath.max(pointCount - 1, 1)));
+            if (score + errorBound <= symmetryThreshold) {
+                return new SymmetryScore(score, errorBound, level);
+            }
+        }
+        return new SymmetryScore(getFloatMaskScore(mask), 0, 0);
+    }
+
+    /**
+     * Returns for every row of a mask of the given size the row it ends up at in the given pyramid level.
+     */
+    private static int[] getBlockIndices(int size, int levelIndex) {
+        int[] blockIndices = new int[size];
+        for (int i = 0; i < size; i++) {
+            blockIndices[i] = i;
+        }
+        int levelSize = size;
+        for (int level = 0; level < levelIndex; level++) {
+            for (int i = 0; i < size; i++) {
+                blockIndices[i] = FloatMask.getDownsampledIndex(blockIndices[i], levelSize);
+            }
+            levelSize = FloatMask.getDownsampledIndex(levelSize - 1, levelSize) + 1;
+        }
+        return blockIndices;
+    }
+
+    private static float[] getBlockWidths(int[] blockIndices, int levelSize) {
+        float[] blockWidths = new float[levelSize];
+        for (int blockIndex : blockIndices) {
+            blockWidths[blockIndex]++;
+        }
+        return blockWidths;
+    }
+
+    /**
+     * Root of the summed squared difference between the mask and the given pyramid level blown back up to full size.
+     */
+    private static float getResidual(FloatMask mask, FloatMask level, int[] blockIndices) {
+        double sum = 0;
+        for (int x = 0; x < mask.getSize(); x++) {
+            for (int y = 0; y < mask.getSize(); y++) {
+                float difference = mask.getValueAt(x, y) - level.getValueAt(blockIndices[x], blockIndices[y]);
+                sum += difference * difference;
+            }
+        }
+        return (float) StrictMath.sqrt(sum);
+    }
+
+    /**
+     * Score of a pyramid level as if it was blown back up to full resolution, each pixel weighted by the area of its block.
+     */
+    private float getFloatMaskScore(FloatMask level, float[] blockWidths) {
+        FloatMask difference = level.copy();
+        difference.applySymmetry(SymmetryType.SPAWN, reverseSide);
+        difference.subtract(level).multiply(difference);
+        double sum = 0;
+        for (int x = 0; x < level.getSize(); x++) {
+            for (int y = 0; y < level.getSize(); y++) {
+                sum += blockWidths[x] * blockWidths[y] * difference.getValueAt(x, y);
+            }
+        }
+        return (float) StrictMath.sqrt(sum);
+    }
+
     public float getFloatMaskScore(FloatMask mask) {
         FloatMask difference = mask.copy();
         difference.startVisualDebugger("diff");
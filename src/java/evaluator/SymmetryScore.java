@@ -0,0 +1,14 @@
+package evaluator;
+
+import lombok.Data;
+
+/**
+ * Asymmetry score of a mask measured at some level of its mip pyramid. Level 0 is the full resolution and exact,
+ * coarser levels are scaled up to full resolution and come with a bound on the asymmetry the level cannot resolve.
+ */
+@Data
+public strictfp class SymmetryScore {
+    private final float score;
+    private final float errorBound;
+    private final int level;
+}
@@ -39,22 +39,10 @@ public strictfp class BiomeExporter {
     }
 
     public static Color getTexturePreviewColor(Path envDir, String texturePath) throws IOException {
-        File file = Paths.get(envDir.toString(), texturePath).toFile();
-        InputStream inputStream = new FileInputStream(file);
-        byte[] buffer = new byte[inputStream.available()];
-        inputStream.read(buffer);
-        int[] pixels = DDSReader.read(buffer, DDSReader.ARGB, 0);
-        float avgR = 0;
-        float avgB = 0;
-        float avgG = 0;
-        if (pixels != null) {
-            for (int pix : pixels) {
-                Color pixColor = new Color(pix);
-                avgR += pixColor.getRed();
-                avgB += pixColor.getBlue();
-                avgG += pixColor.getGreen();
-            }
-            return new Color((int) avgR / pixels.length, (int) avgG / pixels.length, (int) avgB / pixels.length);
+        byte[] buffer = Files.readAllBytes(Paths.get(envDir.toString(), texturePath));
+        int[] averageColor = DDSReader.readAverageColor(buffer, 0);
+        if (averageColor != null) {
+            return new Color(averageColor[1], averageColor[2], averageColor[3]);
         }
         return null;
     }
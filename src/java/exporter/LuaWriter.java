@@ -0,0 +1,139 @@
+package exporter;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+
+public strictfp class LuaWriter implements Closeable, Flushable {
+
+    private static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+    private static final int FLOAT_DECIMALS = 6;
+    private static final long FLOAT_SCALE = 1_000_000L;
+    private static final double FAST_FLOAT_LIMIT = 1e5;
+    private static final double TIE_TOLERANCE = 1e-4;
+
+    private final OutputStream out;
+    private final byte[] buffer;
+    private int position;
+
+    public LuaWriter(OutputStream out) {
+        this(out, DEFAULT_BUFFER_SIZE);
+    }
+
+    public LuaWriter(OutputStream out, int bufferSize) {
+        this.out = out;
+        this.buffer = new byte[StrictMath.max(bufferSize, 64)];
+    }
+
+    public LuaWriter write(String s) throws IOException {
+        int length = s.length();
+        int offset = 0;
+        while (offset < length) {
+            if (position == buffer.length) {
+                flushBuffer();
+            }
+            int count = StrictMath.min(length - offset, buffer.length - position);
+            for (int i = 0; i < count; i++) {
+                buffer[position++] = (byte) s.charAt(offset + i);
+            }
+            offset += count;
+        }
+        return this;
+    }
+
+    public LuaWriter write(char c) throws IOException {
+        if (position == buffer.length) {
+            flushBuffer();
+        }
+        buffer[position++] = (byte) c;
+        return this;
+    }
+
+    public LuaWriter writeInt(int value) throws IOException {
+        return writeLong(value);
+    }
+
+    public LuaWriter writeLong(long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            return write(Long.toString(value));
+        }
+        if (value < 0) {
+            write('-');
+            value = -value;
+        }
+        ensureCapacity(19);
+        writeDigits(value, 1);
+        return this;
+    }
+
+    /**
+     * Writes the value exactly as {@code String.format(Locale.US, "%f", value)} would.
+     */
+    public LuaWriter writeFloat(float value) throws IOException {
+        double abs = StrictMath.abs((double) value);
+        if (!(abs < FAST_FLOAT_LIMIT)) {
+            return write(String.format(Locale.US, "%f", value));
+        }
+        double scaled = abs * FLOAT_SCALE;
+        double fraction = scaled - StrictMath.floor(scaled);
+        if (StrictMath.abs(fraction - .5) < TIE_TOLERANCE) {
+            return write(String.format(Locale.US, "%f", value));
+        }
+        long rounded = (long) StrictMath.floor(scaled + .5);
+        ensureCapacity(FLOAT_DECIMALS + 12);
+        if ((Float.floatToRawIntBits(value) & 0x80000000) != 0) {
+            buffer[position++] = '-';
+        }
+        writeDigits(rounded / FLOAT_SCALE, 1);
+        buffer[position++] = '.';
+        writeDigits(rounded % FLOAT_SCALE, FLOAT_DECIMALS);
+        return this;
+    }
+
+    public LuaWriter writeVector3(float x, float y, float z) throws IOException {
+        return writeFloat(x).write(", ").writeFloat(y).write(", ").writeFloat(z);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            out.close();
+        }
+    }
+
+    private void writeDigits(long value, int minDigits) {
+        int digits = 1;
+        for (long remaining = value / 10; remaining > 0; remaining /= 10) {
+            digits++;
+        }
+        digits = StrictMath.max(digits, minDigits);
+        for (int i = position + digits - 1; i >= position; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        position += digits;
+    }
+
+    private void ensureCapacity(int count) throws IOException {
+        if (buffer.length - position < count) {
+            flushBuffer();
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        if (position > 0) {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+}
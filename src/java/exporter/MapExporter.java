@@ -1,22 +1,74 @@
 package exporter;
 
 import map.SCMap;
+import util.DXTEncoder;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public class MapExporter {
 
     public static void exportMap(Path folderPath, String mapName, SCMap map, boolean exportPreview) throws IOException {
+        exportMap(folderPath, mapName, map, exportPreview, null);
+    }
+
+    public static void exportMap(Path folderPath, String mapName, SCMap map, boolean exportPreview, DXTEncoder.Quality compressionQuality) throws IOException {
         Files.createDirectories(folderPath);
-        SCMapExporter.exportSCMAP(folderPath, mapName, map);
+
+        List<CompletableFuture<File>> exportFutures = new ArrayList<>();
+        exportFutures.add(supplyAsync(() -> SCMapExporter.exportSCMAP(folderPath, mapName, map, compressionQuality)));
         if (!exportPreview) {
-            SCMapExporter.exportPreview(folderPath, mapName, map);
+            exportFutures.add(supplyAsync(() -> SCMapExporter.exportPreview(folderPath, mapName, map)));
+        }
+        exportFutures.add(supplyAsync(() -> SaveExporter.exportSave(folderPath, mapName, map)));
+        exportFutures.add(supplyAsync(() -> ScenarioExporter.exportScenario(folderPath, mapName, map)));
+        exportFutures.add(supplyAsync(() -> ScriptExporter.exportScript(folderPath, mapName, map)));
+        if (!map.getPathCostTables().isEmpty()) {
+            exportFutures.add(supplyAsync(() -> PathCostExporter.exportPathCosts(folderPath, mapName, map)));
+        }
+
+        List<File> exportedFiles = new ArrayList<>();
+        try {
+            CompletableFuture.allOf(exportFutures.toArray(new CompletableFuture[0])).join();
+            for (CompletableFuture<File> exportFuture : exportFutures) {
+                exportedFiles.add(exportFuture.join());
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw e;
+        }
+
+        for (File file : exportedFiles) {
+            if (file.exists()) {
+                try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+                    channel.force(true);
+                }
+            }
         }
-        SaveExporter.exportSave(folderPath, mapName, map);
-        ScenarioExporter.exportScenario(folderPath, mapName, map);
-        ScriptExporter.exportScript(folderPath, mapName, map);
+    }
+
+    private static CompletableFuture<File> supplyAsync(Callable<File> exporter) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return exporter.call();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        });
     }
 
 }
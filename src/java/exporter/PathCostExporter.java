@@ -0,0 +1,64 @@
+package exporter;
+
+import map.PathCostTable;
+import map.SCMap;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+public strictfp class PathCostExporter {
+
+    private final LuaWriter out;
+
+    private PathCostExporter(LuaWriter out) {
+        this.out = out;
+    }
+
+    public static File exportPathCosts(Path folderPath, String mapName, SCMap map) throws IOException {
+        File file = folderPath.resolve(mapName + "_path_costs.lua").toFile();
+        boolean status = file.createNewFile();
+        try (LuaWriter out = new LuaWriter(new FileOutputStream(file))) {
+            new PathCostExporter(out).writePathCosts(map);
+        }
+        return file;
+    }
+
+    private void writePathCosts(SCMap map) throws IOException {
+        out.write("-- Path lengths in map units, -1 where no path exists\n");
+        out.write("PathCosts = {\n");
+        for (PathCostTable table : map.getPathCostTables()) {
+            out.write("  ['").write(table.getLayer()).write("'] = {\n");
+            writeIds("Sources", table.getSourceIds());
+            writeIds("Targets", table.getTargetIds());
+            out.write("    Costs = {\n");
+            for (int source = 0; source < table.getSourceIds().size(); source++) {
+                out.write("      { ");
+                for (int target = 0; target < table.getTargetIds().size(); target++) {
+                    float cost = table.getCost(source, target);
+                    if (target > 0) {
+                        out.write(", ");
+                    }
+                    out.writeFloat(Float.isInfinite(cost) ? -1 : cost);
+                }
+                out.write(" },\n");
+            }
+            out.write("    },\n");
+            out.write("  },\n");
+        }
+        out.write("}\n");
+    }
+
+    private void writeIds(String name, List<String> ids) throws IOException {
+        out.write("    ").write(name).write(" = { ");
+        for (int i = 0; i < ids.size(); i++) {
+            if (i > 0) {
+                out.write(", ");
+            }
+            out.write('\'').write(ids.get(i)).write('\'');
+        }
+        out.write(" },\n");
+    }
+}
@@ -3,6 +3,7 @@ package exporter;
 import generator.PreviewGenerator;
 import map.*;
 import util.DDSHeader;
+import util.DXTEncoder;
 import util.Vector2f;
 import util.Vector3f;
 import util.Vector4f;
@@ -18,15 +19,28 @@ import static util.Swapper.swap;
 
 public strictfp class SCMapExporter {
 
-    public static File file;
+    private final DataOutputStream out;
+    private final DXTEncoder.Quality compressionQuality;
 
-    private static DataOutputStream out;
+    private SCMapExporter(DataOutputStream out, DXTEncoder.Quality compressionQuality) {
+        this.out = out;
+        this.compressionQuality = compressionQuality;
+    }
+
+    public static File exportSCMAP(Path folderPath, String mapName, SCMap map) throws IOException {
+        return exportSCMAP(folderPath, mapName, map, null);
+    }
 
-    public static void exportSCMAP(Path folderPath, String mapName, SCMap map) throws IOException {
-        file = folderPath.resolve(mapName + ".scmap").toFile();
+    public static File exportSCMAP(Path folderPath, String mapName, SCMap map, DXTEncoder.Quality compressionQuality) throws IOException {
+        File file = folderPath.resolve(mapName + ".scmap").toFile();
         boolean status = file.createNewFile();
-        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            new SCMapExporter(out, compressionQuality).writeSCMap(map);
+        }
+        return file;
+    }
 
+    private void writeSCMap(SCMap map) throws IOException {
         // header
         writeInt(SCMap.SIGNATURE);
         writeInt(SCMap.VERSION_MAJOR);
@@ -190,89 +204,91 @@ public strictfp class SCMapExporter {
         }
 
         out.flush();
-        out.close();
     }
 
     public static void exportSCMapString(Path folderPath, String mapname, SCMap map) {
         map.writeToFile(folderPath.resolve(mapname).resolve("debug").resolve(mapname + ".txt"));
     }
 
-    public static void exportPreview(Path folderPath, String mapname, SCMap map) throws IOException {
+    public static File exportPreview(Path folderPath, String mapname, SCMap map) throws IOException {
         final String fileFormat = "png";
         File previewFile = folderPath.resolve(mapname + "_preview." + fileFormat).toFile();
-        RenderedImage renderedImage = PreviewGenerator.addMarkers(map.getPreview(), map);
+        BufferedImage preview = map.getPreview();
+        BufferedImage previewCopy = new BufferedImage(preview.getColorModel(), preview.copyData(null), preview.isAlphaPremultiplied(), null);
+        RenderedImage renderedImage = PreviewGenerator.addMarkers(previewCopy, map);
         try {
             ImageIO.write(renderedImage, fileFormat, previewFile);
         } catch (IOException e) {
             System.out.print("Could not write the preview image\n" + e.toString());
         }
+        return previewFile;
     }
 
-    private static void writeFloat(float f) throws IOException {
+    private void writeFloat(float f) throws IOException {
         out.writeInt(swap(Float.floatToRawIntBits(f)));
     }
 
-    private static void writeInt(int i) throws IOException {
+    private void writeInt(int i) throws IOException {
         out.writeInt(swap(i));
     }
 
-    private static void writeShort(short s) throws IOException {
+    private void writeShort(short s) throws IOException {
         out.writeShort(swap(s));
     }
 
-    private static void writeByte(byte b) throws IOException {
+    private void writeByte(byte b) throws IOException {
         out.writeByte(b);
     }
 
-    private static void writeBytes(byte[] b) throws IOException {
+    private void writeBytes(byte[] b) throws IOException {
         out.write(b);
     }
 
-    private static void writeShorts(short[] s) throws IOException {
+    private void writeShorts(short[] s) throws IOException {
         for (short value : s) {
             writeShort(value);
         }
     }
 
-    private static void writeInts(int[] data) throws IOException {
+    private void writeInts(int[] data) throws IOException {
         for (int i : data) {
             writeInt(i);
         }
     }
 
-    private static void writeStringNull(String s) throws IOException {
+    private void writeStringNull(String s) throws IOException {
         for (int i = 0; i < s.length(); i++) {
             out.writeByte(s.charAt(i));
         }
         out.writeByte(0);
     }
 
-    private static void writeString(String s) throws IOException {
+    private void writeString(String s) throws IOException {
         writeInt(s.length());
         for (int i = 0; i < s.length(); i++) {
             out.writeByte(s.charAt(i));
         }
     }
 
-    private static void writeVector3f(Vector3f v) throws IOException {
+    private void writeVector3f(Vector3f v) throws IOException {
         writeFloat(v.x);
         writeFloat(v.y);
         writeFloat(v.z);
     }
 
-    private static void writeVector4f(Vector4f v) throws IOException {
+    private void writeVector4f(Vector4f v) throws IOException {
         writeFloat(v.x);
         writeFloat(v.y);
         writeFloat(v.z);
         writeFloat(v.w);
     }
 
-    private static void writeVector2f(Vector2f v) throws IOException {
+    private void writeVector2f(Vector2f v) throws IOException {
         writeFloat(v.x);
         writeFloat(v.y);
     }
 
-    private static void writeProp(Prop prop) throws IOException {
+    private void writeProp(Prop prop) throws IOException {
         writeStringNull(prop.getPath());
         writeVector3f(prop.getPosition());
         writeVector3f(new Vector3f((float) StrictMath.cos(prop.getRotation()), 0f, (float) StrictMath.sin(prop.getRotation())));
@@ -281,7 +297,7 @@ public strictfp class SCMapExporter {
         writeVector3f(new Vector3f(1f, 1f, 1f)); //scale
     }
 
-    private static void writeDecal(Decal decal, int id) throws IOException {
+    private void writeDecal(Decal decal, int id) throws IOException {
         writeInt(id);
         writeInt(decal.getType().getTypeNum());
         writeInt(2);
@@ -295,7 +311,7 @@ public strictfp class SCMapExporter {
         writeInt(-1);
     }
 
-    private static void writeDecalGroup(DecalGroup decalGroup, int id) throws IOException {
+    private void writeDecalGroup(DecalGroup decalGroup, int id) throws IOException {
         writeInt(id);
         writeStringNull(decalGroup.getName());
         writeInt(decalGroup.getData().length);
@@ -304,7 +320,7 @@ public strictfp class SCMapExporter {
         }
     }
 
-    private static void writeWaveGenerator(WaveGenerator waveGenerator) throws IOException {
+    private void writeWaveGenerator(WaveGenerator waveGenerator) throws IOException {
         writeStringNull(waveGenerator.getTextureName());
         writeStringNull(waveGenerator.getRampName());
         writeVector3f(waveGenerator.getPosition());
@@ -322,7 +338,7 @@ public strictfp class SCMapExporter {
         writeFloat(waveGenerator.getStripCount());
     }
 
-    private static void writeWaterSettings(WaterSettings waterSettings) throws IOException {
+    private void writeWaterSettings(WaterSettings waterSettings) throws IOException {
         writeByte((byte) (waterSettings.isWaterPresent() ? 1 : 0));
         writeFloat(waterSettings.getElevation());
         writeFloat(waterSettings.getElevationDeep());
@@ -354,7 +370,7 @@ public strictfp class SCMapExporter {
         }
     }
 
-    private static void writeLightingSettings(LightingSettings lightingSettings) throws IOException {
+    private void writeLightingSettings(LightingSettings lightingSettings) throws IOException {
         writeFloat(lightingSettings.getLightingMultiplier());
         writeVector3f(lightingSettings.getSunDirection());
         writeVector3f(lightingSettings.getSunAmbience());
@@ -367,7 +383,7 @@ public strictfp class SCMapExporter {
         writeFloat(lightingSettings.getFogEnd());
     }
 
-    private static void writeSkyBox(SkyBox skyBox) throws IOException {
+    private void writeSkyBox(SkyBox skyBox) throws IOException {
         writeVector3f(skyBox.getPosition());
         writeFloat(skyBox.getHorizonHeight());
         writeFloat(skyBox.getScale());
@@ -410,10 +426,23 @@ public strictfp class SCMapExporter {
         writeFloat(skyBox.getClouds7());
     }
 
-    private static void writeImageData(BufferedImage image, DDSHeader ddsHeader) throws IOException {
+    private void writeImageData(BufferedImage image, DDSHeader ddsHeader) throws IOException {
+        if (compressionQuality != null) {
+            writeCompressedImageData(image, DXTEncoder.Format.DXT5);
+            return;
+        }
         byte[] headerBytes = ddsHeader.toBytes();
         writeInt(headerBytes.length + image.getWidth() * image.getHeight() * 4); // image byte count
         writeBytes(headerBytes);
         writeInts(((DataBufferInt) image.getData().getDataBuffer()).getData()); // image data
     }
+
+    private void writeCompressedImageData(BufferedImage image, DXTEncoder.Format format) throws IOException {
+        byte[] headerBytes = DXTEncoder.getHeader(image.getWidth(), image.getHeight(), format).toBytes();
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        byte[] compressedData = DXTEncoder.encode(pixels, image.getWidth(), image.getHeight(), format, compressionQuality);
+        writeInt(headerBytes.length + compressedData.length); // image byte count
+        writeBytes(headerBytes);
+        writeBytes(compressedData); // compressed image data
+    }
 }
@@ -9,67 +9,76 @@ import java.util.ArrayList;
 
 public strictfp class SaveExporter {
 
-    public static File file;
-    private static DataOutputStream out;
+    private final LuaWriter out;
 
-    public static void exportSave(Path folderPath, String mapName, SCMap map) throws IOException {
-        file = folderPath.resolve(mapName + "_save.lua").toFile();
+    private SaveExporter(LuaWriter out) {
+        this.out = out;
+    }
+
+    public static File exportSave(Path folderPath, String mapName, SCMap map) throws IOException {
+        File file = folderPath.resolve(mapName + "_save.lua").toFile();
         boolean status = file.createNewFile();
-        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
-        out.writeBytes("Scenario = {\n");
-        out.writeBytes("  next_area_id = '1',\n");
-        out.writeBytes("  Props = {},\n");
-        out.writeBytes("  Areas = {},\n");
-        out.writeBytes("  MasterChain = {\n");
-        out.writeBytes("    ['_MASTERCHAIN_'] = {\n");
-        out.writeBytes("      Markers = {\n");
+        try (LuaWriter out = new LuaWriter(new FileOutputStream(file))) {
+            new SaveExporter(out).writeSave(map);
+        }
+        return file;
+    }
+
+    private void writeSave(SCMap map) throws IOException {
+        out.write("Scenario = {\n");
+        out.write("  next_area_id = '1',\n");
+        out.write("  Props = {},\n");
+        out.write("  Areas = {},\n");
+        out.write("  MasterChain = {\n");
+        out.write("    ['_MASTERCHAIN_'] = {\n");
+        out.write("      Markers = {\n");
         for (Spawn spawn : map.getSpawns()) {
-            out.writeBytes(String.format("        ['%s'] = {\n", spawn.getId()));
-            out.writeBytes("          ['type'] = STRING( 'Blank Marker' ),\n");
+            out.write("        ['").write(spawn.getId()).write("'] = {\n");
+            out.write("          ['type'] = STRING( 'Blank Marker' ),\n");
             Vector3f v = spawn.getPosition();
-            out.writeBytes(String.format("          ['position'] = VECTOR3( %f, %f, %f),\n", v.x, v.y, v.z));
-            out.writeBytes("          ['orientation'] = VECTOR3( 0.00, 0.00, 0.00 ),\n");
-            out.writeBytes("          ['color'] = STRING( 'ff800080' ),\n");
-            out.writeBytes("          ['prop'] = STRING( '/env/common/props/markers/M_Blank_prop.bp' ),\n");
-            out.writeBytes("        },\n");
+            out.write("          ['position'] = VECTOR3( ").writeVector3(v.x, v.y, v.z).write("),\n");
+            out.write("          ['orientation'] = VECTOR3( 0.00, 0.00, 0.00 ),\n");
+            out.write("          ['color'] = STRING( 'ff800080' ),\n");
+            out.write("          ['prop'] = STRING( '/env/common/props/markers/M_Blank_prop.bp' ),\n");
+            out.write("        },\n");
         }
         if (!map.isUnexplored()) {
             for (Mex mex : map.getMexes()) {
-                out.writeBytes(String.format("        ['%s'] = {\n", mex.getId()));
-                out.writeBytes("          ['size'] = FLOAT( 1.000000 ),\n");
-                out.writeBytes("          ['resource'] = BOOLEAN( true ),\n");
-                out.writeBytes("          ['amount'] = FLOAT( 100.000000 ),\n");
-                out.writeBytes("          ['color'] = STRING( 'ff808080' ),\n");
-                out.writeBytes("          ['type'] = STRING( 'Mass' ),\n");
-                out.writeBytes("          ['prop'] = STRING( '/env/common/props/markers/M_Mass_prop.bp' ),\n");
-                out.writeBytes("          ['orientation'] = VECTOR3( 0, 0, 0 ),\n");
+                out.write("        ['").write(mex.getId()).write("'] = {\n");
+                out.write("          ['size'] = FLOAT( 1.000000 ),\n");
+                out.write("          ['resource'] = BOOLEAN( true ),\n");
+                out.write("          ['amount'] = FLOAT( 100.000000 ),\n");
+                out.write("          ['color'] = STRING( 'ff808080' ),\n");
+                out.write("          ['type'] = STRING( 'Mass' ),\n");
+                out.write("          ['prop'] = STRING( '/env/common/props/markers/M_Mass_prop.bp' ),\n");
+                out.write("          ['orientation'] = VECTOR3( 0, 0, 0 ),\n");
                 Vector3f v = mex.getPosition();
-                out.writeBytes(String.format("          ['position'] = VECTOR3( %f, %f, %f),\n", v.x, v.y, v.z));
-                out.writeBytes("        },\n");
+                out.write("          ['position'] = VECTOR3( ").writeVector3(v.x, v.y, v.z).write("),\n");
+                out.write("        },\n");
             }
             for (Hydro hydro : map.getHydros()) {
-                out.writeBytes(String.format("        ['%s'] = {\n", hydro.getId()));
-                out.writeBytes("          ['size'] = FLOAT( 3.00 ),\n");
-                out.writeBytes("          ['resource'] = BOOLEAN( true ),\n");
-                out.writeBytes("          ['amount'] = FLOAT( 100.000000 ),\n");
-                out.writeBytes("          ['color'] = STRING( 'ff808080' ),\n");
-                out.writeBytes("          ['type'] = STRING( 'Hydrocarbon' ),\n");
-                out.writeBytes("          ['prop'] = STRING( '/env/common/props/markers/M_Hydrocarbon_prop.bp' ),\n");
-                out.writeBytes("          ['orientation'] = VECTOR3( 0, 0, 0 ),\n");
+                out.write("        ['").write(hydro.getId()).write("'] = {\n");
+                out.write("          ['size'] = FLOAT( 3.00 ),\n");
+                out.write("          ['resource'] = BOOLEAN( true ),\n");
+                out.write("          ['amount'] = FLOAT( 100.000000 ),\n");
+                out.write("          ['color'] = STRING( 'ff808080' ),\n");
+                out.write("          ['type'] = STRING( 'Hydrocarbon' ),\n");
+                out.write("          ['prop'] = STRING( '/env/common/props/markers/M_Hydrocarbon_prop.bp' ),\n");
+                out.write("          ['orientation'] = VECTOR3( 0, 0, 0 ),\n");
                 Vector3f v = hydro.getPosition();
-                out.writeBytes(String.format("          ['position'] = VECTOR3( %f, %f, %f),\n", v.x, v.y, v.z));
-                out.writeBytes("        },\n");
+                out.write("          ['position'] = VECTOR3( ").writeVector3(v.x, v.y, v.z).write("),\n");
+                out.write("        },\n");
             }
         }
         for (BlankMarker blankMarker : map.getBlankMarkers()) {
-            out.writeBytes("        ['" + blankMarker.getId() + "'] = {\n");
-            out.writeBytes("          ['type'] = STRING( 'Blank Marker' ),\n");
+            out.write("        ['").write(blankMarker.getId()).write("'] = {\n");
+            out.write("          ['type'] = STRING( 'Blank Marker' ),\n");
             Vector3f v = blankMarker.getPosition();
-            out.writeBytes(String.format("          ['position'] = VECTOR3( %f, %f, %f),\n", v.x, v.y, v.z));
-            out.writeBytes("          ['orientation'] = VECTOR3( 0.00, 0.00, 0.00 ),\n");
-            out.writeBytes("          ['color'] = STRING( 'ff800080' ),\n");
-            out.writeBytes("          ['prop'] = STRING( '/env/common/props/markers/M_Blank_prop.bp' ),\n");
-            out.writeBytes("        },\n");
+            out.write("          ['position'] = VECTOR3( ").writeVector3(v.x, v.y, v.z).write("),\n");
+            out.write("          ['orientation'] = VECTOR3( 0.00, 0.00, 0.00 ),\n");
+            out.write("          ['color'] = STRING( 'ff800080' ),\n");
+            out.write("          ['prop'] = STRING( '/env/common/props/markers/M_Blank_prop.bp' ),\n");
+            out.write("        },\n");
         }
         savePathMarkers(map.getAirAIMarkers(), "Air Path Node", "ffffffff", "DefaultAir");
         savePathMarkers(map.getLandAIMarkers(), "Land Path Node", "ff00ff00", "DefaultLand");
@@ -77,113 +86,108 @@ public strictfp class SaveExporter {
         savePathMarkers(map.getNavyAIMarkers(), "Water Path Node", "ff0000ff", "DefaultWater");
         saveAIMarkers(map.getLargeExpansionAIMarkers(), "Large Expansion Area", "ffff0080", "/env/common/props/markers/M_Expansion_prop.bp");
         saveAIMarkers(map.getLargeExpansionAIMarkers(), "Expansion Area", "ff008080", "/env/common/props/markers/M_Expansion_prop.bp");
-        out.writeBytes("      },\n");
-        out.writeBytes("    },\n");
-        out.writeBytes("  },\n");
-        out.writeBytes("  Chains = {},\n");
-        out.writeBytes("  next_queue_id = '1',\n");
-        out.writeBytes("  Orders = {},\n");
-        out.writeBytes("  next_platoon_id = '1',\n");
-        out.writeBytes("  Platoons = {},\n");
-        out.writeBytes("  next_army_id = '1',\n");
-        out.writeBytes("  next_group_id = '1',\n");
-        out.writeBytes("  next_unit_id = '1',\n");
-        out.writeBytes("  Armies = {\n");
+        out.write("      },\n");
+        out.write("    },\n");
+        out.write("  },\n");
+        out.write("  Chains = {},\n");
+        out.write("  next_queue_id = '1',\n");
+        out.write("  Orders = {},\n");
+        out.write("  next_platoon_id = '1',\n");
+        out.write("  Platoons = {},\n");
+        out.write("  next_army_id = '1',\n");
+        out.write("  next_group_id = '1',\n");
+        out.write("  next_unit_id = '1',\n");
+        out.write("  Armies = {\n");
         for (Army army : map.getArmies()) {
             saveArmy(army);
         }
-        out.writeBytes("  },\n");
-        out.writeBytes("}\n");
+        out.write("  },\n");
+        out.write("}\n");
 
         out.flush();
-        out.close();
     }
 
-    private static void savePathMarkers(ArrayList<AIMarker> aiMarkers, String type, String color, String graph) throws IOException {
+    private void savePathMarkers(ArrayList<AIMarker> aiMarkers, String type, String color, String graph) throws IOException {
         for (AIMarker aiMarker : aiMarkers) {
             if (aiMarker.getNeighborCount() > 0) {
-                out.writeBytes(String.format("        ['%s'] = {\n", aiMarker.getId()));
-                out.writeBytes("          ['hint'] = BOOLEAN( true ),\n");
-                out.writeBytes(String.format("          ['type'] = STRING( '%s' ),\n", type));
-                out.writeBytes("          ['adjacentTo'] = STRING( '");
-                aiMarker.getNeighbors().forEach(id -> {
-                    try {
-                        out.writeBytes(" " + id);
-                    } catch (IOException e) {
-                        e.printStackTrace();
-                    }
-                });
-                out.writeBytes(" '),\n");
-                out.writeBytes(String.format("          ['color'] = STRING( '%s' ),\n", color));
-                out.writeBytes(String.format("          ['graph'] = STRING( '%s' ),\n", graph));
-                out.writeBytes("          ['prop'] = STRING( '/env/common/props/markers/M_Path_prop.bp' ),\n");
-                out.writeBytes("          ['orientation'] = VECTOR3( 0, 0, 0 ),\n");
+                out.write("        ['").write(aiMarker.getId()).write("'] = {\n");
+                out.write("          ['hint'] = BOOLEAN( true ),\n");
+                out.write("          ['type'] = STRING( '").write(type).write("' ),\n");
+                out.write("          ['adjacentTo'] = STRING( '");
+                for (String id : aiMarker.getNeighbors()) {
+                    out.write(' ').write(id);
+                }
+                out.write(" '),\n");
+                out.write("          ['color'] = STRING( '").write(color).write("' ),\n");
+                out.write("          ['graph'] = STRING( '").write(graph).write("' ),\n");
+                out.write("          ['prop'] = STRING( '/env/common/props/markers/M_Path_prop.bp' ),\n");
+                out.write("          ['orientation'] = VECTOR3( 0, 0, 0 ),\n");
                 Vector3f v = aiMarker.getPosition();
-                out.writeBytes(String.format("          ['position'] = VECTOR3( %f, %f, %f),\n", v.x, v.y, v.z));
-                out.writeBytes("        },\n");
+                out.write("          ['position'] = VECTOR3( ").writeVector3(v.x, v.y, v.z).write("),\n");
+                out.write("        },\n");
             }
         }
     }
 
-    private static void saveAIMarkers(ArrayList<AIMarker> aiMarkers, String type, String color, String prop) throws IOException {
+    private void saveAIMarkers(ArrayList<AIMarker> aiMarkers, String type, String color, String prop) throws IOException {
         for (AIMarker aiMarker : aiMarkers) {
-            out.writeBytes("        ['" + aiMarker.getId() + "'] = {\n");
-            out.writeBytes("          ['hint'] = BOOLEAN( true ),\n");
-            out.writeBytes("          ['color'] = STRING( '" + color + "' ),\n");
-            out.writeBytes("          ['type'] = STRING( '" + type + "' ),\n");
-            out.writeBytes("          ['prop'] = STRING( '" + prop + "' ),\n");
-            out.writeBytes("          ['orientation'] = VECTOR3( 0, 0, 0 ),\n");
+            out.write("        ['").write(aiMarker.getId()).write("'] = {\n");
+            out.write("          ['hint'] = BOOLEAN( true ),\n");
+            out.write("          ['color'] = STRING( '").write(color).write("' ),\n");
+            out.write("          ['type'] = STRING( '").write(type).write("' ),\n");
+            out.write("          ['prop'] = STRING( '").write(prop).write("' ),\n");
+            out.write("          ['orientation'] = VECTOR3( 0, 0, 0 ),\n");
             Vector3f v = aiMarker.getPosition();
-            out.writeBytes(String.format("          ['position'] = VECTOR3( %f, %f, %f),\n", v.x, v.y, v.z));
-            out.writeBytes("        },\n");
+            out.write("          ['position'] = VECTOR3( ").writeVector3(v.x, v.y, v.z).write("),\n");
+            out.write("        },\n");
         }
     }
 
-    private static void saveArmy(Army army) throws IOException {
-        out.writeBytes(String.format("    ['%s'] = {\n", army.getId()));
-        out.writeBytes("      personality = '',\n");
-        out.writeBytes("      plans = '',\n");
-        out.writeBytes("      color = 0,\n");
-        out.writeBytes("      faction = 0,\n");
-        out.writeBytes("      Economy = {mass = 0, energy = 0},\n");
-        out.writeBytes("      Alliances = {},\n");
-        out.writeBytes("      ['Units'] = GROUP {\n");
-        out.writeBytes("        orders = '',\n");
-        out.writeBytes("        platoon = '',\n");
-        out.writeBytes("        Units = {\n");
+    private void saveArmy(Army army) throws IOException {
+        out.write("    ['").write(army.getId()).write("'] = {\n");
+        out.write("      personality = '',\n");
+        out.write("      plans = '',\n");
+        out.write("      color = 0,\n");
+        out.write("      faction = 0,\n");
+        out.write("      Economy = {mass = 0, energy = 0},\n");
+        out.write("      Alliances = {},\n");
+        out.write("      ['Units'] = GROUP {\n");
+        out.write("        orders = '',\n");
+        out.write("        platoon = '',\n");
+        out.write("        Units = {\n");
         for (Group group : army.getGroups()) {
             saveGroup(group);
         }
-        out.writeBytes("        },\n");
-        out.writeBytes("      },\n");
-        out.writeBytes("      PlatoonBuilders = {\n");
-        out.writeBytes("        next_platoon_builder_id = '0',\n");
-        out.writeBytes("        Builders = {},\n");
-        out.writeBytes("      },\n");
-        out.writeBytes("    },\n");
+        out.write("        },\n");
+        out.write("      },\n");
+        out.write("      PlatoonBuilders = {\n");
+        out.write("        next_platoon_builder_id = '0',\n");
+        out.write("        Builders = {},\n");
+        out.write("      },\n");
+        out.write("    },\n");
     }
 
-    private static void saveGroup(Group group) throws IOException {
-        out.writeBytes(String.format("          ['%s'] = GROUP {\n", group.getId()));
-        out.writeBytes("            orders = '',\n");
-        out.writeBytes("            platoon = '',\n");
-        out.writeBytes("            Units = {\n");
+    private void saveGroup(Group group) throws IOException {
+        out.write("          ['").write(group.getId()).write("'] = GROUP {\n");
+        out.write("            orders = '',\n");
+        out.write("            platoon = '',\n");
+        out.write("            Units = {\n");
         for (Unit unit : group.getUnits()) {
             saveUnit(unit);
         }
-        out.writeBytes("            },\n");
-        out.writeBytes("          },\n");
+        out.write("            },\n");
+        out.write("          },\n");
     }
 
-    private static void saveUnit(Unit unit) throws IOException {
-        out.writeBytes(String.format("              ['%s'] = {\n", unit.getId()));
-        out.writeBytes(String.format("	              type = '%s',\n", unit.getType()));
-        out.writeBytes("			              orders = '',\n");
-        out.writeBytes("			              platoon = '',\n");
+    private void saveUnit(Unit unit) throws IOException {
+        out.write("              ['").write(unit.getId()).write("'] = {\n");
+        out.write("	              type = '").write(unit.getType()).write("',\n");
+        out.write("			              orders = '',\n");
+        out.write("			              platoon = '',\n");
         Vector3f v = unit.getPosition();
-        out.writeBytes(String.format("			              Position = { %f, %f, %f },\n", v.x, v.y, v.z));
+        out.write("			              Position = { ").writeVector3(v.x, v.y, v.z).write(" },\n");
         float rot = unit.getRotation();
-        out.writeBytes(String.format("			              Orientation = { 0, %f, 0 },\n", rot));
-        out.writeBytes("              },\n");
+        out.write("			              Orientation = { 0, ").writeFloat(rot).write(", 0 },\n");
+        out.write("              },\n");
     }
 }
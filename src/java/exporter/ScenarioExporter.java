@@ -7,7 +7,7 @@ import java.nio.file.Path;
 
 public strictfp class ScenarioExporter {
 
-    public static void exportScenario(Path folderPath, String mapName, SCMap map) throws IOException {
+    public static File exportScenario(Path folderPath, String mapName, SCMap map) throws IOException {
         File file = folderPath.resolve(mapName + "_scenario.lua").toFile();
         String mapFolder = folderPath.getFileName().toString();
         boolean status = file.createNewFile();
@@ -55,5 +55,6 @@ public strictfp class ScenarioExporter {
 
         out.flush();
         out.close();
+        return file;
     }
 }
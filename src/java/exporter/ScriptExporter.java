@@ -11,27 +11,31 @@ import java.nio.file.Path;
 
 public strictfp class ScriptExporter {
 
-    private static DataOutputStream out;
-    private static SCMap map;
+    private final DataOutputStream out;
+    private final SCMap map;
 
-    public static void exportScript(Path folderPath, String mapName, SCMap map) throws IOException {
-        ScriptExporter.map = map;
+    private ScriptExporter(DataOutputStream out, SCMap map) {
+        this.out = out;
+        this.map = map;
+    }
+
+    public static File exportScript(Path folderPath, String mapName, SCMap map) throws IOException {
         File file = folderPath.resolve(mapName + "_script.lua").toFile();
         boolean status = file.createNewFile();
-        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
-
-        if (map.isUnexplored()) {
-            writeResourceTables();
-            writeUnexploredScript();
-        } else {
-            writeDefaultScript();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            ScriptExporter scriptExporter = new ScriptExporter(out, map);
+            if (map.isUnexplored()) {
+                scriptExporter.writeResourceTables();
+                scriptExporter.writeUnexploredScript();
+            } else {
+                scriptExporter.writeDefaultScript();
+            }
+            out.flush();
         }
-
-        out.flush();
-        out.close();
+        return file;
     }
 
-    public static void writeDefaultScript() throws IOException {
+    private void writeDefaultScript() throws IOException {
         out.writeBytes("local ScenarioUtils = import('/lua/sim/ScenarioUtilities.lua')\n");
         out.writeBytes("function OnPopulate()\n");
         out.writeBytes("ScenarioUtils.InitializeArmies()\n");
@@ -40,7 +44,7 @@ public strictfp class ScriptExporter {
         out.writeBytes("end");
     }
 
-    public static void writeResourceTables() throws IOException {
+    private void writeResourceTables() throws IOException {
         out.writeBytes("local mexLocations = {");
         for (Mex mex : map.getMexes()) {
             Vector3f v = mex.getPosition();
@@ -61,7 +65,7 @@ public strictfp class ScriptExporter {
         out.writeBytes("}\n");
     }
 
-    public static void writeUnexploredScript() throws IOException {
+    private void writeUnexploredScript() throws IOException {
         int mapSize = map.getSize();
         int decalSize = mapSize * mapSize / 8192;
         double decalDiagonal = StrictMath.sqrt(2 * decalSize / 2f * decalSize / 2f);
@@ -1,12 +1,17 @@
 package generator;
 
 import map.*;
+import util.SpatialGrid;
 import util.Vector2f;
+import util.Vector3f;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.Random;
+import java.util.function.BiPredicate;
+import java.util.stream.IntStream;
 
 import static util.Placement.placeOnHeightmap;
 
@@ -22,6 +27,8 @@ public strictfp class AIMarkerGenerator {
     public void generateAIMarkers(BinaryMask passable, ArrayList<AIMarker> markerArrayList, String nameFormat) {
         LinkedHashSet<Vector2f> coordinates = new LinkedHashSet<>(passable.getSpacedCoordinatesEqualTo(true, 32, 8));
         coordinates.addAll(passable.getDistanceField().getLocalMaximums(8, passable.getSize()).getSpacedCoordinatesEqualTo(true, 16, 4));
+        SpatialGrid<Vector2f> coordinateGrid = new SpatialGrid<>(passable.getSize(), 64);
+        coordinates.forEach(location -> coordinateGrid.add(location, location.x, location.y));
         LinkedHashSet<Vector2f> unusedCoordinates = new LinkedHashSet<>();
         coordinates.forEach(location -> {
             if (!unusedCoordinates.contains(location)) {
@@ -29,12 +36,10 @@ public strictfp class AIMarkerGenerator {
                     unusedCoordinates.add(location);
                     return;
                 }
-                coordinates.forEach(location1 -> {
+                coordinateGrid.forEachCandidate(location.x, location.y, location1 -> {
                     if (location != location1) {
                         if (location.getDistance(location1) < 64) {
-                            LinkedHashSet<Vector2f> lineCoordinates = location.getLine(location1);
-                            boolean connected = !lineCoordinates.removeIf(loc -> !passable.getValueAt(loc));
-                            if (connected) {
+                            if (passable.isLineEqualTo(true, location, location1, .1)) {
                                 unusedCoordinates.add(location1);
                             }
                         }
@@ -44,22 +49,16 @@ public strictfp class AIMarkerGenerator {
         });
         coordinates.removeAll(unusedCoordinates);
         coordinates.forEach(location -> location.add(.5f, .5f));
-        ArrayList<Vector2f> coordinatesArray = new ArrayList<>(coordinates);
-        coordinates.forEach((location) -> {
-            AIMarker aiMarker = new AIMarker(String.format(nameFormat, coordinatesArray.indexOf(location)), location, new LinkedHashSet<>());
+        int coordinateIndex = 0;
+        for (Vector2f location : coordinates) {
+            int locationIndex = coordinateIndex++;
+            AIMarker aiMarker = new AIMarker(String.format(nameFormat, locationIndex), location, new LinkedHashSet<>());
             markerArrayList.add(aiMarker);
             ArrayList<SymmetryPoint> symmetryPoints = passable.getSymmetryPoints(aiMarker.getPosition(), SymmetryType.SPAWN);
-            symmetryPoints.forEach(symmetryPoint -> markerArrayList.add(new AIMarker(String.format(nameFormat + "s%d", coordinatesArray.indexOf(location), symmetryPoints.indexOf(symmetryPoint)), symmetryPoint.getLocation(), new LinkedHashSet<>())));
-        });
-        markerArrayList.forEach(aiMarker -> markerArrayList.forEach(aiMarker1 -> {
-            if (aiMarker != aiMarker1 && aiMarker.getPosition().getXZDistance(aiMarker1.getPosition()) <= 128) {
-                LinkedHashSet<Vector2f> lineCoordinates = aiMarker.getPosition().getXZLine(aiMarker1.getPosition());
-                boolean connected = !lineCoordinates.removeIf(location -> !passable.getValueAt(location));
-                if (connected) {
-                    aiMarker.addNeighbor(aiMarker1.getId());
-                }
-            }
-        }));
+            symmetryPoints.forEach(symmetryPoint -> markerArrayList.add(new AIMarker(String.format(nameFormat + "s%d", locationIndex, symmetryPoints.indexOf(symmetryPoint)), symmetryPoint.getLocation(), new LinkedHashSet<>())));
+        }
+        connectMarkers(markerArrayList, passable.getSize(), 128, true, (aiMarker, aiMarker1) ->
+                passable.isLineEqualTo(true, new Vector2f(aiMarker.getPosition()), new Vector2f(aiMarker1.getPosition()), 1));
     }
 
     public void generateAirAIMarkers() {
@@ -69,31 +68,41 @@ public strictfp class AIMarkerGenerator {
         airCoordinates.forEach((location) -> location.add(.5f, .5f));
         ArrayList<Vector2f> airCoordinatesArray = new ArrayList<>(airCoordinates);
         airCoordinates.forEach((location) -> map.addAirMarker(new AIMarker(String.format("AirPN%d", airCoordinatesArray.indexOf(location)), location, new LinkedHashSet<>())));
-        map.getAirAIMarkers().forEach(aiMarker -> map.getAirAIMarkers().forEach(aiMarker1 -> {
-            if (aiMarker != aiMarker1 && aiMarker.getPosition().getXZDistance(aiMarker1.getPosition()) < airMarkerConnectionDistance) {
-                aiMarker.addNeighbor(aiMarker1.getId());
-            }
-        }));
+        connectMarkers(map.getAirAIMarkers(), map.getSize() + 1, airMarkerConnectionDistance, false, (aiMarker, aiMarker1) -> true);
     }
 
-    public void setMarkerHeights() {
-        for (AIMarker aiMarker : map.getAirAIMarkers()) {
-            aiMarker.setPosition(placeOnHeightmap(map, aiMarker.getPosition()));
-        }
-        for (AIMarker aiMarker : map.getLandAIMarkers()) {
-            aiMarker.setPosition(placeOnHeightmap(map, aiMarker.getPosition()));
-        }
-        for (AIMarker aiMarker : map.getAmphibiousAIMarkers()) {
-            aiMarker.setPosition(placeOnHeightmap(map, aiMarker.getPosition()));
-        }
-        for (AIMarker aiMarker : map.getNavyAIMarkers()) {
-            aiMarker.setPosition(placeOnHeightmap(map, aiMarker.getPosition()));
-        }
-        for (AIMarker aiMarker : map.getLargeExpansionAIMarkers()) {
-            aiMarker.setPosition(placeOnHeightmap(map, aiMarker.getPosition()));
-        }
-        for (AIMarker aiMarker : map.getExpansionAIMarkers()) {
-            aiMarker.setPosition(placeOnHeightmap(map, aiMarker.getPosition()));
+    /**
+     * Adds every marker within range that passes the connection test as a neighbor.
+     * Neighbors are added in list order so the result matches a full pairwise scan.
+     */
+    private static void connectMarkers(ArrayList<AIMarker> markers, float size, float range, boolean inclusive, BiPredicate<AIMarker, AIMarker> connected) {
+        SpatialGrid<Integer> markerGrid = new SpatialGrid<>(size, range);
+        for (int i = 0; i < markers.size(); i++) {
+            Vector3f position = markers.get(i).getPosition();
+            markerGrid.add(i, position.x, position.z);
         }
+        IntStream.range(0, markers.size()).parallel().forEach(i -> {
+            AIMarker aiMarker = markers.get(i);
+            Vector3f position = aiMarker.getPosition();
+            ArrayList<Integer> neighborIndices = new ArrayList<>();
+            markerGrid.forEachCandidate(position.x, position.z, j -> {
+                AIMarker aiMarker1 = markers.get(j);
+                float distance = position.getXZDistance(aiMarker1.getPosition());
+                if (i != j && aiMarker != aiMarker1 && (inclusive ? distance <= range : distance < range) && connected.test(aiMarker, aiMarker1)) {
+                    neighborIndices.add(j);
+                }
+            });
+            Collections.sort(neighborIndices);
+            neighborIndices.forEach(j -> aiMarker.addNeighbor(markers.get(j).getId()));
+        });
+    }
+
+    public void setMarkerHeights() {
+        placeOnHeightmap(map, map.getAirAIMarkers(), AIMarker::getPosition, AIMarker::setPosition);
+        placeOnHeightmap(map, map.getLandAIMarkers(), AIMarker::getPosition, AIMarker::setPosition);
+        placeOnHeightmap(map, map.getAmphibiousAIMarkers(), AIMarker::getPosition, AIMarker::setPosition);
+        placeOnHeightmap(map, map.getNavyAIMarkers(), AIMarker::getPosition, AIMarker::setPosition);
+        placeOnHeightmap(map, map.getLargeExpansionAIMarkers(), AIMarker::getPosition, AIMarker::setPosition);
+        placeOnHeightmap(map, map.getExpansionAIMarkers(), AIMarker::getPosition, AIMarker::setPosition);
     }
 }
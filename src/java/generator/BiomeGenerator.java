@@ -2,6 +2,7 @@ package generator;
 
 import exporter.BiomeExporter;
 import importer.SCMapImporter;
+import importer.SCMapSection;
 import map.SCMap;
 import util.ArgumentParser;
 
@@ -38,7 +39,7 @@ public class BiomeGenerator {
             return;
         }
         File scmapFile = mapFiles[0];
-        SCMap map = SCMapImporter.loadSCMAP(generator.mapPath);
+        SCMap map = SCMapImporter.loadSCMAP(generator.mapPath, SCMapSection.none());
 
         System.out.println("Saving biome to " + generator.folderPath + File.separator + generator.biomeName);
         BiomeExporter.exportBiome(generator.envPath, generator.folderPath, generator.biomeName, map.getBiome());
@@ -109,8 +109,6 @@ public strictfp class DecalGenerator {
     }
 
     public void setDecalHeights() {
-        for (Decal decal : map.getDecals()) {
-            decal.setPosition(placeOnHeightmap(map, decal.getPosition()));
-        }
+        placeOnHeightmap(map, map.getDecals(), Decal::getPosition, Decal::setPosition);
     }
 }
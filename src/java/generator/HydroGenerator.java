@@ -7,6 +7,7 @@ import util.Vector3f;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.Random;
+import java.util.stream.Collectors;
 
 import static util.Placement.placeOnHeightmap;
 
@@ -28,9 +29,7 @@ public strictfp class HydroGenerator {
         spawnable.limitToSymmetryRegion();
         spawnable.fillCenter(64, false);
 
-        for (int i = 0; i < map.getMexCount(); i++) {
-            spawnable.fillCircle(map.getMex(i).getPosition(), 10, false);
-        }
+        spawnable.fillCircles(map.getMexes().stream().map(mex -> new Vector2f(mex.getPosition())).collect(Collectors.toList()), 10, false);
 
         generateBaseHydros(spawnable);
 
@@ -74,8 +73,6 @@ public strictfp class HydroGenerator {
     }
 
     public void setMarkerHeights() {
-        for (Hydro hydro : map.getHydros()) {
-            hydro.setPosition(placeOnHeightmap(map, hydro.getPosition()));
-        }
+        placeOnHeightmap(map, map.getHydros(), Hydro::getPosition, Hydro::setPosition);
     }
 }
@@ -24,6 +24,7 @@ import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static util.ImageUtils.readImage;
 
@@ -53,6 +54,7 @@ public strictfp class MapGenerator {
     public static final float VALLEY_FLOOR = -5f;
     public static final float LAND_HEIGHT = .25f;
     private static final String BLANK_PREVIEW = "/images/generatedMapIcon.png";
+    private static final int MASK_RECORD_CAPACITY = 32;
     public static boolean DEBUG = false;
 
     static {
@@ -68,6 +70,10 @@ public strictfp class MapGenerator {
     private boolean tournamentStyle = false;
     private boolean blind = false;
     private boolean unexplored = false;
+    private DXTEncoder.Quality textureCompression;
+    private Path maskTracePath;
+    private int maskRecordInterval = 1;
+    private boolean generatePathCosts = false;
     private long generationTime;
 
     //read from key value arguments or map name
@@ -141,6 +147,7 @@ public strictfp class MapGenerator {
     private boolean hasCivilians;
     private boolean enemyCivilians;
     private float mexMultiplier = 1f;
+    private final Map<String, Long> stageTimes = new ConcurrentHashMap<>();
 
     public static void main(String[] args) throws IOException {
 
@@ -156,7 +163,14 @@ public strictfp class MapGenerator {
         generator.interpretArguments(args);
 
         System.out.println(generator.mapName);
-        generator.generate();
+        if (generator.maskTracePath != null) {
+            MaskRecorder.start(generator.maskTracePath, MASK_RECORD_CAPACITY, generator.maskRecordInterval);
+        }
+        try {
+            generator.generate();
+        } finally {
+            MaskRecorder.stop();
+        }
         generator.save();
         System.out.println("Saving map to " + Paths.get(generator.pathToFolder).toAbsolutePath() + File.separator + generator.mapName.replace('/', '^'));
         System.out.println("Seed: " + generator.seed);
@@ -228,6 +242,10 @@ public strictfp class MapGenerator {
                     "--tournament-style     optional, set map to tournament style which will remove the preview.png and add time of original generation to map\n" +
                     "--blind                optional, set map to blind style which will apply tournament style and remove in game lobby preview\n" +
                     "--unexplored           optional, set map to unexplore style which will apply tournament and blind style and add unexplored fog of war\n" +
+                    "--texture-compression arg optional, compress the map textures with DXT5 at the given quality (FAST, NORMAL, HIGH)\n" +
+                    "--record-masks arg     optional, record mask snapshots without a gui to the trace file arg\n" +
+                    "--record-interval arg  optional, only record every arg-th mask snapshot\n" +
+                    "--path-costs           optional, precompute the ai path costs between spawns and expansions into <map>_path_costs.lua\n" +
                     "--debug                optional, turn on debugging options");
             System.exit(0);
         }
@@ -240,6 +258,20 @@ public strictfp class MapGenerator {
             pathToFolder = arguments.get("folder-path");
         }
 
+        if (arguments.containsKey("texture-compression") && arguments.get("texture-compression") != null) {
+            textureCompression = DXTEncoder.Quality.valueOf(arguments.get("texture-compression").toUpperCase());
+        }
+
+        if (arguments.containsKey("record-masks") && arguments.get("record-masks") != null) {
+            maskTracePath = Paths.get(arguments.get("record-masks"));
+        }
+
+        if (arguments.containsKey("record-interval") && arguments.get("record-interval") != null) {
+            maskRecordInterval = Integer.parseInt(arguments.get("record-interval"));
+        }
+
+        generatePathCosts = arguments.containsKey("path-costs");
+
         if (arguments.containsKey("map-name") && arguments.get("map-name") != null) {
             mapName = arguments.get("map-name");
             parseMapName();
@@ -565,7 +597,7 @@ public strictfp class MapGenerator {
             FileUtils.deleteRecursiveIfExists(folderPath.resolve(mapName));
 
             long startTime = System.currentTimeMillis();
-            MapExporter.exportMap(folderPath.resolve(mapName), mapName, map, tournamentStyle);
+            MapExporter.exportMap(folderPath.resolve(mapName), mapName, map, tournamentStyle, textureCompression);
             System.out.printf("File export done: %d ms\n", System.currentTimeMillis() - startTime);
 
             startTime = System.currentTimeMillis();
@@ -583,6 +615,7 @@ public strictfp class MapGenerator {
 
     public SCMap generate() throws IOException {
         long startTime = System.currentTimeMillis();
+        stageTimes.clear();
 
         final int spawnSize = 36;
         final int hydroCount = spawnCount >= 4 ? spawnCount + random.nextInt(spawnCount / 4) * 2 : spawnCount;
@@ -593,6 +626,10 @@ public strictfp class MapGenerator {
         map = new SCMap(mapSize, spawnCount, mexCount * spawnCount, hydroCount, biome);
         waterHeight = biome.getWaterSettings().getElevation();
 
+        if (!unexplored) {
+            CompletableFuture.runAsync(UnitGenerator::preloadTemplates);
+        }
+
         SpawnGenerator spawnGenerator = new SpawnGenerator(map, random.nextLong(), spawnSize);
         MexGenerator mexGenerator = new MexGenerator(map, random.nextLong(), mexSpacing);
         HydroGenerator hydroGenerator = new HydroGenerator(map, random.nextLong());
@@ -614,6 +651,7 @@ public strictfp class MapGenerator {
         setupPipeline();
 
         random = null;
+        long pipelineStartTime = System.currentTimeMillis();
         Pipeline.start();
 
         CompletableFuture<Void> aiMarkerFuture = CompletableFuture.runAsync(() -> {
@@ -627,6 +665,7 @@ public strictfp class MapGenerator {
             LandMarkers.join();
             NavyMarkers.join();
             AirMarkers.join();
+            stageTimes.put("generateAIMarkers", System.currentTimeMillis() - sTime);
             if (DEBUG) {
                 System.out.printf("Done: %4d ms, %s, generateAIMarkers\n",
                         System.currentTimeMillis() - sTime,
@@ -640,6 +679,7 @@ public strictfp class MapGenerator {
             long sTime = System.currentTimeMillis();
             map.setTextureMasksLowScaled(accentGroundTexture.getFinalMask(), accentPlateauTexture.getFinalMask(), slopesTexture.getFinalMask(), accentSlopesTexture.getFinalMask());
             map.setTextureMasksHighScaled(steepHillsTexture.getFinalMask(), waterBeachTexture.getFinalMask(), rockTexture.getFinalMask(), accentRockTexture.getFinalMask());
+            stageTimes.put("generateTextures", System.currentTimeMillis() - sTime);
             if (DEBUG) {
                 System.out.printf("Done: %4d ms, %s, generateTextures\n",
                         System.currentTimeMillis() - sTime,
@@ -653,6 +693,7 @@ public strictfp class MapGenerator {
             mexGenerator.generateMexes(resourceMask.getFinalMask(), waterResourceMask.getFinalMask());
             hydroGenerator.generateHydros(resourceMask.getFinalMask().deflate(4));
             generateExclusionMasks();
+            stageTimes.put("generateResources", System.currentTimeMillis() - sTime);
             if (DEBUG) {
                 System.out.printf("Done: %4d ms, %s, generateResources\n",
                         System.currentTimeMillis() - sTime,
@@ -662,6 +703,27 @@ public strictfp class MapGenerator {
 
         resourcesFuture.join();
 
+        CompletableFuture<Void> pathCostFuture = CompletableFuture.runAsync(() -> {
+            if (!generatePathCosts) {
+                return;
+            }
+            Pipeline.await(passable, passableLand, passableWater);
+            long sTime = System.currentTimeMillis();
+            PathCostGenerator pathCostGenerator = new PathCostGenerator(map);
+            CompletableFuture<PathCostTable> amphibiousCosts = CompletableFuture.supplyAsync(() -> pathCostGenerator.generatePathCosts(passable.getFinalMask(), "Amphibious"));
+            CompletableFuture<PathCostTable> landCosts = CompletableFuture.supplyAsync(() -> pathCostGenerator.generatePathCosts(passableLand.getFinalMask(), "Land"));
+            CompletableFuture<PathCostTable> navyCosts = CompletableFuture.supplyAsync(() -> pathCostGenerator.generatePathCosts(passableWater.getFinalMask(), "Navy"));
+            map.addPathCostTable(landCosts.join());
+            map.addPathCostTable(amphibiousCosts.join());
+            map.addPathCostTable(navyCosts.join());
+            stageTimes.put("generatePathCosts", System.currentTimeMillis() - sTime);
+            if (DEBUG) {
+                System.out.printf("Done: %4d ms, %s, generatePathCosts\n",
+                        System.currentTimeMillis() - sTime,
+                        Util.getStackTraceLineInClass(MapGenerator.class));
+            }
+        });
+
         CompletableFuture<Void> propsFuture = CompletableFuture.runAsync(() -> {
             Pipeline.await(treeMask, cliffRockMask, largeRockFieldMask, fieldStoneMask);
             long sTime = System.currentTimeMillis();
@@ -670,6 +732,7 @@ public strictfp class MapGenerator {
             propGenerator.generateProps(largeRockFieldMask.getFinalMask().minus(noProps.copy().inflate(16)), biome.getPropMaterials().getRocks(), .5f, 3.5f);
             propGenerator.generateProps(smallRockFieldMask.getFinalMask().minus(noProps.copy().inflate(16)), biome.getPropMaterials().getRocks(), .5f, 3.5f);
             propGenerator.generateProps(fieldStoneMask.getFinalMask().minus(noProps), biome.getPropMaterials().getBoulders(), 30f);
+            stageTimes.put("generateProps", System.currentTimeMillis() - sTime);
             if (DEBUG) {
                 System.out.printf("Done: %4d ms, %s, generateProps\n",
                         System.currentTimeMillis() - sTime,
@@ -682,6 +745,7 @@ public strictfp class MapGenerator {
             long sTime = System.currentTimeMillis();
             decalGenerator.generateDecals(intDecal.getFinalMask().minus(noDecals), DecalGenerator.INT, 64f, 18f);
             decalGenerator.generateDecals(rockDecal.getFinalMask().minus(noDecals), DecalGenerator.ROCKS, 32f, 8f);
+            stageTimes.put("generateDecals", System.currentTimeMillis() - sTime);
             if (DEBUG) {
                 System.out.printf("Done: %4d ms, %s, generateDecals\n",
                         System.currentTimeMillis() - sTime,
@@ -710,6 +774,7 @@ public strictfp class MapGenerator {
                 unitGenerator.generateUnits(t3LandWreckMask.getFinalMask().minus(noWrecks), UnitGenerator.T3_Land, army17, army17Wreckage, 128f);
                 unitGenerator.generateUnits(t2NavyWreckMask.getFinalMask().minus(noWrecks), UnitGenerator.T2_Navy, army17, army17Wreckage, 128f);
                 unitGenerator.generateUnits(navyFactoryWreckMask.getFinalMask().minus(noWrecks), UnitGenerator.Navy_Factory, army17, army17Wreckage, 256f);
+                stageTimes.put("generateBases", System.currentTimeMillis() - sTime);
                 if (DEBUG) {
                     System.out.printf("Done: %4d ms, %s, generateBases\n",
                             System.currentTimeMillis() - sTime,
@@ -723,6 +788,7 @@ public strictfp class MapGenerator {
             long sTime = System.currentTimeMillis();
             map.setHeightImage(heightmapBase.getFinalMask());
             map.getHeightmap().getRaster().setPixel(0, 0, new int[]{0});
+            stageTimes.put("setHeightmap", System.currentTimeMillis() - sTime);
             if (DEBUG) {
                 System.out.printf("Done: %4d ms, %s, setHeightmap\n",
                         System.currentTimeMillis() - sTime,
@@ -730,6 +796,17 @@ public strictfp class MapGenerator {
             }
         });
 
+        CompletableFuture<Void> normalMapFuture = heightMapFuture.thenRunAsync(() -> {
+            long sTime = System.currentTimeMillis();
+            NormalMapGenerator.generate(map);
+            stageTimes.put("generateNormalMap", System.currentTimeMillis() - sTime);
+            if (DEBUG) {
+                System.out.printf("Done: %4d ms, %s, generateNormalMap\n",
+                        System.currentTimeMillis() - sTime,
+                        Util.getStackTraceLineInClass(MapGenerator.class));
+            }
+        });
+
         propsFuture.join();
         decalsFuture.join();
         aiMarkerFuture.join();
@@ -745,6 +822,7 @@ public strictfp class MapGenerator {
             decalGenerator.setDecalHeights();
             unitGenerator.setUnitHeights();
             aiMarkerGenerator.setMarkerHeights();
+            stageTimes.put("setPlacements", System.currentTimeMillis() - sTime);
             if (DEBUG) {
                 System.out.printf("Done: %4d ms, %s, setPlacements\n",
                         System.currentTimeMillis() - sTime,
@@ -754,7 +832,10 @@ public strictfp class MapGenerator {
 
         textureFuture.join();
         placementFuture.join();
+        normalMapFuture.join();
+        pathCostFuture.join();
         Pipeline.stop();
+        stageTimes.put("pipeline", System.currentTimeMillis() - pipelineStartTime);
         long sTime = System.currentTimeMillis();
         map.setGeneratePreview(!blind);
         map.setUnexplored(unexplored);
@@ -782,13 +863,15 @@ public strictfp class MapGenerator {
             descriptionBuilder.append("Use with the Unexplored Maps Mod for best experience");
         }
         map.setDescription(descriptionBuilder.toString());
+        stageTimes.put("generatePreview", System.currentTimeMillis() - sTime);
         if (DEBUG) {
             System.out.printf("Done: %4d ms, %s, generatePreview\n",
                     System.currentTimeMillis() - sTime,
                     Util.getStackTraceLineInClass(MapGenerator.class));
         }
 
-        System.out.printf("Map generation done: %d ms\n", System.currentTimeMillis() - startTime);
+        stageTimes.put("total", System.currentTimeMillis() - startTime);
+        System.out.printf("Map generation done: %d ms\n", stageTimes.get("total"));
 
         map.addBlank(new BlankMarker(mapName, new Vector2f(0, 0)));
         map.addDecalGroup(new DecalGroup(mapName, new int[0]));
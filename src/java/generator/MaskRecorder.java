@@ -0,0 +1,279 @@
+package generator;
+
+import map.BinaryMask;
+import map.FloatMask;
+import map.Mask;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+
+/**
+ * Headless replacement for the visual debugger. Mask snapshots are copied on the calling thread into a bounded queue
+ * and a background thread writes them to a single trace file, each one as the xor delta against the previous snapshot
+ * of the same mask, deflated. When the queue is full snapshots are dropped instead of stalling the generator.
+ * Only the last {@link #MAX_TRACKED_MASKS} masks keep their previous snapshot, a mask that fell out of that cache is
+ * written as a keyframe again.
+ * Traces are read back with {@link MaskTraceReader} and replayed with {@link MaskTraceViewer}.
+ */
+public strictfp class MaskRecorder {
+
+    static final int MAGIC = 0x4E4D5452;
+    static final int VERSION = 2;
+    static final int MAX_TRACKED_MASKS = 64;
+
+    private static final int MAX_STACK_DEPTH = 64;
+    private static final StackWalker STACK_WALKER = StackWalker.getInstance();
+    private static final Snapshot END = new Snapshot(0, 0, 0, "", "", false, 0, new int[0]);
+
+    private static volatile MaskRecorder recorder;
+
+    private final Path tracePath;
+    private final int sampleInterval;
+    private final BlockingQueue<Snapshot> queue;
+    private final Thread writerThread;
+    private final long startTime = System.nanoTime();
+    private final AtomicInteger callCount = new AtomicInteger();
+    private final AtomicInteger sequence = new AtomicInteger();
+    private final AtomicInteger droppedCount = new AtomicInteger();
+    private final AtomicInteger nextMaskId = new AtomicInteger();
+    private final Map<Mask<?>, Integer> maskIds = Collections.synchronizedMap(new WeakHashMap<>());
+    private int writtenCount;
+    private long writtenBytes;
+    private volatile IOException writeError;
+
+    private MaskRecorder(Path tracePath, int capacity, int sampleInterval) {
+        this.tracePath = tracePath;
+        this.sampleInterval = StrictMath.max(sampleInterval, 1);
+        this.queue = new ArrayBlockingQueue<>(StrictMath.max(capacity, 1));
+        this.writerThread = new Thread(this::writeTrace, "mask-recorder");
+        writerThread.setDaemon(true);
+    }
+
+    public static boolean isRecording() {
+        return recorder != null;
+    }
+
+    public static synchronized void start(Path tracePath, int capacity, int sampleInterval) {
+        if (recorder != null) {
+            throw new IllegalStateException("Mask recorder is already running");
+        }
+        recorder = new MaskRecorder(tracePath, capacity, sampleInterval);
+        recorder.writerThread.start();
+    }
+
+    public static synchronized void stop() throws IOException {
+        MaskRecorder stopped = recorder;
+        if (stopped == null) {
+            return;
+        }
+        recorder = null;
+        try {
+            stopped.queue.put(END);
+            stopped.writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing the mask trace", e);
+        }
+        if (stopped.writeError != null) {
+            throw stopped.writeError;
+        }
+        System.out.printf("Recorded %d mask snapshots (%d KB) to %s, dropped %d\n", stopped.writtenCount,
+                stopped.writtenBytes / 1024, stopped.tracePath, stopped.droppedCount.get());
+    }
+
+    static void record(Mask<?> mask, String name) {
+        MaskRecorder current = recorder;
+        if (current != null) {
+            current.sample(mask, name);
+        }
+    }
+
+    private void sample(Mask<?> mask, String name) {
+        if (callCount.getAndIncrement() % sampleInterval != 0) {
+            return;
+        }
+        // check before copying so a full queue costs nothing but the counter
+        if (queue.remainingCapacity() == 0 || writeError != null) {
+            droppedCount.incrementAndGet();
+            return;
+        }
+        int size = mask.getSize();
+        int[] data;
+        boolean binary;
+        if (mask instanceof BinaryMask) {
+            binary = true;
+            data = getBinaryData((BinaryMask) mask, size);
+        } else if (mask instanceof FloatMask) {
+            binary = false;
+            data = getFloatData((FloatMask) mask, size);
+        } else {
+            return;
+        }
+        Snapshot snapshot = new Snapshot(sequence.getAndIncrement(), System.nanoTime() - startTime,
+                maskIds.computeIfAbsent(mask, key -> nextMaskId.getAndIncrement()), name, getOperation(), binary, size, data);
+        if (!queue.offer(snapshot)) {
+            droppedCount.incrementAndGet();
+        }
+    }
+
+    private static int[] getBinaryData(BinaryMask mask, int size) {
+        int[] data = new int[(size * size + 31) / 32];
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                if (mask.getValueAt(x, y)) {
+                    int index = x * size + y;
+                    data[index >>> 5] |= 1 << (index & 31);
+                }
+            }
+        }
+        return data;
+    }
+
+    private static int[] getFloatData(FloatMask mask, int size) {
+        int[] data = new int[size * size];
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                data[x * size + y] = Float.floatToRawIntBits(mask.getValueAt(x, y));
+            }
+        }
+        return data;
+    }
+
+    /**
+     * Returns the outermost mask method on the stack, which is the operation the generator called.
+     */
+    private static String getOperation() {
+        return STACK_WALKER.walk(frames -> {
+            String operation = null;
+            Iterator<StackWalker.StackFrame> iterator = frames.limit(MAX_STACK_DEPTH).iterator();
+            while (iterator.hasNext()) {
+                StackWalker.StackFrame frame = iterator.next();
+                if (frame.getClassName().startsWith("map.")) {
+                    operation = frame.getMethodName();
+                } else if (operation != null) {
+                    break;
+                }
+            }
+            return operation == null ? "unknown" : operation;
+        });
+    }
+
+    /**
+     * Returns the cache of previous snapshots by mask id. The writer and {@link MaskTraceReader} touch it in the same
+     * order, so both evict the same masks and a delta is only written while the reader still has its base.
+     */
+    static Map<Integer, int[]> getPreviousDataCache() {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, int[]> eldest) {
+                return size() > MAX_TRACKED_MASKS;
+            }
+        };
+    }
+
+    private void writeTrace() {
+        Map<Integer, int[]> previousData = getPreviousDataCache();
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        byte[] buffer = new byte[64 * 1024];
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tracePath)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            while (true) {
+                Snapshot snapshot = queue.take();
+                if (snapshot == END) {
+                    break;
+                }
+                int[] previous = previousData.put(snapshot.maskId, snapshot.data);
+                boolean keyframe = previous == null || previous.length != snapshot.data.length;
+                ByteBuffer bytes = ByteBuffer.allocate(snapshot.data.length * 4);
+                for (int i = 0; i < snapshot.data.length; i++) {
+                    bytes.putInt(keyframe ? snapshot.data[i] : snapshot.data[i] ^ previous[i]);
+                }
+                deflater.reset();
+                deflater.setInput(bytes.array());
+                deflater.finish();
+                ByteBuffer compressed = ByteBuffer.allocate(0);
+                while (!deflater.finished()) {
+                    int length = deflater.deflate(buffer);
+                    compressed = append(compressed, buffer, length);
+                }
+
+                out.writeInt(snapshot.sequence);
+                out.writeLong(snapshot.time);
+                out.writeInt(snapshot.maskId);
+                out.writeUTF(snapshot.name);
+                out.writeUTF(snapshot.operation);
+                out.writeBoolean(snapshot.binary);
+                out.writeInt(snapshot.size);
+                out.writeBoolean(keyframe);
+                out.writeInt(snapshot.data.length);
+                out.writeInt(compressed.position());
+                out.write(compressed.array(), 0, compressed.position());
+                writtenCount++;
+                writtenBytes += compressed.position();
+            }
+        } catch (IOException e) {
+            writeError = e;
+            discardUntilEnd();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private void discardUntilEnd() {
+        try {
+            while (queue.take() != END) {
+                droppedCount.incrementAndGet();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ByteBuffer append(ByteBuffer target, byte[] bytes, int length) {
+        if (target.remaining() < length) {
+            ByteBuffer larger = ByteBuffer.allocate(StrictMath.max(target.capacity() * 2, target.position() + length));
+            target.flip();
+            larger.put(target);
+            target = larger;
+        }
+        return target.put(bytes, 0, length);
+    }
+
+    private static class Snapshot {
+        private final int sequence;
+        private final long time;
+        private final int maskId;
+        private final String name;
+        private final String operation;
+        private final boolean binary;
+        private final int size;
+        private final int[] data;
+
+        private Snapshot(int sequence, long time, int maskId, String name, String operation, boolean binary, int size, int[] data) {
+            this.sequence = sequence;
+            this.time = time;
+            this.maskId = maskId;
+            this.name = name;
+            this.operation = operation;
+            this.binary = binary;
+            this.size = size;
+            this.data = data;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package generator;
+
+import lombok.Value;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads a trace written by {@link MaskRecorder} and undoes the delta encoding, so every frame holds the full mask.
+ */
+public strictfp class MaskTraceReader implements Closeable {
+
+    private final DataInputStream in;
+    private final Map<Integer, int[]> previousData = MaskRecorder.getPreviousDataCache();
+    private final Inflater inflater = new Inflater();
+
+    public MaskTraceReader(Path tracePath) throws IOException {
+        in = new DataInputStream(new BufferedInputStream(Files.newInputStream(tracePath)));
+        if (in.readInt() != MaskRecorder.MAGIC) {
+            in.close();
+            throw new IOException("Not a mask trace: " + tracePath);
+        }
+        int version = in.readInt();
+        if (version != MaskRecorder.VERSION) {
+            in.close();
+            throw new IOException(String.format("Unsupported mask trace version %d", version));
+        }
+    }
+
+    /**
+     * Returns the next frame, or null at the end of the trace.
+     */
+    public Frame next() throws IOException {
+        int sequence;
+        try {
+            sequence = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        long time = in.readLong();
+        int maskId = in.readInt();
+        String name = in.readUTF();
+        String operation = in.readUTF();
+        boolean binary = in.readBoolean();
+        int size = in.readInt();
+        boolean keyframe = in.readBoolean();
+        int length = in.readInt();
+        byte[] compressed = new byte[in.readInt()];
+        in.readFully(compressed);
+
+        byte[] bytes = new byte[length * 4];
+        inflater.reset();
+        inflater.setInput(compressed);
+        try {
+            int offset = 0;
+            while (offset < bytes.length && !inflater.finished()) {
+                offset += inflater.inflate(bytes, offset, bytes.length - offset);
+            }
+            if (offset != bytes.length) {
+                throw new IOException(String.format("Truncated mask data in frame %d", sequence));
+            }
+        } catch (DataFormatException e) {
+            throw new IOException(String.format("Corrupt mask data in frame %d", sequence), e);
+        }
+        int[] data = new int[length];
+        ByteBuffer.wrap(bytes).asIntBuffer().get(data);
+        int[] previous = previousData.get(maskId);
+        if (!keyframe) {
+            if (previous == null || previous.length != length) {
+                throw new IOException(String.format("Frame %d is a delta without a matching previous frame", sequence));
+            }
+            for (int i = 0; i < length; i++) {
+                data[i] ^= previous[i];
+            }
+        }
+        previousData.put(maskId, data);
+        return new Frame(sequence, time, name, operation, binary, size, data);
+    }
+
+    @Override
+    public void close() throws IOException {
+        inflater.end();
+        in.close();
+    }
+
+    @Value
+    public static class Frame {
+        int sequence;
+        long time;
+        String name;
+        String operation;
+        boolean binary;
+        int size;
+        int[] data;
+
+        public float getValueAt(int x, int y) {
+            int index = x * size + y;
+            if (binary) {
+                return (data[index >>> 5] >>> (index & 31) & 1) != 0 ? 1f : 0f;
+            }
+            return Float.intBitsToFloat(data[index]);
+        }
+    }
+}
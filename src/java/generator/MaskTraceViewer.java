@@ -0,0 +1,53 @@
+package generator;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+/**
+ * Replays a trace written by {@link MaskRecorder} into the visual debugger gui.
+ * With --list the frames are only printed, which also works without a display.
+ */
+public strictfp class MaskTraceViewer {
+
+    public static void main(String[] args) throws IOException {
+
+        Locale.setDefault(Locale.US);
+        if (args.length == 0) {
+            System.out.println("Usage: viewer [tracePath] (--list) (maskName)");
+            System.exit(1);
+        }
+        Path tracePath = Paths.get(args[0]);
+        boolean listOnly = false;
+        String maskName = null;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--list")) {
+                listOnly = true;
+            } else {
+                maskName = args[i];
+            }
+        }
+
+        if (!listOnly) {
+            VisualDebugger.ENABLED = true;
+            VisualDebugger.createGUI();
+        }
+        int frameCount = 0;
+        try (MaskTraceReader reader = new MaskTraceReader(tracePath)) {
+            MaskTraceReader.Frame frame;
+            while ((frame = reader.next()) != null) {
+                if (maskName != null && !frame.getName().equals(maskName)) {
+                    continue;
+                }
+                frameCount++;
+                if (listOnly) {
+                    System.out.printf("%d %.3f ms %s %s %d\n", frame.getSequence(), frame.getTime() / 1e6, frame.getName(), frame.getOperation(), frame.getSize());
+                } else {
+                    VisualDebugger.visualizeFrame(frame);
+                }
+            }
+        }
+        System.out.printf("Replayed %d frames from %s\n", frameCount, tracePath);
+    }
+}
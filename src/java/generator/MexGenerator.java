@@ -1,12 +1,17 @@
 package generator;
 
 import map.*;
+import util.SummedAreaTable;
 import util.Vector2f;
 import util.Vector3f;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static util.Placement.placeOnHeightmap;
 
@@ -30,18 +35,14 @@ public strictfp class MexGenerator {
         int previousMexCount;
         generateBaseMexes(spawnable);
         int numMexesLeft = (map.getMexCountInit() - map.getMexCount()) / numSymPoints;
-        for (Spawn spawn : map.getSpawns()) {
-            spawnable.fillCircle(spawn.getPosition(), 24, false);
-        }
+        spawnable.fillCircles(map.getSpawns().stream().map(spawn -> new Vector2f(spawn.getPosition())).collect(Collectors.toList()), 24, false);
 
         previousMexCount = map.getMexCount();
         if (numMexesLeft > 8 && numMexesLeft > map.getSpawnCount()) {
             int possibleExpMexCount = (random.nextInt(numMexesLeft / 2) + numMexesLeft / 2);
             generateMexExpansions(spawnable, possibleExpMexCount);
 
-            for (Mex mex : map.getMexes().subList(previousMexCount, map.getMexCount())) {
-                spawnable.fillCircle(mex.getPosition(), mexSpacing, false);
-            }
+            spawnable.fillCircles(getMexPositions(previousMexCount, map.getMexCount()), mexSpacing, false);
             numMexesLeft = map.getMexCountInit() - map.getMexCount();
             previousMexCount = map.getMexCount();
         }
@@ -51,17 +52,13 @@ public strictfp class MexGenerator {
             BinaryMask playerSpawnable = new BinaryMask(spawnable.getSize(), 0L, spawnable.getSymmetrySettings());
             playerSpawnable.fillCircle(map.getSpawn(i).getPosition(), map.getSize(), true).intersect(spawnable);
             generateIndividualMexes(playerSpawnable, numPlayerMexes);
-            for (Mex mex : map.getMexes().subList(previousMexCount, map.getMexCount())) {
-                spawnable.fillCircle(mex.getPosition(), mexSpacing, false);
-            }
+            spawnable.fillCircles(getMexPositions(previousMexCount, map.getMexCount()), mexSpacing, false);
             previousMexCount = map.getMexCount();
         }
 
         numMexesLeft = (map.getMexCountInit() - map.getMexCount()) / numSymPoints;
         generateIndividualMexes(spawnable, numMexesLeft);
-        for (Mex mex : map.getMexes().subList(previousMexCount, map.getMexCount())) {
-            spawnable.fillCircle(mex.getPosition(), mexSpacing, false);
-        }
+        spawnable.fillCircles(getMexPositions(previousMexCount, map.getMexCount()), mexSpacing, false);
         numMexesLeft = (map.getMexCountInit() - map.getMexCount()) / numSymPoints;
 
         generateIndividualMexes(spawnableWater, StrictMath.min(numMexesLeft, 10));
@@ -95,21 +92,18 @@ public strictfp class MexGenerator {
         expMexCount = StrictMath.min((random.nextInt(3) + 2), expMexCountLeft);
         int expSpacing = map.getSize() / 8 * expMexCount / 2;
 
-        LinkedList<Vector2f> expansionLocations = expansionSpawnable.getRandomCoordinates(expSpacing);
+        ArrayList<Vector2f> expansionLocations = new ArrayList<>(expansionSpawnable.getRandomCoordinates(expSpacing));
+        ArrayList<Boolean> expansionValidity = getMexExpValidity(expansionLocations, expSize, .5f, spawnable);
 
         while (expMexCountLeft > expMexCount) {
-            if (expansionLocations.size() == 0) {
-                break;
-            }
-
-            expLocation = expansionLocations.remove(random.nextInt(expansionLocations.size()));
-
-            while (!isMexExpValid(expLocation, expSize, .5f, spawnable)) {
-                if (expansionLocations.size() == 0) {
-                    expLocation = null;
+            expLocation = null;
+            while (expansionLocations.size() > 0) {
+                int index = random.nextInt(expansionLocations.size());
+                Vector2f location = expansionLocations.remove(index);
+                if (expansionValidity.remove(index)) {
+                    expLocation = location;
                     break;
                 }
-                expLocation = expansionLocations.remove(random.nextInt(expansionLocations.size()));
             }
 
             if (expLocation == null) {
@@ -133,11 +127,14 @@ public strictfp class MexGenerator {
             }
 
             generateIndividualMexes(expansion, expMexCount, expMexSpacing);
-            spawnable.fillCircle(expLocation, mexSpacing * 2f * expMexCount / 4f, false);
             ArrayList<SymmetryPoint> symmetryPoints = spawnable.getSymmetryPoints(expLocation, SymmetryType.SPAWN);
             symmetryPoints.forEach(symmetryPoint -> symmetryPoint.getLocation().roundToNearestHalfPoint());
-            symmetryPoints.forEach(symmetryPoint -> spawnable.fillCircle(symmetryPoint.getLocation(), mexSpacing * 2f * expMexCount / 4f, false));
+            ArrayList<Vector2f> expansionCenters = new ArrayList<>();
+            expansionCenters.add(expLocation);
+            symmetryPoints.forEach(symmetryPoint -> expansionCenters.add(symmetryPoint.getLocation()));
+            spawnable.fillCircles(expansionCenters, mexSpacing * 2f * expMexCount / 4f, false);
             expMexCountLeft -= expMexCount;
+            expansionValidity = getMexExpValidity(expansionLocations, expSize, .5f, spawnable);
         }
     }
 
@@ -157,29 +154,28 @@ public strictfp class MexGenerator {
         });
     }
 
-    private boolean isMexExpValid(Vector2f location, float size, float density, BinaryMask spawnable) {
-        boolean valid = true;
-        float count = 0;
-
-        for (int dx = 0; dx < size; dx++) {
-            for (int dy = 0; dy < size; dy++) {
-                Vector2f loc = new Vector2f(location).add(dx - size / 2, dy - size / 2);
-                if (spawnable.inBounds(loc)) {
-                    if (spawnable.getValueAt(loc)) {
-                        count++;
-                    }
-                }
-            }
-        }
-        if (count / (size * size) < density) {
-            valid = false;
-        }
-        return valid;
+    /**
+     * Checks all candidates against the mask at once. Locations are integer pixel coordinates
+     * and the tested window spans size pixels starting size / 2 before the location.
+     */
+    private ArrayList<Boolean> getMexExpValidity(ArrayList<Vector2f> locations, int size, float density, BinaryMask spawnable) {
+        SummedAreaTable spawnableCounts = new SummedAreaTable(spawnable);
+        Boolean[] validity = new Boolean[locations.size()];
+        IntStream.range(0, locations.size()).parallel().forEach(i -> {
+            Vector2f location = locations.get(i);
+            int startX = (int) StrictMath.floor(location.x - size / 2f);
+            int startY = (int) StrictMath.floor(location.y - size / 2f);
+            float count = spawnableCounts.getCount(startX, startY, startX + size, startY + size);
+            validity[i] = count / (size * size) >= density;
+        });
+        return new ArrayList<>(Arrays.asList(validity));
     }
 
     public void setMarkerHeights() {
-        for (int i = 0; i < map.getMexCount(); i++) {
-            map.getMex(i).setPosition(placeOnHeightmap(map, map.getMex(i).getPosition()));
-        }
+        placeOnHeightmap(map, map.getMexes(), Mex::getPosition, Mex::setPosition);
+    }
+
+    private List<Vector2f> getMexPositions(int start, int end) {
+        return map.getMexes().subList(start, end).stream().map(mex -> new Vector2f(mex.getPosition())).collect(Collectors.toList());
     }
 }
@@ -0,0 +1,77 @@
+package generator;
+
+import map.Heightfield;
+import map.SCMap;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.stream.IntStream;
+
+public strictfp class NormalMapGenerator {
+
+    private static final int TILE_SIZE = 64;
+
+    /**
+     * Fills the map's normal map from its heightmap using a Sobel kernel.
+     * Normals are packed the way the terrain shader samples them: x in alpha, z in green and y in red and blue.
+     */
+    public static void generate(SCMap map) {
+        BufferedImage normalMap = map.getNormalMap();
+        int width = normalMap.getWidth();
+        int height = normalMap.getHeight();
+        int[] pixels = new int[width * height];
+        Heightfield heightfield = map.getHeightfield();
+        int tilesX = (width + TILE_SIZE - 1) / TILE_SIZE;
+        int tilesY = (height + TILE_SIZE - 1) / TILE_SIZE;
+
+        IntStream.range(0, tilesX * tilesY).parallel().forEach(tile -> {
+            int startX = (tile % tilesX) * TILE_SIZE;
+            int startY = (tile / tilesX) * TILE_SIZE;
+            int endX = StrictMath.min(startX + TILE_SIZE, width);
+            int endY = StrictMath.min(startY + TILE_SIZE, height);
+            for (int y = startY; y < endY; y++) {
+                for (int x = startX; x < endX; x++) {
+                    pixels[y * width + x] = getNormal(heightfield, x, y);
+                }
+            }
+        });
+
+        if (normalMap.getType() == BufferedImage.TYPE_INT_ARGB && normalMap.getRaster().getParent() == null) {
+            System.arraycopy(pixels, 0, ((DataBufferInt) normalMap.getRaster().getDataBuffer()).getData(), 0, pixels.length);
+        } else {
+            normalMap.setRGB(0, 0, width, height, pixels, 0, width);
+        }
+    }
+
+    static int getNormal(Heightfield heightfield, int x, int y) {
+        int maxX = heightfield.getWidth() - 1;
+        int maxY = heightfield.getHeight() - 1;
+        int left = StrictMath.max(x - 1, 0);
+        int right = StrictMath.min(x + 1, maxX);
+        int up = StrictMath.max(y - 1, 0);
+        int down = StrictMath.min(y + 1, maxY);
+        x = StrictMath.min(x, maxX);
+        y = StrictMath.min(y, maxY);
+
+        float topLeft = heightfield.getSample(left, up);
+        float top = heightfield.getSample(x, up);
+        float topRight = heightfield.getSample(right, up);
+        float midLeft = heightfield.getSample(left, y);
+        float midRight = heightfield.getSample(right, y);
+        float bottomLeft = heightfield.getSample(left, down);
+        float bottom = heightfield.getSample(x, down);
+        float bottomRight = heightfield.getSample(right, down);
+
+        float dx = ((topRight + 2 * midRight + bottomRight) - (topLeft + 2 * midLeft + bottomLeft)) / 8f;
+        float dz = ((bottomLeft + 2 * bottom + bottomRight) - (topLeft + 2 * top + topRight)) / 8f;
+        float length = (float) StrictMath.sqrt(dx * dx + 1 + dz * dz);
+        int normalX = toByte(-dx / length);
+        int normalY = toByte(1 / length);
+        int normalZ = toByte(-dz / length);
+        return normalX << 24 | normalY << 16 | normalZ << 8 | normalY;
+    }
+
+    private static int toByte(float value) {
+        return StrictMath.max(StrictMath.min(StrictMath.round((value * .5f + .5f) * 255), 255), 0);
+    }
+}
@@ -0,0 +1,56 @@
+package generator;
+
+import map.*;
+import util.HierarchicalPathfinder;
+import util.Vector2f;
+
+import java.util.ArrayList;
+import java.util.stream.IntStream;
+
+public strictfp class PathCostGenerator {
+
+    private static final int CLUSTER_SIZE = 32;
+
+    private final SCMap map;
+
+    public PathCostGenerator(SCMap map) {
+        this.map = map;
+    }
+
+    /**
+     * Computes spawn to spawn and spawn to expansion path costs over the passable area.
+     */
+    public PathCostTable generatePathCosts(BinaryMask passable, String layer) {
+        HierarchicalPathfinder pathfinder = new HierarchicalPathfinder(passable, CLUSTER_SIZE);
+        ArrayList<String> sourceIds = new ArrayList<>();
+        ArrayList<Vector2f> sources = new ArrayList<>();
+        for (Spawn spawn : map.getSpawns()) {
+            sourceIds.add(spawn.getId());
+            sources.add(new Vector2f(spawn.getPosition()));
+        }
+        ArrayList<String> targetIds = new ArrayList<>(sourceIds);
+        ArrayList<Vector2f> targets = new ArrayList<>(sources);
+        ArrayList<AIMarker> expansionMarkers = new ArrayList<>(map.getExpansionAIMarkers());
+        expansionMarkers.addAll(map.getLargeExpansionAIMarkers());
+        for (AIMarker expansionMarker : expansionMarkers) {
+            targetIds.add(expansionMarker.getId());
+            targets.add(new Vector2f(expansionMarker.getPosition()));
+        }
+
+        float[][] costs = new float[sources.size()][targets.size()];
+        IntStream.range(0, sources.size() * targets.size()).parallel().forEach(i -> {
+            int source = i / targets.size();
+            int target = i % targets.size();
+            if (target < sources.size() && target < source) {
+                return;
+            }
+            costs[source][target] = pathfinder.getPathCost(sources.get(source), targets.get(target));
+        });
+        for (int source = 0; source < sources.size(); source++) {
+            for (int target = 0; target < source; target++) {
+                costs[source][target] = costs[target][source];
+            }
+        }
+        return new PathCostTable(layer, sourceIds, targetIds, costs);
+    }
+}
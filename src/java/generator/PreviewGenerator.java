@@ -5,9 +5,9 @@ import util.serialized.LightingSettings;
 import util.serialized.WaterSettings;
 
 import java.awt.*;
-import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.util.stream.IntStream;
 
 import static util.ImageUtils.readImage;
 import static util.ImageUtils.scaleImage;
@@ -18,25 +18,110 @@ public strictfp class PreviewGenerator {
     private static final String HYDRO_IMAGE = "/images/map_markers/hydro.png";
     private static final String ARMY_IMAGE = "/images/map_markers/army.png";
 
+    private static final int PREVIEW_SIZE = 256;
+    private static final float AMBIENT_COEFFICIENT = .5f;
+    private static final float LAND_DIFFUSE_COEFFICIENT = .5f;
+    private static final float LAND_SPECULAR_COEFFICIENT = .5f;
+    private static final float LAND_SHININESS = 1f;
+    private static final float WATER_DIFFUSE_COEFFICIENT = .25f;
+    private static final float WATER_SPECULAR_COEFFICIENT = .25f;
+    private static final float WATER_SHININESS = 1f;
+    private static final Color SHALLOW_COLOR = new Color(134, 233, 233);
+    private static final Color ABYSS_COLOR = new Color(35, 49, 162);
+
     public static void generate(BufferedImage image, SCMap map) {
-        Graphics2D graphics = image.createGraphics();
+        int width = StrictMath.min(image.getWidth(), PREVIEW_SIZE);
+        int height = StrictMath.min(image.getHeight(), PREVIEW_SIZE);
+        int[] heights = getScaledPixels(map.getHeightmap());
+        int[] textureLow = getScaledPixels(map.getTextureMasksLow());
+        int[] textureHigh = getScaledPixels(map.getTextureMasksHigh());
+        int[] pixels = image.getRGB(0, 0, width, height, null, 0, width);
+
         TerrainMaterials materials = map.getBiome().getTerrainMaterials();
+        int layerCount = 0;
+        int[] layerIndices = new int[TerrainMaterials.TERRAIN_NORMAL_COUNT];
         for (int i = 0; i < TerrainMaterials.TERRAIN_NORMAL_COUNT; i++) {
             if (!materials.getTexturePaths()[i].isEmpty()) {
-                BufferedImage layer = new BufferedImage(256, 256, BufferedImage.TYPE_INT_ARGB);
-                Graphics2D layerGraphics = layer.createGraphics();
-                layerGraphics.setColor(materials.getPreviewColors()[i]);
-                layerGraphics.fillRect(0, 0, 256, 256);
-                BufferedImage shadedLayer = getShadedImage(layer, map, i, true);
-                TexturePaint layerPaint = new TexturePaint(shadedLayer, new Rectangle2D.Float(0, 0, 256, 256));
-                graphics.setPaint(layerPaint);
-                graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+                layerIndices[layerCount++] = i;
             }
         }
-        BufferedImage waterLayer = getWaterLayer(map);
-        TexturePaint layerPaint = new TexturePaint(waterLayer, new Rectangle2D.Float(0, 0, 256, 256));
-        graphics.setPaint(layerPaint);
-        graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+        int[][] layerColors = new int[layerCount][];
+        for (int i = 0; i < layerCount; i++) {
+            Color previewColor = materials.getPreviewColors()[layerIndices[i]];
+            layerColors[i] = new int[]{previewColor.getRed(), previewColor.getGreen(), previewColor.getBlue()};
+        }
+
+        LightingSettings lightingSettings = map.getBiome().getLightingSettings();
+        WaterSettings waterSettings = map.getBiome().getWaterSettings();
+        float heightMapScale = map.getHeightMapScale();
+        float azimuth = lightingSettings.getSunDirection().getAzimuth() + 90f;
+        float elevation = lightingSettings.getSunDirection().getElevation();
+        int xOffset = (int) StrictMath.round(StrictMath.sin(StrictMath.toRadians(azimuth)));
+        int yOffset = (int) StrictMath.round(StrictMath.cos(StrictMath.toRadians(azimuth)));
+        float offsetLength = (float) StrictMath.sqrt(xOffset * xOffset + yOffset * yOffset);
+        float[] sunColor = {lightingSettings.getSunColor().x, lightingSettings.getSunColor().y, lightingSettings.getSunColor().z};
+        float[] sunAmbience = {lightingSettings.getSunAmbience().x, lightingSettings.getSunAmbience().y, lightingSettings.getSunAmbience().z};
+
+        float waterElevation = waterSettings.getElevation();
+        float abyssElevation = waterSettings.getElevationAbyss();
+        float waterDiffuseTerm = (float) (StrictMath.max(StrictMath.cos(StrictMath.toRadians(elevation)) * WATER_DIFFUSE_COEFFICIENT, 0));
+        float waterSpecularTerm = (float) (StrictMath.max(StrictMath.pow(StrictMath.cos(StrictMath.toRadians(180 - elevation)), WATER_SHININESS) * WATER_SPECULAR_COEFFICIENT, 0));
+        float waterLight = AMBIENT_COEFFICIENT + waterDiffuseTerm + waterSpecularTerm;
+        float[] waterColor = {lightingSettings.getSunColor().x + waterSettings.getSurfaceColor().x,
+                lightingSettings.getSunColor().y + waterSettings.getSurfaceColor().y,
+                lightingSettings.getSunColor().z + waterSettings.getSurfaceColor().z};
+
+        int finalLayerCount = layerCount;
+        IntStream.range(0, height).parallel().forEach(y -> {
+            int[] rgba = new int[4];
+            for (int x = 0; x < width; x++) {
+                int index = y * PREVIEW_SIZE + x;
+                int pixel = pixels[y * width + x];
+                boolean shaded = x - xOffset >= 0 && x - xOffset < PREVIEW_SIZE && y - yOffset >= 0 && y - yOffset < PREVIEW_SIZE;
+                float light = 0;
+                if (shaded) {
+                    float slope = (heights[index] - heights[(y - yOffset) * PREVIEW_SIZE + x - xOffset]) * heightMapScale;
+                    float slopeAngle = (float) (180f - StrictMath.toDegrees(StrictMath.atan2(slope, offsetLength)));
+                    float normalAngle = slopeAngle - 90;
+                    float reflectedAngle = normalAngle * 2 - elevation;
+                    float diffuseTerm = (float) (StrictMath.max(StrictMath.cos(StrictMath.toRadians(normalAngle - elevation)) * LAND_DIFFUSE_COEFFICIENT, 0));
+                    float specularTerm = (float) (StrictMath.max(StrictMath.pow(StrictMath.cos(StrictMath.toRadians(90 - reflectedAngle)), LAND_SHININESS) * LAND_SPECULAR_COEFFICIENT, 0));
+                    light = AMBIENT_COEFFICIENT + diffuseTerm + specularTerm;
+                }
+
+                for (int i = 0; i < finalLayerCount; i++) {
+                    int layerIndex = layerIndices[i];
+                    int[] layerColor = layerColors[i];
+                    for (int c = 0; c < 3; c++) {
+                        int channel = layerColor[c];
+                        if (shaded) {
+                            channel = (int) (channel * (sunColor[c] * light) + sunAmbience[c]);
+                        }
+                        rgba[c] = StrictMath.max(StrictMath.min(channel, 255), 0);
+                    }
+                    if (layerIndex == 0) {
+                        rgba[3] = 255;
+                    } else {
+                        int maskAlpha = layerIndex < 5 ? textureLow[index * 4 + layerIndex - 1] : textureHigh[index * 4 + layerIndex - 5];
+                        rgba[3] = StrictMath.max(StrictMath.min((int) ((maskAlpha - 128) / 127f * 255f), 255), 0);
+                    }
+                    pixel = blend(pixel, rgba);
+                }
+
+                float mapElevation = heights[index] * heightMapScale;
+                float weight = StrictMath.min(StrictMath.max((waterElevation - mapElevation) / (waterElevation - abyssElevation), 0), 1);
+                rgba[0] = (int) (SHALLOW_COLOR.getRed() * (1 - weight) + ABYSS_COLOR.getRed() * weight);
+                rgba[1] = (int) (SHALLOW_COLOR.getGreen() * (1 - weight) + ABYSS_COLOR.getGreen() * weight);
+                rgba[2] = (int) (SHALLOW_COLOR.getBlue() * (1 - weight) + ABYSS_COLOR.getBlue() * weight);
+                for (int c = 0; c < 3; c++) {
+                    rgba[c] *= waterColor[c] * waterLight;
+                    rgba[c] = StrictMath.max(StrictMath.min(255, rgba[c]), 0);
+                }
+                rgba[3] = (int) StrictMath.min(255 * weight, 255);
+                pixels[y * width + x] = blend(pixel, rgba);
+            }
+        });
+        image.setRGB(0, 0, width, height, pixels, 0, width);
     }
 
     public static BufferedImage addMarkers(BufferedImage image, SCMap map) throws IOException {
@@ -74,130 +159,25 @@ public strictfp class PreviewGenerator {
         return image;
     }
 
-    static BufferedImage getShadedImage(BufferedImage image, SCMap map, int layerIndex, boolean useAlpha) {
-        LightingSettings lightingSettings = map.getBiome().getLightingSettings();
-        BufferedImage heightMap = map.getHeightmap();
-        BufferedImage heightMapScaled = scaleImage(heightMap, 256, 256);
-
-        BufferedImage textureLowMap = map.getTextureMasksLow();
-        BufferedImage textureLowScaled = scaleImage(textureLowMap, 256, 256);
-
-        BufferedImage textureHighMap = map.getTextureMasksHigh();
-        BufferedImage textureHighScaled = scaleImage(textureHighMap, 256, 256);
-
-        float ambientCoefficient = .5f;
-        float landDiffuseCoefficient = .5f;
-        float landSpecularCoefficient = .5f;
-        float landShininess = 1f;
-        float azimuth = lightingSettings.getSunDirection().getAzimuth() + 90f;
-        float elevation = lightingSettings.getSunDirection().getElevation();
-        int imageHeight = heightMapScaled.getHeight();
-        int imageWidth = heightMapScaled.getWidth();
-        int xOffset = (int) StrictMath.round(StrictMath.sin(StrictMath.toRadians(azimuth)));
-        int yOffset = (int) StrictMath.round(StrictMath.cos(StrictMath.toRadians(azimuth)));
-
-        int[] textureAlphas = new int[4];
-        int[] origRGBA = new int[4];
-        int[] newRGBA = new int[4];
-        int relativeLayerIndex;
-
-        for (int y = 0; y < image.getHeight(); y++) {
-            for (int x = 0; x < image.getWidth(); x++) {
-                if (layerIndex < 5) {
-                    textureLowScaled.getRaster().getPixel(x, y, textureAlphas);
-                    relativeLayerIndex = layerIndex;
-                } else {
-                    textureHighScaled.getRaster().getPixel(x, y, textureAlphas);
-                    relativeLayerIndex = layerIndex - 4;
-                }
-                image.getRaster().getPixel(x, y, origRGBA);
-                if (x - xOffset >= 0
-                        && x - xOffset < imageWidth
-                        && y - yOffset >= 0
-                        && y - yOffset < imageHeight) {
-
-                    int[] heightArray1 = new int[1];
-                    int[] heightArray2 = new int[1];
-
-                    heightMapScaled.getRaster().getPixel(x, y, heightArray1);
-                    heightMapScaled.getRaster().getPixel(x - xOffset, y - yOffset, heightArray2);
-
-                    float slope = (heightArray1[0] - heightArray2[0]) * map.getHeightMapScale();
-                    float slopeAngle = (float) (180f - StrictMath.toDegrees(StrictMath.atan2(slope, StrictMath.sqrt(xOffset * xOffset + yOffset * yOffset))));
-                    float normalAngle = slopeAngle - 90;
-                    float reflectedAngle = normalAngle * 2 - elevation;
-                    float diffuseTerm = (float) (StrictMath.max(StrictMath.cos(StrictMath.toRadians(normalAngle - elevation)) * landDiffuseCoefficient, 0));
-                    float specularTerm = (float) (StrictMath.max(StrictMath.pow(StrictMath.cos(StrictMath.toRadians(90 - reflectedAngle)), landShininess) * landSpecularCoefficient, 0));
-
-                    newRGBA[0] = (int) (origRGBA[0] * (lightingSettings.getSunColor().x * (ambientCoefficient + diffuseTerm + specularTerm)) + lightingSettings.getSunAmbience().x);
-                    newRGBA[1] = (int) (origRGBA[1] * (lightingSettings.getSunColor().y * (ambientCoefficient + diffuseTerm + specularTerm)) + lightingSettings.getSunAmbience().y);
-                    newRGBA[2] = (int) (origRGBA[2] * (lightingSettings.getSunColor().z * (ambientCoefficient + diffuseTerm + specularTerm)) + lightingSettings.getSunAmbience().z);
-                } else {
-                    newRGBA = origRGBA.clone();
-                }
-
-                newRGBA[0] = StrictMath.max(StrictMath.min(newRGBA[0], 255), 0);
-                newRGBA[1] = StrictMath.max(StrictMath.min(newRGBA[1], 255), 0);
-                newRGBA[2] = StrictMath.max(StrictMath.min(newRGBA[2], 255), 0);
-                if (relativeLayerIndex > 0 && useAlpha) {
-                    newRGBA[3] = StrictMath.max(StrictMath.min((int) ((textureAlphas[relativeLayerIndex - 1] - 128) / 127f * 255f), 255), 0);
-                } else {
-                    newRGBA[3] = 255;
-                }
-                image.getRaster().setPixel(x, y, newRGBA);
-            }
-        }
-        return image;
+    private static int[] getScaledPixels(BufferedImage image) {
+        BufferedImage scaledImage = scaleImage(image, PREVIEW_SIZE, PREVIEW_SIZE);
+        return scaledImage.getRaster().getPixels(0, 0, PREVIEW_SIZE, PREVIEW_SIZE, (int[]) null);
     }
 
-    static BufferedImage getWaterLayer(SCMap map) {
-        Color shallowColor = new Color(134, 233, 233);
-        Color abyssColor = new Color(35, 49, 162);
-        LightingSettings lightingSettings = map.getBiome().getLightingSettings();
-        WaterSettings waterSettings = map.getBiome().getWaterSettings();
-        BufferedImage heightMap = map.getHeightmap();
-        BufferedImage heightMapScaled = scaleImage(heightMap, 256, 256);
-
-        BufferedImage waterLayer = new BufferedImage(256, 256, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D waterLayerGraphics = waterLayer.createGraphics();
-
-        float elevation = lightingSettings.getSunDirection().getElevation();
-        float[] mapElevations = {map.getBiome().getWaterSettings().getElevation(), map.getBiome().getWaterSettings().getElevationAbyss()};
-        float ambientCoefficient = .5f;
-        float waterDiffuseCoefficient = .25f;
-        float waterSpecularCoefficient = .25f;
-        float waterShininess = 1f;
-        int[] heightArray = new int[1];
-        int[] newRGBA = new int[4];
-        BufferedImage layer = new BufferedImage(256, 256, BufferedImage.TYPE_INT_ARGB);
-
-        for (int y = 0; y < waterLayer.getHeight(); y++) {
-            for (int x = 0; x < waterLayer.getWidth(); x++) {
-                heightMapScaled.getRaster().getPixel(x, y, heightArray);
-
-                float mapElevation = heightArray[0] * map.getHeightMapScale();
-                float weight = StrictMath.min(StrictMath.max((mapElevations[0] - mapElevation) / (mapElevations[0] - mapElevations[1]), 0), 1);
-                float diffuseTerm = (float) (StrictMath.max(StrictMath.cos(StrictMath.toRadians(elevation)) * waterDiffuseCoefficient, 0));
-                float specularTerm = (float) (StrictMath.max(StrictMath.pow(StrictMath.cos(StrictMath.toRadians(180 - elevation)), waterShininess) * waterSpecularCoefficient, 0));
-
-                newRGBA[0] = (int) (shallowColor.getRed() * (1 - weight) + abyssColor.getRed() * weight);
-                newRGBA[1] = (int) (shallowColor.getGreen() * (1 - weight) + abyssColor.getGreen() * weight);
-                newRGBA[2] = (int) (shallowColor.getBlue() * (1 - weight) + abyssColor.getBlue() * weight);
-                newRGBA[0] *= (lightingSettings.getSunColor().x + waterSettings.getSurfaceColor().x) * (ambientCoefficient + diffuseTerm + specularTerm);
-                newRGBA[1] *= (lightingSettings.getSunColor().y + waterSettings.getSurfaceColor().y) * (ambientCoefficient + diffuseTerm + specularTerm);
-                newRGBA[2] *= (lightingSettings.getSunColor().z + waterSettings.getSurfaceColor().z) * (ambientCoefficient + diffuseTerm + specularTerm);
-                newRGBA[0] = StrictMath.min(255, newRGBA[0]);
-                newRGBA[1] = StrictMath.min(255, newRGBA[1]);
-                newRGBA[2] = StrictMath.min(255, newRGBA[2]);
-                newRGBA[3] = (int) StrictMath.min(255 * weight, 255);
-
-                layer.getRaster().setPixel(x, y, newRGBA);
-            }
+    private static int blend(int destination, int[] sourceRGBA) {
+        int sourceAlpha = sourceRGBA[3];
+        if (sourceAlpha == 255) {
+            return 0xFF000000 | sourceRGBA[0] << 16 | sourceRGBA[1] << 8 | sourceRGBA[2];
         }
-
-        TexturePaint layerPaint = new TexturePaint(layer, new Rectangle2D.Float(0, 0, 256, 256));
-        waterLayerGraphics.setPaint(layerPaint);
-        waterLayerGraphics.fillRect(0, 0, 256, 256);
-        return waterLayer;
+        if (sourceAlpha == 0) {
+            return destination;
+        }
+        int destinationAlpha = destination >>> 24;
+        int destinationWeight = destinationAlpha * (255 - sourceAlpha) / 255;
+        int alpha = sourceAlpha + destinationWeight;
+        int red = (sourceRGBA[0] * sourceAlpha + ((destination >>> 16) & 0xFF) * destinationWeight) / alpha;
+        int green = (sourceRGBA[1] * sourceAlpha + ((destination >>> 8) & 0xFF) * destinationWeight) / alpha;
+        int blue = (sourceRGBA[2] * sourceAlpha + (destination & 0xFF) * destinationWeight) / alpha;
+        return alpha << 24 | red << 16 | green << 8 | blue;
     }
 }
@@ -7,8 +7,6 @@ import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.Random;
 
-import static util.Placement.placeOnHeightmap;
-
 public strictfp class PropGenerator {
     public static final String[] TREE_GROUPS = {
             "/env/evergreen/props/trees/groups/Brch01_Group01_prop.bp",
@@ -47,24 +45,27 @@ public strictfp class PropGenerator {
     public void generateProps(BinaryMask spawnable, String[] paths, float minSeparation, float maxSeparation) {
         spawnable.limitToSymmetryRegion();
         LinkedList<Vector2f> coordinates = spawnable.getRandomCoordinates(minSeparation, maxSeparation);
-        coordinates.forEach((location) -> {
+        PropBuffer propBuffer = map.getPropBuffer();
+        int[] pathIndices = new int[paths.length];
+        for (int i = 0; i < paths.length; i++) {
+            pathIndices[i] = propBuffer.getPathIndex(paths[i]);
+        }
+        for (Vector2f location : coordinates) {
             location.add(.5f, .5f);
-            Prop prop = new Prop(paths[random.nextInt(paths.length)], location, random.nextFloat() * (float) StrictMath.PI);
-            map.addProp(prop);
-            ArrayList<SymmetryPoint> symmetryPoints = spawnable.getSymmetryPoints(prop.getPosition(), SymmetryType.SPAWN);
-            symmetryPoints.forEach(symmetryPoint -> symmetryPoint.getLocation().roundToNearestHalfPoint());
-            ArrayList<Float> symmetryRotation = spawnable.getSymmetryRotation(prop.getRotation());
+            int path = pathIndices[random.nextInt(paths.length)];
+            float rotation = random.nextFloat() * (float) StrictMath.PI;
+            propBuffer.add(path, location.x, location.y, rotation);
+            ArrayList<SymmetryPoint> symmetryPoints = spawnable.getSymmetryPoints(location, SymmetryType.SPAWN);
+            ArrayList<Float> symmetryRotation = spawnable.getSymmetryRotation(rotation);
             for (int i = 0; i < symmetryPoints.size(); i++) {
-                Prop symProp = new Prop(prop.getPath(), symmetryPoints.get(i).getLocation(), symmetryRotation.get(i));
-                map.addProp(symProp);
+                Vector2f symmetryLocation = symmetryPoints.get(i).getLocation();
+                symmetryLocation.roundToNearestHalfPoint();
+                propBuffer.add(path, symmetryLocation.x, symmetryLocation.y, symmetryRotation.get(i));
             }
-
-        });
+        }
     }
 
     public void setPropHeights() {
-        for (Prop prop : map.getProps()) {
-            prop.setPosition(placeOnHeightmap(map, prop.getPosition()));
-        }
+        map.getPropBuffer().placeOnHeightmap(map.getHeightfield());
     }
 }
@@ -27,23 +27,31 @@ public strictfp class SpawnGenerator {
         BinaryMask spawnPlateauMask = new BinaryMask(map.getSize() + 1, random.nextLong(), spawnable.getSymmetrySettings());
         int centerFill = StrictMath.min(map.getSize() * 3 / 8, 256);
         spawnable.limitToSymmetryRegion().fillSides(map.getSize() / map.getSpawnCountInit() * 3 / 2, false).fillCenter(centerFill, false).fillEdge(map.getSize() / 16, false);
+        SeparationField separationField = new SeparationField(spawnable);
         Vector2f location = spawnable.getRandomPosition();
         while (map.getSpawnCount() < map.getSpawnCountInit()) {
-            if (location == null) {
+            while (location == null) {
                 if (separation - 4 >= 10) {
-                    return generateSpawns(separation - 8, symmetrySettings, plateauDensity);
+                    separation -= 8;
+                    separationField.relax(spawnable, separation);
+                    location = spawnable.getRandomPosition();
                 } else {
                     return null;
                 }
             }
             location.add(.5f, .5f);
             spawnable.fillCircle(location, separation, false);
+            separationField.addLocation(location);
             ArrayList<SymmetryPoint> symmetryPoints = spawnable.getSymmetryPoints(location, SymmetryType.SPAWN);
             symmetryPoints.forEach(symmetryPoint -> symmetryPoint.getLocation().roundToNearestHalfPoint());
-            symmetryPoints.forEach(symmetryPoint -> spawnable.fillCircle(symmetryPoint.getLocation(), centerFill, false));
+            ArrayList<Vector2f> symmetryLocations = new ArrayList<>();
+            symmetryPoints.forEach(symmetryPoint -> symmetryLocations.add(symmetryPoint.getLocation()));
+            spawnable.fillCircles(symmetryLocations, centerFill, false);
+            separationField.getBase().fillCircles(symmetryLocations, centerFill, false);
 
-            spawnLandMask.fillCircle(location, spawnSize, true);
-            symmetryPoints.forEach(symmetryPoint -> spawnLandMask.fillCircle(symmetryPoint.getLocation(), spawnSize, true));
+            ArrayList<Vector2f> spawnLocations = new ArrayList<>(symmetryLocations);
+            spawnLocations.add(0, location);
+            spawnLandMask.fillCircles(spawnLocations, spawnSize, true);
 
             boolean valid;
             if (random.nextFloat() < plateauDensity) {
@@ -64,8 +72,7 @@ public strictfp class SpawnGenerator {
                 }
             }
             if (valid) {
-                spawnPlateauMask.fillCircle(location, spawnSize, true);
-                symmetryPoints.forEach(symmetryPoint -> spawnPlateauMask.fillCircle(symmetryPoint.getLocation(), spawnSize, true));
+                spawnPlateauMask.fillCircles(spawnLocations, spawnSize, true);
             }
 
             map.addSpawn(new Spawn(String.format("ARMY_%d", map.getSpawnCount() + 1), location, new Vector2f(0, 0)));
@@ -83,9 +90,7 @@ public strictfp class SpawnGenerator {
 
             map.addLargeExpansionMarker(new AIMarker(String.format("Large Expansion Area %d", map.getLargeExpansionMarkerCount()), location, null));
             symmetryPoints.forEach(symmetryPoint -> map.addLargeExpansionMarker(new AIMarker(String.format("Large Expansion Area %d", map.getLargeExpansionMarkerCount()), symmetryPoint.getLocation(), null)));
-            BinaryMask nextSpawn = new BinaryMask(spawnable.getSize(), random.nextLong(), spawnable.getSymmetrySettings());
-            nextSpawn.fillCircle(location, separation * 4, true).intersect(spawnable);
-            location = nextSpawn.getRandomPosition();
+            location = spawnable.getRandomPositionInCircle(new Random(random.nextLong()), location, separation * 4);
             if (location == null) {
                 location = spawnable.getRandomPosition();
             }
@@ -98,24 +103,27 @@ public strictfp class SpawnGenerator {
         map.getSpawns().clear();
         BinaryMask spawnableCopy = spawnable.copy();
         spawnableCopy.limitToSymmetryRegion().fillSides(map.getSize() / map.getSpawnCountInit() * 3 / 2, false).fillCenter(map.getSize() * 3 / 8, false).fillEdge(map.getSize() / 32, false);
+        SeparationField separationField = new SeparationField(spawnableCopy);
         Vector2f location = spawnableCopy.getRandomPosition();
         while (map.getSpawnCount() < map.getSpawnCountInit()) {
-            if (location == null) {
+            while (location == null) {
                 if (separation - 4 >= 10) {
-                    generateSpawns(spawnable, separation - 8);
-                    break;
+                    separation -= 8;
+                    separationField.relax(spawnableCopy, separation);
+                    location = spawnableCopy.getRandomPosition();
                 } else {
                     return;
                 }
             }
-            spawnableCopy.fillCircle(location, separation, false);
+            float spawnSeparation = separation;
+            spawnableCopy.fillCircle(location, spawnSeparation, false);
+            separationField.addLocation(location);
             ArrayList<SymmetryPoint> symmetryPoints = spawnableCopy.getSymmetryPoints(location, SymmetryType.SPAWN);
             symmetryPoints.forEach(symmetryPoint -> symmetryPoint.getLocation().roundToNearestHalfPoint());
-            symmetryPoints.forEach(symmetryPoint -> spawnableCopy.fillCircle(symmetryPoint.getLocation(), separation, false));
-
-            if (spawnableCopy.getSymmetrySettings().getSpawnSymmetry() == Symmetry.POINT2) {
-                symmetryPoints.forEach(symmetryPoint -> spawnableCopy.fillCircle(symmetryPoint.getLocation(), separation, false));
-            }
+            symmetryPoints.forEach(symmetryPoint -> {
+                spawnableCopy.fillCircle(symmetryPoint.getLocation(), spawnSeparation, false);
+                separationField.addLocation(symmetryPoint.getLocation());
+            });
             map.addSpawn(new Spawn(String.format("ARMY_%d", map.getSpawnCount() + 1), location, new Vector2f(0, 0)));
             Group initial = new Group("INITIAL", new ArrayList<>());
             Army army = new Army(String.format("ARMY_%d", map.getArmyCount() + 1), new ArrayList<>());
@@ -135,8 +143,32 @@ public strictfp class SpawnGenerator {
     }
 
     public void setMarkerHeights() {
-        for (Spawn spawn : map.getSpawns()) {
-            spawn.setPosition(placeOnHeightmap(map, spawn.getPosition()));
+        placeOnHeightmap(map, map.getSpawns(), Spawn::getPosition, Spawn::setPosition);
+    }
+
+    /**
+     * Remembers the spawnable area before separation circles were cut out together with the placed
+     * locations, so relaxing the separation only replays the circles instead of restarting from scratch.
+     */
+    private static final class SeparationField {
+        private final BinaryMask base;
+        private final ArrayList<Vector2f> locations = new ArrayList<>();
+
+        private SeparationField(BinaryMask spawnable) {
+            this.base = new BinaryMask(spawnable, null);
+        }
+
+        private BinaryMask getBase() {
+            return base;
+        }
+
+        private void addLocation(Vector2f location) {
+            locations.add(location);
+        }
+
+        private void relax(BinaryMask spawnable, float separation) {
+            spawnable.replace(base);
+            locations.forEach(location -> spawnable.fillCircle(location, separation, false));
         }
     }
 }
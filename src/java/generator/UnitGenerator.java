@@ -68,6 +68,19 @@ public strictfp class UnitGenerator {
         random = new Random(seed);
     }
 
+    /**
+     * Parses all base templates up front so the unit stage does not have to wait for LuaJ.
+     */
+    public static void preloadTemplates() {
+        try {
+            BaseTemplate.preload(MEDIUM_ENEMY);
+            BaseTemplate.preload(MEDIUM_RECLAIM);
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.out.println("An error occured while preloading the base templates");
+        }
+    }
+
     public void generateBases(BinaryMask spawnable, String[] templates, Army army, Group group, float separation) {
         String luaFile = templates[random.nextInt(templates.length)];
         spawnable.limitToSymmetryRegion();
@@ -115,12 +128,12 @@ public strictfp class UnitGenerator {
     }
 
     public void setUnitHeights() {
+        ArrayList<Unit> units = new ArrayList<>();
         for (Army army : map.getArmies()) {
             for (Group group : army.getGroups()) {
-                for (Unit unit : group.getUnits()) {
-                    unit.setPosition(placeOnHeightmap(map, unit.getPosition()));
-                }
+                units.addAll(group.getUnits());
             }
         }
+        placeOnHeightmap(map, units, Unit::getPosition, Unit::setPosition);
     }
 }
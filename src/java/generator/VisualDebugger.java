@@ -35,7 +35,9 @@ public class VisualDebugger {
             drawMasksWhitelist = new HashMap<>();
         }
         drawMasksWhitelist.put(binaryOrFloatMask.hashCode(), new String[]{name, parentClass});
-        createGUI();
+        if (!MaskRecorder.isRecording()) {
+            createGUI();
+        }
     }
 
     public synchronized static void createGUI() {
@@ -61,60 +63,91 @@ public class VisualDebugger {
     }
 
     public static void visualizeMask(BinaryMask mask) {
-        if (!shouldRecord(mask)) {
+        if (recordHeadless(mask) || !shouldRecord(mask)) {
             return;
         }
-        visualize((x, y) -> mask.getValueAt(x, y) ? Color.BLACK.getRGB() : Color.WHITE.getRGB(), mask.getSize(), mask.hashCode(), mask.getClass());
+        visualize((x, y) -> getBinaryColor(mask.getValueAt(x, y)), mask.getSize(), mask.hashCode(), mask.getClass());
     }
 
     public static void visualizeMask(FloatMask mask) {
-        if (!shouldRecord(mask)) {
+        if (recordHeadless(mask) || !shouldRecord(mask)) {
             return;
         }
-        ImageSource checkerBoard = (x, y) -> (x + y) % 2 == 0 ? 0xFF_66_66_66 : 0xDD_DD_DD_DD;
-        visualize((x, y) -> {
-            float value = mask.getValueAt(x, y);
+        visualize((x, y) -> getFloatColor(mask.getValueAt(x, y), x, y), mask.getSize(), mask.hashCode(), mask.getClass());
+    }
 
-            if (ignoreNegativeRange && value < 0) {
-                return checkerBoard.get(x, y);
-            }
-            // For each range we interpolate from color white to the color given in the corresponding array.
-            // Ranges must be positive and ordered smallest to biggest. Anything bigger than biggest range
-            // becomes black. Anything smaller than smallest becomes checkerboard.
-            int[] colors = new int[]{
-                    0xFF_FF_00_00,
-                    0xFF_00_FF_00,
-                    0xFF_00_00_FF,
-                    0xFF_FF_00_FF,
-                    0xFF_00_FF_FF,
-                    0xFF_00_00_00};
-            int[] ranges = new int[]{25, 50, 75, 100, 125, 150};
-
-            for (int i = 0; i < colors.length; i++) {
-                int color = colors[i];
-                int rangeMaxAbs = ranges[i];
-                if (value >= -rangeMaxAbs && value <= rangeMaxAbs) {
-                    int rangeMinAbs = i > 0 ? ranges[i - 1] : 0;
-                    float normalized = normalize(value, rangeMinAbs, rangeMaxAbs);
-                    float inverted = Math.max(0, 1 - normalized);
-
-                    int r = (color >>> 16) & 0xFF;
-                    int g = (color >>> 8) & 0xFF;
-                    int b = color & 0xFF;
-
-                    r = r + (int) (inverted * (255 - r));
-                    g = g + (int) (inverted * (255 - g));
-                    b = b + (int) (inverted * (255 - b));
-
-                    return 0xFF_00_00_00 | (r << 16) | (g << 8) | b;
-                }
-            }
-            if (value < 0) {
-                return checkerBoard.get(x, y);
-            } else {
-                return 0xFF_00_00_00;
+    /**
+     * Shows a frame replayed from a trace written by {@link MaskRecorder}.
+     */
+    static void visualizeFrame(MaskTraceReader.Frame frame) {
+        ImageSource imageSource = frame.isBinary()
+                ? (x, y) -> getBinaryColor(frame.getValueAt(x, y) != 0f)
+                : (x, y) -> getFloatColor(frame.getValueAt(x, y), x, y);
+        show(frame.getName() + " " + frame.getOperation(), imageSource, frame.getSize());
+    }
+
+    /**
+     * While the headless recorder runs, masks go to the trace instead of the gui.
+     * Without a whitelist every mask is recorded, with one only the whitelisted masks are.
+     */
+    private static boolean recordHeadless(Mask<?> mask) {
+        if (!MaskRecorder.isRecording()) {
+            return false;
+        }
+        if (drawMasksWhitelist == null) {
+            MaskRecorder.record(mask, mask.getClass().getSimpleName());
+        } else if (drawMasksWhitelist.containsKey(mask.hashCode())) {
+            MaskRecorder.record(mask, drawMasksWhitelist.get(mask.hashCode())[0]);
+        }
+        return true;
+    }
+
+    private static int getBinaryColor(boolean value) {
+        return value ? Color.BLACK.getRGB() : Color.WHITE.getRGB();
+    }
+
+    private static int getFloatColor(float value, int x, int y) {
+        ImageSource checkerBoard = (cx, cy) -> (cx + cy) % 2 == 0 ? 0xFF_66_66_66 : 0xDD_DD_DD_DD;
+
+        if (ignoreNegativeRange && value < 0) {
+            return checkerBoard.get(x, y);
+        }
+        // For each range we interpolate from color white to the color given in the corresponding array.
+        // Ranges must be positive and ordered smallest to biggest. Anything bigger than biggest range
+        // becomes black. Anything smaller than smallest becomes checkerboard.
+        int[] colors = new int[]{
+                0xFF_FF_00_00,
+                0xFF_00_FF_00,
+                0xFF_00_00_FF,
+                0xFF_FF_00_FF,
+                0xFF_00_FF_FF,
+                0xFF_00_00_00};
+        int[] ranges = new int[]{25, 50, 75, 100, 125, 150};
+
+        for (int i = 0; i < colors.length; i++) {
+            int color = colors[i];
+            int rangeMaxAbs = ranges[i];
+            if (value >= -rangeMaxAbs && value <= rangeMaxAbs) {
+                int rangeMinAbs = i > 0 ? ranges[i - 1] : 0;
+                float normalized = normalize(value, rangeMinAbs, rangeMaxAbs);
+                float inverted = Math.max(0, 1 - normalized);
+
+                int r = (color >>> 16) & 0xFF;
+                int g = (color >>> 8) & 0xFF;
+                int b = color & 0xFF;
+
+                r = r + (int) (inverted * (255 - r));
+                g = g + (int) (inverted * (255 - g));
+                b = b + (int) (inverted * (255 - b));
+
+                return 0xFF_00_00_00 | (r << 16) | (g << 8) | b;
             }
-        }, mask.getSize(), mask.hashCode(), mask.getClass());
+        }
+        if (value < 0) {
+            return checkerBoard.get(x, y);
+        } else {
+            return 0xFF_00_00_00;
+        }
     }
 
     private static boolean shouldRecord(Mask mask) {
@@ -168,6 +201,10 @@ public class VisualDebugger {
         } else {
             return;
         }
+        show(maskName + " " + function, imageSource, size);
+    }
+
+    private static void show(String title, ImageSource imageSource, int size) {
         float perPixelSize = calculateAutoZoom(size);
         BufferedImage currentImage = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
         // iterate source pixels
@@ -182,7 +219,7 @@ public class VisualDebugger {
         at.scale(perPixelSize, perPixelSize);
         AffineTransformOp scaleOp = new AffineTransformOp(at, AffineTransformOp.TYPE_NEAREST_NEIGHBOR);
         scaleOp.filter(currentImage, scaledImage);
-        VisualDebuggerGui.update(maskName + " " + function, scaledImage, size);
+        VisualDebuggerGui.update(title, scaledImage, size);
     }
 
     private static float calculateAutoZoom(int imageSize) {
@@ -3,6 +3,7 @@ package importer;
 import biomes.Biome;
 import map.*;
 import util.DDSHeader;
+import util.DDSReader;
 import util.Vector2f;
 import util.Vector3f;
 import util.Vector4f;
@@ -14,16 +15,23 @@ import java.awt.image.BufferedImage;
 import java.awt.image.DataBuffer;
 import java.io.*;
 import java.nio.file.Path;
+import java.util.EnumSet;
 
 import static util.Swapper.swap;
 
 public strictfp class SCMapImporter {
 
-    public static File file;
+    private final DataInputStream in;
 
-    private static DataInputStream in;
+    private SCMapImporter(DataInputStream in) {
+        this.in = in;
+    }
 
     public static SCMap loadSCMAP(Path folderPath) throws IOException {
+        return loadSCMAP(folderPath, SCMapSection.all());
+    }
+
+    public static SCMap loadSCMAP(Path folderPath, EnumSet<SCMapSection> sections) throws IOException {
         File dir = folderPath.toFile();
 
         File[] mapFiles = dir.listFiles((dir1, filename) -> filename.endsWith(".scmap"));
@@ -32,10 +40,14 @@ public strictfp class SCMapImporter {
             System.out.println("No scmap file in map folder");
             return null;
         }
-        file = mapFiles[0];
+        File file = mapFiles[0];
 
-        in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            return new SCMapImporter(in).readSCMap(sections);
+        }
+    }
 
+    private SCMap readSCMap(EnumSet<SCMapSection> sections) throws IOException {
         // header
         if (readInt() != SCMap.SIGNATURE) {
             throw new UnsupportedEncodingException("File not valid SCMap");
@@ -57,9 +69,7 @@ public strictfp class SCMapImporter {
         if (readShort() != 0) {
             throw new UnsupportedEncodingException("File not valid SCMap");
         }
-        int previewImageSize = readInt() - 128;
-        DDSHeader previewHeader = DDSHeader.parseHeader(readBytes(128));
-        int[] previewImageData = readInts(previewImageSize / 4);
+        int[] previewImageData = readImageData(sections.contains(SCMapSection.PREVIEW));
         int version = readInt();
         if (version != 56 && version != 60) {
             throw new UnsupportedEncodingException(String.format("SCMap version %d not supported", version));
@@ -69,7 +79,12 @@ public strictfp class SCMapImporter {
         int widthInt = readInt();
         int heightInt = readInt();
         float heightMapScale = readFloat();
-        short[] heightMapData = readShorts((widthInt + 1) * (heightInt + 1));
+        short[] heightMapData = null;
+        if (sections.contains(SCMapSection.HEIGHTMAP)) {
+            heightMapData = readShorts((widthInt + 1) * (heightInt + 1));
+        } else {
+            skipBytes((widthInt + 1) * (heightInt + 1) * 2);
+        }
         if (readByte() != 0) {
             throw new UnsupportedEncodingException("File not valid SCMap");
         }
@@ -125,17 +140,26 @@ public strictfp class SCMapImporter {
         int unknown2 = readInt();
 
         // decals
+        boolean loadDecals = sections.contains(SCMapSection.DECALS);
         int decalCount = readInt();
-        Decal[] decals = new Decal[decalCount];
+        Decal[] decals = new Decal[loadDecals ? decalCount : 0];
         for (int i = 0; i < decalCount; i++) {
-            decals[i] = readDecal();
+            if (loadDecals) {
+                decals[i] = readDecal();
+            } else {
+                skipDecal();
+            }
         }
 
         //decal group count
         int groupCount = readInt();
-        DecalGroup[] decalGroups = new DecalGroup[groupCount];
+        DecalGroup[] decalGroups = new DecalGroup[loadDecals ? groupCount : 0];
         for (int i = 0; i < groupCount; i++) {
-            decalGroups[i] = readDecalGroup();
+            if (loadDecals) {
+                decalGroups[i] = readDecalGroup();
+            } else {
+                skipDecalGroup();
+            }
         }
 
         int widthInt2 = readInt();
@@ -146,26 +170,39 @@ public strictfp class SCMapImporter {
         if (readInt() != 1) {
             throw new UnsupportedEncodingException("File not valid SCMap");
         }
-        int[] normalMapData = readImageData();
+        int[] normalMapData = readImageData(sections.contains(SCMapSection.NORMAL_MAP));
 
         // texture maps
-        int[] textureMaskLowData = readImageData();
-        int[] textureMaskHighData = readImageData();
+        int[] textureMaskLowData = readImageData(sections.contains(SCMapSection.TEXTURE_MASKS));
+        int[] textureMaskHighData = readImageData(sections.contains(SCMapSection.TEXTURE_MASKS));
 
         // water maps
         if (readInt() != 1) {
             throw new UnsupportedEncodingException("File not valid SCMap");
         }
         int waterMapByteCount = readInt() - 128;
-        DDSHeader waterMapDDSHeader = DDSHeader.parseHeader(readBytes(128));
-        byte[] waterMapData = readBytes(waterMapByteCount);
         int halfSize = (heightInt / 2) * (widthInt / 2);
-        byte[] waterFoamMaskData = readBytes(halfSize);
-        byte[] waterFlatnessData = readBytes(halfSize);
-        byte[] waterDepthBiasMaskData = readBytes(halfSize);
+        byte[] waterMapData = null;
+        byte[] waterFoamMaskData = null;
+        byte[] waterFlatnessData = null;
+        byte[] waterDepthBiasMaskData = null;
+        if (sections.contains(SCMapSection.WATER_MAPS)) {
+            DDSHeader waterMapDDSHeader = DDSHeader.parseHeader(readBytes(128));
+            waterMapData = readBytes(waterMapByteCount);
+            waterFoamMaskData = readBytes(halfSize);
+            waterFlatnessData = readBytes(halfSize);
+            waterDepthBiasMaskData = readBytes(halfSize);
+        } else {
+            skipBytes(128 + waterMapByteCount + halfSize * 3);
+        }
 
         // terrain type
-        int[] terrainTypeData = readInts(widthInt * heightInt / 4);
+        int[] terrainTypeData = null;
+        if (sections.contains(SCMapSection.TERRAIN_TYPE)) {
+            terrainTypeData = readInts(widthInt * heightInt / 4);
+        } else {
+            skipBytes(widthInt * heightInt);
+        }
 
         // Additional Skybox
         SkyBox skyBox = null;
@@ -174,14 +211,15 @@ public strictfp class SCMapImporter {
         }
 
         // props
-        int propCount = readInt();
-        Prop[] props = new Prop[propCount];
-        for (int i = 0; i < propCount; i++) {
-            props[i] = readProp();
+        Prop[] props = new Prop[0];
+        if (sections.contains(SCMapSection.PROPS)) {
+            int propCount = readInt();
+            props = new Prop[propCount];
+            for (int i = 0; i < propCount; i++) {
+                props[i] = readProp();
+            }
         }
 
-        in.close();
-
         SCMap map = new SCMap(widthInt, 0, 0, 0, new Biome("loaded", mapTerrainMaterials, new PropMaterials(), mapWaterSettings, mapLightingSettings));
         map.setMinorVersion(version);
         map.setTerrainShaderPath(shaderPath);
@@ -196,84 +234,96 @@ public strictfp class SCMapImporter {
         map.setMiniMapLandStartColor(miniMapLandStartColor);
         map.setMiniMapLandEndColor(miniMapLandEndColor);
 
-        int previewSize = (int) StrictMath.sqrt(previewImageData.length);
-        BufferedImage preview = new BufferedImage(previewSize, previewSize, BufferedImage.TYPE_INT_ARGB);
-        DataBuffer previewDataBuffer = preview.getRaster().getDataBuffer();
-        for (int i = 0; i < previewDataBuffer.getSize(); i++) {
-            previewDataBuffer.setElem(i, previewImageData[i]);
-        }
-        map.setPreview(preview);
-
-        int heightmapSize = (int) StrictMath.sqrt(heightMapData.length);
-        BufferedImage heightmap = new BufferedImage(heightmapSize, heightmapSize, BufferedImage.TYPE_USHORT_GRAY);
-        DataBuffer heightmapDataBuffer = heightmap.getRaster().getDataBuffer();
-        for (int i = 0; i < heightmapDataBuffer.getSize(); i++) {
-            heightmapDataBuffer.setElem(i, heightMapData[i]);
-        }
-        map.setHeightmap(heightmap);
-
-        int normalMapSize = (int) StrictMath.sqrt(normalMapData.length);
-        BufferedImage normalMap = new BufferedImage(normalMapSize, normalMapSize, BufferedImage.TYPE_INT_ARGB);
-        DataBuffer normalMapDataBuffer = normalMap.getRaster().getDataBuffer();
-        for (int i = 0; i < normalMapDataBuffer.getSize(); i++) {
-            normalMapDataBuffer.setElem(i, normalMapData[i]);
-        }
-        map.setNormalMap(normalMap);
-
-        int textureLowSize = (int) StrictMath.sqrt(textureMaskLowData.length);
-        BufferedImage textureMasksLow = new BufferedImage(textureLowSize, textureLowSize, BufferedImage.TYPE_INT_ARGB);
-        DataBuffer textureMasksLowDataBuffer = textureMasksLow.getRaster().getDataBuffer();
-        for (int i = 0; i < textureMasksLowDataBuffer.getSize(); i++) {
-            textureMasksLowDataBuffer.setElem(i, textureMaskLowData[i]);
-        }
-        map.setTextureMasksLow(textureMasksLow);
-
-        int textureHighSize = (int) StrictMath.sqrt(textureMaskHighData.length);
-        BufferedImage textureMasksHigh = new BufferedImage(textureHighSize, textureHighSize, BufferedImage.TYPE_INT_ARGB);
-        DataBuffer textureMasksHighDataBuffer = textureMasksHigh.getRaster().getDataBuffer();
-        for (int i = 0; i < textureMasksHighDataBuffer.getSize(); i++) {
-            textureMasksHighDataBuffer.setElem(i, textureMaskHighData[i]);
-        }
-        map.setTextureMasksHigh(textureMasksHigh);
-
-        int waterMapSize = (int) StrictMath.sqrt(waterMapData.length);
-        BufferedImage waterMap = new BufferedImage(waterMapSize, waterMapSize, BufferedImage.TYPE_BYTE_GRAY);
-        DataBuffer waterMapDataBuffer = waterMap.getRaster().getDataBuffer();
-        for (int i = 0; i < waterMapDataBuffer.getSize(); i++) {
-            waterMapDataBuffer.setElem(i, waterMapData[i]);
-        }
-        map.setWaterMap(waterMap);
-
-        int waterFoamSize = (int) StrictMath.sqrt(waterFoamMaskData.length);
-        BufferedImage waterFoamMask = new BufferedImage(waterFoamSize, waterFoamSize, BufferedImage.TYPE_BYTE_GRAY);
-        DataBuffer waterFoamMaskDataBuffer = waterFoamMask.getRaster().getDataBuffer();
-        for (int i = 0; i < waterFoamMaskDataBuffer.getSize(); i++) {
-            waterFoamMaskDataBuffer.setElem(i, waterFoamMaskData[i]);
-        }
-        map.setWaterFoamMask(waterFoamMask);
-
-        int waterFlatSize = (int) StrictMath.sqrt(waterFoamMaskData.length);
-        BufferedImage waterFlatnessMask = new BufferedImage(waterFlatSize, waterFlatSize, BufferedImage.TYPE_BYTE_GRAY);
-        DataBuffer waterFlatnessMaskDataBuffer = waterFlatnessMask.getRaster().getDataBuffer();
-        for (int i = 0; i < waterFlatnessMaskDataBuffer.getSize(); i++) {
-            waterFlatnessMaskDataBuffer.setElem(i, waterFlatnessData[i]);
+        if (previewImageData != null) {
+            int previewSize = (int) StrictMath.sqrt(previewImageData.length);
+            BufferedImage preview = new BufferedImage(previewSize, previewSize, BufferedImage.TYPE_INT_ARGB);
+            DataBuffer previewDataBuffer = preview.getRaster().getDataBuffer();
+            for (int i = 0; i < previewDataBuffer.getSize(); i++) {
+                previewDataBuffer.setElem(i, previewImageData[i]);
+            }
+            map.setPreview(preview);
+        }
+
+        if (heightMapData != null) {
+            int heightmapSize = (int) StrictMath.sqrt(heightMapData.length);
+            BufferedImage heightmap = new BufferedImage(heightmapSize, heightmapSize, BufferedImage.TYPE_USHORT_GRAY);
+            DataBuffer heightmapDataBuffer = heightmap.getRaster().getDataBuffer();
+            for (int i = 0; i < heightmapDataBuffer.getSize(); i++) {
+                heightmapDataBuffer.setElem(i, heightMapData[i]);
+            }
+            map.setHeightmap(heightmap);
+        }
+
+        if (normalMapData != null) {
+            int normalMapSize = (int) StrictMath.sqrt(normalMapData.length);
+            BufferedImage normalMap = new BufferedImage(normalMapSize, normalMapSize, BufferedImage.TYPE_INT_ARGB);
+            DataBuffer normalMapDataBuffer = normalMap.getRaster().getDataBuffer();
+            for (int i = 0; i < normalMapDataBuffer.getSize(); i++) {
+                normalMapDataBuffer.setElem(i, normalMapData[i]);
+            }
+            map.setNormalMap(normalMap);
+        }
+
+        if (textureMaskLowData != null && textureMaskHighData != null) {
+            int textureLowSize = (int) StrictMath.sqrt(textureMaskLowData.length);
+            BufferedImage textureMasksLow = new BufferedImage(textureLowSize, textureLowSize, BufferedImage.TYPE_INT_ARGB);
+            DataBuffer textureMasksLowDataBuffer = textureMasksLow.getRaster().getDataBuffer();
+            for (int i = 0; i < textureMasksLowDataBuffer.getSize(); i++) {
+                textureMasksLowDataBuffer.setElem(i, textureMaskLowData[i]);
+            }
+            map.setTextureMasksLow(textureMasksLow);
+
+            int textureHighSize = (int) StrictMath.sqrt(textureMaskHighData.length);
+            BufferedImage textureMasksHigh = new BufferedImage(textureHighSize, textureHighSize, BufferedImage.TYPE_INT_ARGB);
+            DataBuffer textureMasksHighDataBuffer = textureMasksHigh.getRaster().getDataBuffer();
+            for (int i = 0; i < textureMasksHighDataBuffer.getSize(); i++) {
+                textureMasksHighDataBuffer.setElem(i, textureMaskHighData[i]);
+            }
+            map.setTextureMasksHigh(textureMasksHigh);
+        }
+
+        if (waterMapData != null) {
+            int waterMapSize = (int) StrictMath.sqrt(waterMapData.length);
+            BufferedImage waterMap = new BufferedImage(waterMapSize, waterMapSize, BufferedImage.TYPE_BYTE_GRAY);
+            DataBuffer waterMapDataBuffer = waterMap.getRaster().getDataBuffer();
+            for (int i = 0; i < waterMapDataBuffer.getSize(); i++) {
+                waterMapDataBuffer.setElem(i, waterMapData[i]);
+            }
+            map.setWaterMap(waterMap);
+
+            int waterFoamSize = (int) StrictMath.sqrt(waterFoamMaskData.length);
+            BufferedImage waterFoamMask = new BufferedImage(waterFoamSize, waterFoamSize, BufferedImage.TYPE_BYTE_GRAY);
+            DataBuffer waterFoamMaskDataBuffer = waterFoamMask.getRaster().getDataBuffer();
+            for (int i = 0; i < waterFoamMaskDataBuffer.getSize(); i++) {
+                waterFoamMaskDataBuffer.setElem(i, waterFoamMaskData[i]);
+            }
+            map.setWaterFoamMask(waterFoamMask);
+
+            int waterFlatSize = (int) StrictMath.sqrt(waterFoamMaskData.length);
+            BufferedImage waterFlatnessMask = new BufferedImage(waterFlatSize, waterFlatSize, BufferedImage.TYPE_BYTE_GRAY);
+            DataBuffer waterFlatnessMaskDataBuffer = waterFlatnessMask.getRaster().getDataBuffer();
+            for (int i = 0; i < waterFlatnessMaskDataBuffer.getSize(); i++) {
+                waterFlatnessMaskDataBuffer.setElem(i, waterFlatnessData[i]);
+            }
+            map.setWaterFlatnessMask(waterFlatnessMask);
+
+            int waterDepthSize = (int) StrictMath.sqrt(waterDepthBiasMaskData.length);
+            BufferedImage waterDepthBiasMask = new BufferedImage(waterDepthSize, waterDepthSize, BufferedImage.TYPE_BYTE_GRAY);
+            DataBuffer waterDepthBiasMaskDataBuffer = waterDepthBiasMask.getRaster().getDataBuffer();
+            for (int i = 0; i < waterDepthBiasMaskDataBuffer.getSize(); i++) {
+                waterDepthBiasMaskDataBuffer.setElem(i, waterDepthBiasMaskData[i]);
+            }
+        }
+
+        if (terrainTypeData != null) {
+            int terrainTypeSize = (int) StrictMath.sqrt(terrainTypeData.length);
+            BufferedImage terrainType = new BufferedImage(terrainTypeSize, terrainTypeSize, BufferedImage.TYPE_INT_ARGB);
+            DataBuffer terrainTypeMaskDataBuffer = terrainType.getRaster().getDataBuffer();
+            for (int i = 0; i < terrainTypeMaskDataBuffer.getSize(); i++) {
+                terrainTypeMaskDataBuffer.setElem(i, terrainTypeData[i]);
+            }
+            map.setTerrainType(terrainType);
         }
-        map.setWaterFlatnessMask(waterFlatnessMask);
-
-        int waterDepthSize = (int) StrictMath.sqrt(waterDepthBiasMaskData.length);
-        BufferedImage waterDepthBiasMask = new BufferedImage(waterDepthSize, waterDepthSize, BufferedImage.TYPE_BYTE_GRAY);
-        DataBuffer waterDepthBiasMaskDataBuffer = waterDepthBiasMask.getRaster().getDataBuffer();
-        for (int i = 0; i < waterDepthBiasMaskDataBuffer.getSize(); i++) {
-            waterDepthBiasMaskDataBuffer.setElem(i, waterDepthBiasMaskData[i]);
-        }
-
-        int terrainTypeSize = (int) StrictMath.sqrt(terrainTypeData.length);
-        BufferedImage terrainType = new BufferedImage(terrainTypeSize, terrainTypeSize, BufferedImage.TYPE_INT_ARGB);
-        DataBuffer terrainTypeMaskDataBuffer = terrainType.getRaster().getDataBuffer();
-        for (int i = 0; i < terrainTypeMaskDataBuffer.getSize(); i++) {
-            terrainTypeMaskDataBuffer.setElem(i, terrainTypeData[i]);
-        }
-        map.setTerrainType(terrainType);
 
         for (WaveGenerator waveGenerator : waveGenerators) {
             map.addWaveGenerator(waveGenerator);
@@ -295,23 +345,41 @@ public strictfp class SCMapImporter {
         return map;
     }
 
-    private static float readFloat() throws IOException {
+    private void skipBytes(int numBytes) throws IOException {
+        int remaining = numBytes;
+        while (remaining > 0) {
+            int skipped = in.skipBytes(remaining);
+            if (skipped <= 0) {
+                throw new EOFException("Unexpected end of SCMap");
+            }
+            remaining -= skipped;
+        }
+    }
+
+    private void skipStringNull() throws IOException {
+        byte read = readByte();
+        while (read != 0) {
+            read = readByte();
+        }
+    }
+
+    private float readFloat() throws IOException {
         return Float.intBitsToFloat(swap(in.readInt()));
     }
 
-    private static int readInt() throws IOException {
+    private int readInt() throws IOException {
         return swap(in.readInt());
     }
 
-    private static short readShort() throws IOException {
+    private short readShort() throws IOException {
         return swap(in.readShort());
     }
 
-    private static byte readByte() throws IOException {
+    private byte readByte() throws IOException {
         return in.readByte();
     }
 
-    private static byte[] readBytes(int numBytes) throws IOException {
+    private byte[] readBytes(int numBytes) throws IOException {
         byte[] readBytes = new byte[numBytes];
         for (int i = 0; i < numBytes; i++) {
             readBytes[i] = readByte();
@@ -319,7 +387,7 @@ public strictfp class SCMapImporter {
         return readBytes;
     }
 
-    private static short[] readShorts(int numShorts) throws IOException {
+    private short[] readShorts(int numShorts) throws IOException {
         short[] readShorts = new short[numShorts];
         for (int i = 0; i < numShorts; i++) {
             readShorts[i] = readShort();
@@ -327,7 +395,7 @@ public strictfp class SCMapImporter {
         return readShorts;
     }
 
-    private static int[] readInts(int numInts) throws IOException {
+    private int[] readInts(int numInts) throws IOException {
         int[] readInts = new int[numInts];
         for (int i = 0; i < numInts; i++) {
             readInts[i] = readInt();
@@ -335,7 +403,7 @@ public strictfp class SCMapImporter {
         return readInts;
     }
 
-    private static String readStringNull() throws IOException {
+    private String readStringNull() throws IOException {
         StringBuilder readString = new StringBuilder();
         byte read = readByte();
         while (read != 0) {
@@ -345,7 +413,7 @@ public strictfp class SCMapImporter {
         return readString.toString();
     }
 
-    private static String readString(int length) throws IOException {
+    private String readString(int length) throws IOException {
         StringBuilder readString = new StringBuilder();
         for (int i = 0; i < length; i++) {
             byte read = readByte();
@@ -354,19 +422,19 @@ public strictfp class SCMapImporter {
         return readString.toString();
     }
 
-    private static Vector3f readVector3f() throws IOException {
+    private Vector3f readVector3f() throws IOException {
         return new Vector3f(readFloat(), readFloat(), readFloat());
     }
 
-    private static Vector4f readVector4f() throws IOException {
+    private Vector4f readVector4f() throws IOException {
         return new Vector4f(readFloat(), readFloat(), readFloat(), readFloat());
     }
 
-    private static Vector2f readVector2f() throws IOException {
+    private Vector2f readVector2f() throws IOException {
         return new Vector2f(readFloat(), readFloat());
     }
 
-    private static LightingSettings readLightingSettings() throws IOException {
+    private LightingSettings readLightingSettings() throws IOException {
         LightingSettings lightingSettings = new LightingSettings();
         lightingSettings.setLightingMultiplier(readFloat());
         lightingSettings.setSunDirection(readVector3f());
@@ -381,7 +449,7 @@ public strictfp class SCMapImporter {
         return lightingSettings;
     }
 
-    private static WaterSettings readWaterSettings() throws IOException {
+    private WaterSettings readWaterSettings() throws IOException {
         WaterSettings waterSettings = new WaterSettings();
         waterSettings.setWaterPresent(readByte() == 1);
         waterSettings.setElevation(readFloat());
@@ -416,7 +484,7 @@ public strictfp class SCMapImporter {
         return waterSettings;
     }
 
-    private static WaveGenerator readWaveGenerator() throws IOException {
+    private WaveGenerator readWaveGenerator() throws IOException {
         String textureName = readStringNull();
         String rampName = readStringNull();
         Vector3f position = readVector3f();
@@ -439,7 +507,7 @@ public strictfp class SCMapImporter {
         return waveGenerator;
     }
 
-    private static Decal readDecal() throws IOException {
+    private Decal readDecal() throws IOException {
         int id = readInt();
         int type = readInt();
         int textureCount = readInt();
@@ -457,7 +525,16 @@ public strictfp class SCMapImporter {
         return new Decal(texturePaths[0], position, rotation, scale, cutOffLOD, DecalType.of(type));
     }
 
-    private static DecalGroup readDecalGroup() throws IOException {
+    private void skipDecal() throws IOException {
+        skipBytes(8);
+        int textureCount = readInt();
+        for (int j = 0; j < textureCount; j++) {
+            skipBytes(readInt());
+        }
+        skipBytes(48);
+    }
+
+    private DecalGroup readDecalGroup() throws IOException {
         int id = readInt();
         String name = readStringNull();
         int length = readInt();
@@ -468,13 +545,30 @@ public strictfp class SCMapImporter {
         return new DecalGroup(name, data);
     }
 
-    private static int[] readImageData() throws IOException {
+    private void skipDecalGroup() throws IOException {
+        skipBytes(4);
+        skipStringNull();
+        skipBytes(readInt() * 4);
+    }
+
+    private int[] readImageData(boolean decode) throws IOException {
         int byteCount = readInt() - 128;
-        DDSHeader ddsHeader = DDSHeader.parseHeader(readBytes(128));
+        if (!decode) {
+            skipBytes(128 + byteCount);
+            return null;
+        }
+        byte[] headerBytes = readBytes(128);
+        DDSHeader ddsHeader = DDSHeader.parseHeader(headerBytes);
+        if (ddsHeader.getFourCCFlag() && byteCount != ddsHeader.getWidth() * ddsHeader.getHeight() * 4) {
+            byte[] ddsBytes = new byte[128 + byteCount];
+            System.arraycopy(headerBytes, 0, ddsBytes, 0, 128);
+            in.readFully(ddsBytes, 128, byteCount);
+            return DDSReader.read(ddsBytes, DDSReader.ARGB, 0);
+        }
         return readInts(byteCount / 4);
     }
 
-    private static SkyBox readSkyBox() throws IOException {
+    private SkyBox readSkyBox() throws IOException {
         SkyBox skyBox = new SkyBox();
         skyBox.setPosition(readVector3f());
         skyBox.setHorizonHeight(readFloat());
@@ -524,7 +618,7 @@ public strictfp class SCMapImporter {
         return skyBox;
     }
 
-    private static Prop readProp() throws IOException {
+    private Prop readProp() throws IOException {
         String path = readStringNull();
         Vector3f position = readVector3f();
         Vector3f rotationX = readVector3f();
@@ -538,7 +632,7 @@ public strictfp class SCMapImporter {
         return new Prop(path, position, rotation);
     }
 
-    private static <T> BufferedImage getBufferedImageFromData(int bufferedImageType, T[] imageData) {
+    private <T> BufferedImage getBufferedImageFromData(int bufferedImageType, T[] imageData) {
         int imageSize = (int) StrictMath.sqrt(imageData.length);
         BufferedImage image = new BufferedImage(imageSize, imageSize, bufferedImageType);
         DataBuffer imageDataBuffer = image.getRaster().getDataBuffer();
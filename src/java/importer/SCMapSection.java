@@ -0,0 +1,22 @@
+package importer;
+
+import java.util.EnumSet;
+
+public strictfp enum SCMapSection {
+    PREVIEW,
+    HEIGHTMAP,
+    DECALS,
+    NORMAL_MAP,
+    TEXTURE_MASKS,
+    WATER_MAPS,
+    TERRAIN_TYPE,
+    PROPS;
+
+    public static EnumSet<SCMapSection> all() {
+        return EnumSet.allOf(SCMapSection.class);
+    }
+
+    public static EnumSet<SCMapSection> none() {
+        return EnumSet.noneOf(SCMapSection.class);
+    }
+}
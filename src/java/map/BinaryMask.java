@@ -3,6 +3,7 @@ package map;
 import generator.VisualDebugger;
 import lombok.Getter;
 import lombok.SneakyThrows;
+import util.SpatialGrid;
 import util.Util;
 import util.Vector2f;
 import util.Vector3f;
@@ -16,6 +17,7 @@ import java.nio.file.Path;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.function.BiPredicate;
 
 import static brushes.Brushes.loadBrush;
 
@@ -599,19 +601,68 @@ public strictfp class BinaryMask extends Mask<Boolean> {
         return fillArc(x, y, 0, 360, radius, value);
     }
 
+    public BinaryMask fillCircles(List<Vector2f> positions, float radius, boolean value) {
+        float[] radii = new float[positions.size()];
+        Arrays.fill(radii, radius);
+        return fillCircles(positions.toArray(new Vector2f[0]), radii, value);
+    }
+
+    public BinaryMask fillCircles(Vector2f[] positions, float[] radii, boolean value) {
+        if (positions.length != radii.length) {
+            throw new IllegalArgumentException("Position and radius arrays do not match");
+        }
+        long[] spans = new long[16];
+        int spanCount = 0;
+        int[] span = new int[2];
+        for (int i = 0; i < positions.length; i++) {
+            float x = positions[i].x;
+            float y = positions[i].y;
+            float radius = radii[i];
+            int ex = StrictMath.round(StrictMath.min(getSize(), x + radius + 1));
+            for (int cx = StrictMath.round(StrictMath.max(0, x - radius)); cx < ex; cx++) {
+                if (getCircleSpan(x, y, radius, cx, span)) {
+                    if (spanCount == spans.length) {
+                        spans = Arrays.copyOf(spans, spanCount * 2);
+                    }
+                    spans[spanCount++] = (long) cx << 42 | (long) span[0] << 21 | span[1];
+                }
+            }
+        }
+        Arrays.sort(spans, 0, spanCount);
+        int i = 0;
+        while (i < spanCount) {
+            int cx = (int) (spans[i] >>> 42);
+            int start = (int) (spans[i] >>> 21 & 0x1FFFFF);
+            int end = (int) (spans[i] & 0x1FFFFF);
+            i++;
+            while (i < spanCount && (int) (spans[i] >>> 42) == cx && (int) (spans[i] >>> 21 & 0x1FFFFF) <= end) {
+                end = StrictMath.max(end, (int) (spans[i] & 0x1FFFFF));
+                i++;
+            }
+            Arrays.fill(mask[cx], start, end, value);
+        }
+        VisualDebugger.visualizeMask(this);
+        return this;
+    }
+
     public BinaryMask fillArc(float x, float y, float startAngle, float endAngle, float radius, boolean value) {
         int ex = StrictMath.round(StrictMath.min(getSize(), x + radius + 1));
-        int ey = StrictMath.round(StrictMath.min(getSize(), y + radius + 1));
-        float dx;
-        float dy;
-        float radius2 = radius * radius;
+        boolean fullCircle = startAngle <= 0 && endAngle >= 360;
+        int[] span = new int[2];
         for (int cx = StrictMath.round(StrictMath.max(0, x - radius)); cx < ex; cx++) {
-            for (int cy = StrictMath.round(StrictMath.max(0, y - radius)); cy < ey; cy++) {
-                dx = x - cx;
-                dy = y - cy;
+            if (!getCircleSpan(x, y, radius, cx, span)) {
+                continue;
+            }
+            if (fullCircle) {
+                Arrays.fill(mask[cx], span[0], span[1], value);
+                continue;
+            }
+            float dx = x - cx;
+            for (int cy = span[0]; cy < span[1]; cy++) {
+                float dy = y - cy;
                 float angle = (float) (StrictMath.atan2(dy, dx) / StrictMath.PI * 180 + 360) % 360;
-                if (dx * dx + dy * dy <= radius2 && angle >= startAngle && angle <= endAngle) {
-                    setValueAt(cx, cy, value);
+                if (angle >= startAngle && angle <= endAngle) {
+                    mask[cx][cy] = value;
                 }
             }
         }
@@ -619,6 +670,49 @@ public strictfp class BinaryMask extends Mask<Boolean> {
         return this;
     }
 
+    /**
+     * Finds the rows [span[0], span[1]) of the given column that lie within the circle, using the same bounds
+     * and float distance test as a per pixel scan. The distance only grows away from the center row, so the
+     * rows inside always form one span and only its ends need the exact test.
+     */
+    private boolean getCircleSpan(float x, float y, float radius, int cx, int[] span) {
+        int sy = StrictMath.round(StrictMath.max(0, y - radius));
+        int ey = StrictMath.round(StrictMath.min(getSize(), y + radius + 1));
+        if (sy >= ey) {
+            return false;
+        }
+        float dx = x - cx;
+        float dx2 = dx * dx;
+        float radius2 = radius * radius;
+        int center = StrictMath.max(sy, StrictMath.min(ey - 1, StrictMath.round(y)));
+        if (!isInCircle(dx2, y, center, radius2)) {
+            return false;
+        }
+        int extent = (int) StrictMath.sqrt(StrictMath.max(0, radius2 - dx2));
+        int start = StrictMath.max(sy, center - extent);
+        while (start > sy && isInCircle(dx2, y, start - 1, radius2)) {
+            start--;
+        }
+        while (!isInCircle(dx2, y, start, radius2)) {
+            start++;
+        }
+        int end = StrictMath.min(ey - 1, center + extent);
+        while (end < ey - 1 && isInCircle(dx2, y, end + 1, radius2)) {
+            end++;
+        }
+        while (!isInCircle(dx2, y, end, radius2)) {
+            end--;
+        }
+        span[0] = start;
+        span[1] = end + 1;
+        return true;
+    }
+
+    private static boolean isInCircle(float dx2, float y, int cy, float radius2) {
+        float dy = y - cy;
+        return dx2 + dy * dy <= radius2;
+    }
+
     public BinaryMask fillSquare(Vector2f v, int extent, boolean value) {
         return fillSquare((int) v.x, (int) v.y, extent, value);
     }
@@ -648,6 +742,22 @@ public strictfp class BinaryMask extends Mask<Boolean> {
     }
 
     public BinaryMask fillParallelogram(int x, int y, int width, int height, int xSlope, int ySlope, boolean value) {
+        if (xSlope == 0) {
+            // every column of the parallelogram is a single run of rows
+            for (int px = 0; px < width; px++) {
+                int calcX = x + px;
+                if (calcX < 0 || calcX >= getSize()) {
+                    continue;
+                }
+                int startY = StrictMath.max(y + px * ySlope, 0);
+                int endY = StrictMath.min(y + px * ySlope + height, getSize());
+                if (startY < endY) {
+                    Arrays.fill(mask[calcX], startY, endY, value);
+                }
+            }
+            VisualDebugger.visualizeMask(this);
+            return this;
+        }
         for (int px = 0; px < width; px++) {
             for (int py = 0; py < height; py++) {
                 int calcX = x + px + py * xSlope;
@@ -962,27 +1072,49 @@ public strictfp class BinaryMask extends Mask<Boolean> {
     }
 
     public LinkedList<Vector2f> getSpacedCoordinates(float radius, int spacing) {
-        LinkedList<Vector2f> coordinateList = getAllCoordinates(spacing);
-        LinkedHashSet<Vector2f> chosenCoordinates = new LinkedHashSet<>();
-        while (coordinateList.size() > 0) {
-            Vector2f location = coordinateList.removeFirst();
-            chosenCoordinates.add(location);
-            coordinateList.removeIf((loc) -> location.getDistance(loc) < radius);
-        }
-        return new LinkedList<>(chosenCoordinates);
+        return getSpacedCoordinates(getAllCoordinates(spacing), radius);
     }
 
     public LinkedList<Vector2f> getSpacedCoordinatesEqualTo(boolean value, float radius, int spacing) {
-        LinkedList<Vector2f> coordinateList = getAllCoordinatesEqualTo(value, spacing);
+        return getSpacedCoordinates(getAllCoordinatesEqualTo(value, spacing), radius);
+    }
+
+    private LinkedList<Vector2f> getSpacedCoordinates(LinkedList<Vector2f> coordinateList, float radius) {
+        SpatialGrid<Vector2f> chosenGrid = new SpatialGrid<>(getSize(), radius);
         LinkedHashSet<Vector2f> chosenCoordinates = new LinkedHashSet<>();
-        while (coordinateList.size() > 0) {
-            Vector2f location = coordinateList.removeFirst();
-            chosenCoordinates.add(location);
-            coordinateList.removeIf((loc) -> location.getDistance(loc) < radius);
+        boolean[] tooClose = new boolean[1];
+        for (Vector2f location : coordinateList) {
+            tooClose[0] = false;
+            chosenGrid.forEachCandidate(location.x, location.y, chosen -> tooClose[0] |= chosen.getDistance(location) < radius);
+            if (!tooClose[0] && chosenCoordinates.add(location)) {
+                chosenGrid.add(location, location.x, location.y);
+            }
         }
         return new LinkedList<>(chosenCoordinates);
     }
 
+    /**
+     * Checks that the mask has the given value on every pixel stepped over on the way from start to end.
+     * Visits the same pixels as {@link Vector2f#getLine} without allocating the line.
+     */
+    public boolean isLineEqualTo(boolean value, Vector2f start, Vector2f end, double endDistance) {
+        float x = start.x;
+        float y = start.y;
+        while (true) {
+            float dx = x - end.x;
+            float dy = y - end.y;
+            if (!((float) StrictMath.sqrt(dx * dx + dy * dy) > endDistance)) {
+                return true;
+            }
+            if (getValueAt((int) x, (int) y) != value) {
+                return false;
+            }
+            float angle = (float) StrictMath.atan2(end.y - y, end.x - x);
+            x = StrictMath.round(x + StrictMath.cos(angle));
+            y = StrictMath.round(y + StrictMath.sin(angle));
+        }
+    }
+
     public LinkedList<Vector2f> getRandomCoordinates(float spacing) {
         return getRandomCoordinates(spacing, spacing);
     }
@@ -1002,11 +1134,45 @@ public strictfp class BinaryMask extends Mask<Boolean> {
     }
 
     public Vector2f getRandomPosition() {
-        ArrayList<Vector2f> coordinates = new ArrayList<>(getAllCoordinatesEqualTo(true, 1));
-        if (coordinates.size() == 0)
+        return getRandomPosition(random, 0, 0, getSize(), getSize(), null);
+    }
+
+    /**
+     * Picks a true pixel inside the circle with the given random, matching what getRandomPosition
+     * would return on a mask filled with {@link #fillCircle} and intersected with this one.
+     */
+    public Vector2f getRandomPositionInCircle(Random random, Vector2f center, float radius) {
+        int startX = StrictMath.round(StrictMath.max(0, center.x - radius));
+        int startY = StrictMath.round(StrictMath.max(0, center.y - radius));
+        int endX = StrictMath.round(StrictMath.min(getSize(), center.x + radius + 1));
+        int endY = StrictMath.round(StrictMath.min(getSize(), center.y + radius + 1));
+        return getRandomPosition(random, startX, startY, endX, endY, (x, y) -> {
+            float dx = center.x - x;
+            float dy = center.y - y;
+            return dx * dx + dy * dy <= radius * radius;
+        });
+    }
+
+    private Vector2f getRandomPosition(Random random, int startX, int startY, int endX, int endY, BiPredicate<Integer, Integer> filter) {
+        int count = 0;
+        for (int x = startX; x < endX; x++) {
+            for (int y = startY; y < endY; y++) {
+                if (getValueAt(x, y) && (filter == null || filter.test(x, y))) {
+                    count++;
+                }
+            }
+        }
+        if (count == 0)
             return null;
-        int cell = random.nextInt(coordinates.size());
-        return coordinates.get(cell);
+        int cell = random.nextInt(count);
+        for (int x = startX; x < endX; x++) {
+            for (int y = startY; y < endY; y++) {
+                if (getValueAt(x, y) && (filter == null || filter.test(x, y)) && cell-- == 0) {
+                    return new Vector2f(x, y);
+                }
+            }
+        }
+        return null;
     }
 
     public BinaryMask connectLocationToNearItsSymLocation(Vector2f start, String brushName, int size, int usesBatchSize,
@@ -187,6 +187,54 @@ public strictfp class FloatMask extends Mask<Float> {
         }
     }
 
+    /**
+     * Halves the resolution by averaging 2x2 blocks. On odd sizes the center row and column are kept one pixel wide,
+     * so the block grid is mirrored onto itself by every symmetry that maps pixels onto pixels.
+     * Unlike shrink this does not apply symmetry, so any asymmetry of the mask is kept.
+     */
+    public FloatMask downsample() {
+        int size = getSize();
+        int smallSize = getDownsampledIndex(size - 1, size) + 1;
+        int[] blockWidths = new int[smallSize];
+        for (int x = 0; x < size; x++) {
+            blockWidths[getDownsampledIndex(x, size)]++;
+        }
+        float[][] sums = new float[smallSize][smallSize];
+        for (int x = 0; x < size; x++) {
+            int smallX = getDownsampledIndex(x, size);
+            for (int y = 0; y < size; y++) {
+                sums[smallX][getDownsampledIndex(y, size)] += mask[x][y];
+            }
+        }
+        Float[][] smallMask = getEmptyMask(smallSize);
+        for (int x = 0; x < smallSize; x++) {
+            for (int y = 0; y < smallSize; y++) {
+                smallMask[x][y] = sums[x][y] / (blockWidths[x] * blockWidths[y]);
+            }
+        }
+        mask = smallMask;
+        VisualDebugger.visualizeMask(this);
+        return this;
+    }
+
+    /**
+     * Returns the index the given row or column ends up at after {@link #downsample()} of a mask of the given size.
+     */
+    public static int getDownsampledIndex(int index, int size) {
+        if (size % 2 == 0) {
+            return index / 2;
+        }
+        int center = size / 2;
+        int leftBlocks = (center + 1) / 2;
+        if (index < center) {
+            return index / 2;
+        } else if (index == center) {
+            return leftBlocks;
+        } else {
+            return leftBlocks + 1 + (index - center - 1) / 2;
+        }
+    }
+
     public FloatMask clear() {
         for (int x = 0; x < getSize(); x++) {
             for (int y = 0; y < getSize(); y++) {
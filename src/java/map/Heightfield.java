@@ -0,0 +1,61 @@
+package map;
+
+import lombok.Getter;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Immutable copy of a heightmap image for fast height lookups.
+ * Heights are interpolated bilinearly between heightmap samples.
+ */
+@Getter
+public strictfp class Heightfield {
+
+    private final int width;
+    private final int height;
+    private final float heightScale;
+    private final short[] samples;
+
+    public Heightfield(BufferedImage heightmap, float heightScale) {
+        this.width = heightmap.getWidth();
+        this.height = heightmap.getHeight();
+        this.heightScale = heightScale;
+        int[] pixels = heightmap.getRaster().getPixels(0, 0, width, height, (int[]) null);
+        this.samples = new short[width * height];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = (short) pixels[i];
+        }
+    }
+
+    public float getSample(int x, int z) {
+        return (samples[z * width + x] & 0xFFFF) * heightScale;
+    }
+
+    public boolean inBounds(float x, float z) {
+        return x >= 0 && x < width && z >= 0 && z < height;
+    }
+
+    public float getHeight(float x, float z) {
+        if (!inBounds(x, z)) {
+            return 0;
+        }
+        int x0 = (int) x;
+        int z0 = (int) z;
+        int x1 = StrictMath.min(x0 + 1, width - 1);
+        int z1 = StrictMath.min(z0 + 1, height - 1);
+        float dx = x - x0;
+        float dz = z - z0;
+        float top = getSample(x0, z0) * (1 - dx) + getSample(x1, z0) * dx;
+        float bottom = getSample(x0, z1) * (1 - dx) + getSample(x1, z1) * dx;
+        return top * (1 - dz) + bottom * dz;
+    }
+
+    public void getHeights(float[] xs, float[] zs, float[] heights) {
+        if (xs.length != zs.length || heights.length < xs.length) {
+            throw new IllegalArgumentException("Coordinate and height arrays do not match");
+        }
+        for (int i = 0; i < xs.length; i++) {
+            heights[i] = getHeight(xs[i], zs[i]);
+        }
+    }
+}
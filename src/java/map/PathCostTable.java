@@ -0,0 +1,17 @@
+package map;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public strictfp class PathCostTable {
+    private final String layer;
+    private final List<String> sourceIds;
+    private final List<String> targetIds;
+    private final float[][] costs;
+
+    public float getCost(int source, int target) {
+        return costs[source][target];
+    }
+}
@@ -0,0 +1,78 @@
+package map;
+
+import util.Vector3f;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Columnar storage for props placed in bulk. Paths are interned into a small table and every prop is
+ * kept as a path index, a position and a rotation in primitive arrays. Prop objects are only created
+ * when the props are handed out through {@link SCMap#getProps()}.
+ */
+public strictfp class PropBuffer {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final ArrayList<String> paths = new ArrayList<>();
+    private final HashMap<String, Integer> pathIndices = new HashMap<>();
+    private int[] pathIndex = new int[INITIAL_CAPACITY];
+    private float[] xs = new float[INITIAL_CAPACITY];
+    private float[] heights = new float[INITIAL_CAPACITY];
+    private float[] zs = new float[INITIAL_CAPACITY];
+    private float[] rotations = new float[INITIAL_CAPACITY];
+    private int size;
+
+    public int getPathIndex(String path) {
+        return pathIndices.computeIfAbsent(path, key -> {
+            paths.add(key);
+            return paths.size() - 1;
+        });
+    }
+
+    public void add(int path, float x, float z, float rotation) {
+        if (size == xs.length) {
+            int capacity = size * 2;
+            pathIndex = Arrays.copyOf(pathIndex, capacity);
+            xs = Arrays.copyOf(xs, capacity);
+            heights = Arrays.copyOf(heights, capacity);
+            zs = Arrays.copyOf(zs, capacity);
+            rotations = Arrays.copyOf(rotations, capacity);
+        }
+        pathIndex[size] = path;
+        xs[size] = x;
+        heights[size] = 0;
+        zs[size] = z;
+        rotations[size] = rotation;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void placeOnHeightmap(Heightfield heightfield) {
+        for (int i = 0; i < size; i++) {
+            heights[i] = heightfield.getHeight(xs[i], zs[i]);
+        }
+    }
+
+    public void drainTo(List<Prop> props) {
+        props.addAll(toProps());
+        clear();
+    }
+
+    public List<Prop> toProps() {
+        ArrayList<Prop> props = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            props.add(new Prop(paths.get(pathIndex[i]), new Vector3f(xs[i], heights[i], zs[i]), rotations[i]));
+        }
+        return props;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+}
@@ -0,0 +1,107 @@
+package map;
+
+import lombok.Getter;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * The pixel copies made by {@link Mask#applySymmetry(SymmetryType, boolean)} and {@link Mask#applySymmetry(float)},
+ * recorded once per raster size so they can be replayed directly on image samples.
+ * Copies are replayed in the order the mask makes them, so chained copies end up with the same values.
+ * Imperfect symmetries also interpolate the mask afterwards, which cannot be replayed on integer samples.
+ */
+@Getter
+public strictfp class RasterSymmetry {
+
+    private final int size;
+    private final int[] targets;
+    private final int[] sources;
+
+    private RasterSymmetry(int size, int[] targets, int[] sources) {
+        this.size = size;
+        this.targets = targets;
+        this.sources = sources;
+    }
+
+    public static RasterSymmetry of(Mask<?> mask, SymmetryType symmetryType, boolean reverse) {
+        CopyList copies = new CopyList(mask.getSize());
+        for (int x = mask.getMinXBound(symmetryType); x < mask.getMaxXBound(symmetryType); x++) {
+            for (int y = mask.getMinYBound(x, symmetryType); y < mask.getMaxYBound(x, symmetryType); y++) {
+                ArrayList<SymmetryPoint> symPoints = mask.getSymmetryPoints(x, y, symmetryType);
+                for (SymmetryPoint symmetryPoint : symPoints) {
+                    int symX = (int) symmetryPoint.getLocation().x;
+                    int symY = (int) symmetryPoint.getLocation().y;
+                    if (reverse) {
+                        copies.add(x, y, symX, symY);
+                    } else {
+                        copies.add(symX, symY, x, y);
+                    }
+                }
+            }
+        }
+        return copies.toRasterSymmetry();
+    }
+
+    public static RasterSymmetry of(Mask<?> mask, float angle) {
+        CopyList copies = new CopyList(mask.getSize());
+        for (int x = 0; x < mask.getSize(); x++) {
+            for (int y = 0; y < mask.getSize(); y++) {
+                if (mask.inHalf(x, y, angle)) {
+                    ArrayList<SymmetryPoint> symPoints = mask.getSymmetryPoints(x, y, SymmetryType.SPAWN);
+                    for (SymmetryPoint symmetryPoint : symPoints) {
+                        copies.add((int) symmetryPoint.getLocation().x, (int) symmetryPoint.getLocation().y, x, y);
+                    }
+                }
+            }
+        }
+        return copies.toRasterSymmetry();
+    }
+
+    public void apply(BufferedImage image) {
+        if (image.getWidth() != size || image.getHeight() != size) {
+            throw new IllegalArgumentException(String.format("Image size %dx%d does not match symmetry size %d", image.getWidth(), image.getHeight(), size));
+        }
+        WritableRaster raster = image.getRaster();
+        int bands = raster.getNumBands();
+        int[] samples = raster.getPixels(0, 0, size, size, (int[]) null);
+        for (int i = 0; i < targets.length; i++) {
+            int target = targets[i] * bands;
+            int source = sources[i] * bands;
+            for (int band = 0; band < bands; band++) {
+                samples[target + band] = samples[source + band];
+            }
+        }
+        raster.setPixels(0, 0, size, size, samples);
+    }
+
+    private static class CopyList {
+        private final int size;
+        private int[] targets = new int[1024];
+        private int[] sources = new int[1024];
+        private int count;
+
+        private CopyList(int size) {
+            this.size = size;
+        }
+
+        private void add(int targetX, int targetY, int sourceX, int sourceY) {
+            if (targetX < 0 || targetX >= size || targetY < 0 || targetY >= size || sourceX < 0 || sourceX >= size || sourceY < 0 || sourceY >= size) {
+                throw new ArrayIndexOutOfBoundsException(String.format("Symmetry copy (%d, %d) -> (%d, %d) is outside a raster of size %d", sourceX, sourceY, targetX, targetY, size));
+            }
+            if (count == targets.length) {
+                targets = Arrays.copyOf(targets, count * 2);
+                sources = Arrays.copyOf(sources, count * 2);
+            }
+            targets[count] = targetY * size + targetX;
+            sources[count] = sourceY * size + sourceX;
+            count++;
+        }
+
+        private RasterSymmetry toRasterSymmetry() {
+            return new RasterSymmetry(size, Arrays.copyOf(targets, count), Arrays.copyOf(sources, count));
+        }
+    }
+}
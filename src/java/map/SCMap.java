@@ -1,16 +1,21 @@
 package map;
 
 import biomes.Biome;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Setter;
 import lombok.SneakyThrows;
 import util.Vector2f;
 
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DataBufferUShort;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.stream.IntStream;
 
 @Data
 public strictfp class SCMap {
@@ -44,6 +49,7 @@ public strictfp class SCMap {
     private final ArrayList<Decal> decals;
     private final ArrayList<WaveGenerator> waveGenerators;
     private final ArrayList<Prop> props;
+    private final PropBuffer propBuffer;
     private final ArrayList<Army> armies;
     private final ArrayList<BlankMarker> blankMarkers;
     private final ArrayList<AIMarker> landAIMarkers;
@@ -56,11 +62,14 @@ public strictfp class SCMap {
     private final ArrayList<AIMarker> navalAreaAIMarkers;
     private final ArrayList<AIMarker> navalRallyMarkers;
     private final ArrayList<CubeMap> cubeMaps;
+    private final ArrayList<PathCostTable> pathCostTables;
     private String skyCubePath = "/textures/environment/defaultskycube.dds";
     private Biome biome;
     private SkyBox skyBox;
     private BufferedImage preview;
     private BufferedImage heightmap;
+    @Setter(AccessLevel.NONE)
+    private Heightfield heightfield;
     private BufferedImage normalMap;
     private BufferedImage textureMasksLow;
     private BufferedImage textureMasksHigh;
@@ -90,6 +99,7 @@ public strictfp class SCMap {
         decals = new ArrayList<>();
         decalGroups = new ArrayList<>();
         props = new ArrayList<>();
+        propBuffer = new PropBuffer();
         armies = new ArrayList<>();
         blankMarkers = new ArrayList<>();
         landAIMarkers = new ArrayList<>();
@@ -103,6 +113,7 @@ public strictfp class SCMap {
         navalRallyMarkers = new ArrayList<>();
         waveGenerators = new ArrayList<>();
         cubeMaps = new ArrayList<>();
+        pathCostTables = new ArrayList<>();
         cubeMaps.add(new CubeMap("<default>", "/textures/environment/defaultenvcube.dds"));
 
         generatePreview = true;
@@ -184,16 +195,23 @@ public strictfp class SCMap {
         decalGroups.add(decalGroup);
     }
 
-    public int getPropCount() {
-        return props.size();
+    public synchronized ArrayList<Prop> getProps() {
+        if (propBuffer.size() > 0) {
+            propBuffer.drainTo(props);
+        }
+        return props;
+    }
+
+    public synchronized int getPropCount() {
+        return props.size() + propBuffer.size();
     }
 
-    public Prop getProp(int i) {
-        return props.get(i);
+    public synchronized Prop getProp(int i) {
+        return getProps().get(i);
     }
 
-    public void addProp(Prop prop) {
-        props.add(prop);
+    public synchronized void addProp(Prop prop) {
+        getProps().add(prop);
     }
 
     public int getArmyCount() {
@@ -376,21 +394,70 @@ public strictfp class SCMap {
         cubeMaps.add(cubeMap);
     }
 
+    public void addPathCostTable(PathCostTable pathCostTable) {
+        pathCostTables.add(pathCostTable);
+    }
+
+    public synchronized Heightfield getHeightfield() {
+        if (heightfield == null) {
+            heightfield = new Heightfield(heightmap, heightMapScale);
+        }
+        return heightfield;
+    }
+
+    public synchronized void setHeightmap(BufferedImage heightmap) {
+        this.heightmap = heightmap;
+        heightfield = null;
+    }
+
+    public synchronized void setHeightMapScale(float heightMapScale) {
+        this.heightMapScale = heightMapScale;
+        heightfield = null;
+    }
+
     public void setHeightImage(FloatMask heightmap) {
-        for (int y = 0; y < size + 1; y++) {
-            for (int x = 0; x < size + 1; x++) {
-                this.heightmap.getRaster().setPixel(x, y, new int[]{(short) (heightmap.getValueAt(x, y) / heightMapScale)});
-            }
+        int width = this.heightmap.getWidth();
+        int height = this.heightmap.getHeight();
+        Float[][] heights = heightmap.mask;
+        if (this.heightmap.getType() == BufferedImage.TYPE_USHORT_GRAY && this.heightmap.getRaster().getParent() == null) {
+            short[] data = ((DataBufferUShort) this.heightmap.getRaster().getDataBuffer()).getData();
+            IntStream.range(0, height).parallel().forEach(y -> {
+                for (int x = 0; x < width; x++) {
+                    data[y * width + x] = (short) (heights[x][y] / heightMapScale);
+                }
+            });
+        } else {
+            int[] samples = new int[width * height];
+            IntStream.range(0, height).parallel().forEach(y -> {
+                for (int x = 0; x < width; x++) {
+                    samples[y * width + x] = (short) (heights[x][y] / heightMapScale);
+                }
+            });
+            this.heightmap.getRaster().setPixels(0, 0, width, height, samples);
+        }
+        synchronized (this) {
+            heightfield = null;
+        }
+    }
+
+    public void applyHeightmapSymmetry(RasterSymmetry rasterSymmetry) {
+        rasterSymmetry.apply(heightmap);
+        synchronized (this) {
+            heightfield = null;
         }
     }
 
     public FloatMask getHeightMask(SymmetrySettings symmetrySettings) {
-        FloatMask heightMask = new FloatMask(this.heightmap.getHeight(), null, symmetrySettings);
-        for (int y = 0; y < size + 1; y++) {
-            for (int x = 0; x < size + 1; x++) {
-                heightMask.setValueAt(x, y, this.heightmap.getRaster().getPixel(x, y, new int[1])[0] * heightMapScale);
+        int width = this.heightmap.getWidth();
+        int height = this.heightmap.getHeight();
+        FloatMask heightMask = new FloatMask(height, null, symmetrySettings);
+        Float[][] heights = heightMask.mask;
+        int[] samples = this.heightmap.getRaster().getPixels(0, 0, width, height, (int[]) null);
+        IntStream.range(0, height).parallel().forEach(y -> {
+            for (int x = 0; x < width; x++) {
+                heights[x][y] = samples[y * width + x] * heightMapScale;
             }
-        }
+        });
         return heightMask;
     }
 
@@ -413,115 +480,90 @@ public strictfp class SCMap {
     }
 
     public void setTextureMasksLowScaled(FloatMask mask0, FloatMask mask1, FloatMask mask2, FloatMask mask3) {
-        for (int y = 0; y < textureMasksLow.getHeight(); y++) {
-            for (int x = 0; x < textureMasksLow.getWidth(); x++) {
-                int val0 = mask0.getValueAt(x, y) > 0f ? StrictMath.round(StrictMath.min(1f, mask0.getValueAt(x, y)) * 127 + 128) : 0;
-                int val1 = mask1.getValueAt(x, y) > 0f ? StrictMath.round(StrictMath.min(1f, mask1.getValueAt(x, y)) * 127 + 128) : 0;
-                int val2 = mask2.getValueAt(x, y) > 0f ? StrictMath.round(StrictMath.min(1f, mask2.getValueAt(x, y)) * 127 + 128) : 0;
-                int val3 = mask3.getValueAt(x, y) > 0f ? StrictMath.round(StrictMath.min(1f, mask3.getValueAt(x, y)) * 127 + 128) : 0;
-                textureMasksLow.getRaster().setPixel(x, y, new int[]{val0, val1, val2, val3});
-            }
-        }
+        setTextureMasks(textureMasksLow, new FloatMask[]{mask0, mask1, mask2, mask3}, true);
     }
 
     public void setTextureMasksHighScaled(FloatMask mask0, FloatMask mask1, FloatMask mask2, FloatMask mask3) {
-        for (int y = 0; y < textureMasksHigh.getHeight(); y++) {
-            for (int x = 0; x < textureMasksHigh.getWidth(); x++) {
-                int val0 = mask0.getValueAt(x, y) > 0f ? StrictMath.round(StrictMath.min(1f, mask0.getValueAt(x, y)) * 127 + 128) : 0;
-                int val1 = mask1.getValueAt(x, y) > 0f ? StrictMath.round(StrictMath.min(1f, mask1.getValueAt(x, y)) * 127 + 128) : 0;
-                int val2 = mask2.getValueAt(x, y) > 0f ? StrictMath.round(StrictMath.min(1f, mask2.getValueAt(x, y)) * 127 + 128) : 0;
-                int val3 = mask3.getValueAt(x, y) > 0f ? StrictMath.round(StrictMath.min(1f, mask3.getValueAt(x, y)) * 127 + 128) : 0;
-                textureMasksHigh.getRaster().setPixel(x, y, new int[]{val0, val1, val2, val3});
-            }
-        }
+        setTextureMasks(textureMasksHigh, new FloatMask[]{mask0, mask1, mask2, mask3}, true);
     }
 
     public void setTextureMasksLowRaw(FloatMask mask0, FloatMask mask1, FloatMask mask2, FloatMask mask3) {
-        for (int y = 0; y < textureMasksLow.getHeight(); y++) {
-            for (int x = 0; x < textureMasksLow.getWidth(); x++) {
-                float val0 = mask0.getValueAt(x, y);
-                float val1 = mask1.getValueAt(x, y);
-                float val2 = mask2.getValueAt(x, y);
-                float val3 = mask3.getValueAt(x, y);
-                textureMasksLow.getRaster().setPixel(x, y, new float[]{val0, val1, val2, val3});
-            }
-        }
+        setTextureMasks(textureMasksLow, new FloatMask[]{mask0, mask1, mask2, mask3}, false);
     }
 
     public void setTextureMasksHighRaw(FloatMask mask0, FloatMask mask1, FloatMask mask2, FloatMask mask3) {
-        for (int y = 0; y < textureMasksHigh.getHeight(); y++) {
-            for (int x = 0; x < textureMasksHigh.getWidth(); x++) {
-                float val0 = mask0.getValueAt(x, y);
-                float val1 = mask1.getValueAt(x, y);
-                float val2 = mask2.getValueAt(x, y);
-                float val3 = mask3.getValueAt(x, y);
-                textureMasksHigh.getRaster().setPixel(x, y, new float[]{val0, val1, val2, val3});
-            }
-        }
+        setTextureMasks(textureMasksHigh, new FloatMask[]{mask0, mask1, mask2, mask3}, false);
     }
 
     public FloatMask[] getTextureMasksScaled(SymmetrySettings symmetrySettings) {
-        FloatMask mask0 = new FloatMask(this.textureMasksLow.getHeight(), null, symmetrySettings);
-        FloatMask mask1 = new FloatMask(this.textureMasksLow.getHeight(), null, symmetrySettings);
-        FloatMask mask2 = new FloatMask(this.textureMasksLow.getHeight(), null, symmetrySettings);
-        FloatMask mask3 = new FloatMask(this.textureMasksLow.getHeight(), null, symmetrySettings);
-        for (int y = 0; y < textureMasksLow.getHeight(); y++) {
-            for (int x = 0; x < textureMasksLow.getHeight(); x++) {
-                int[] valsLow = new int[4];
-                textureMasksLow.getRaster().getPixel(x, y, valsLow);
-                mask0.setValueAt(x, y, valsLow[0] > 0 ? (valsLow[0] - 128) / 127f : 0f);
-                mask1.setValueAt(x, y, valsLow[1] > 0 ? (valsLow[1] - 128) / 127f : 0f);
-                mask2.setValueAt(x, y, valsLow[2] > 0 ? (valsLow[2] - 128) / 127f : 0f);
-                mask3.setValueAt(x, y, valsLow[3] > 0 ? (valsLow[3] - 128) / 127f : 0f);
+        FloatMask[] lowMasks = getTextureMasks(textureMasksLow, symmetrySettings, true);
+        FloatMask[] highMasks = getTextureMasks(textureMasksHigh, symmetrySettings, true);
+        return new FloatMask[]{lowMasks[0], lowMasks[1], lowMasks[2], lowMasks[3], highMasks[0], highMasks[1], highMasks[2], highMasks[3]};
+    }
+
+    public FloatMask[] getTextureMasksRaw(SymmetrySettings symmetrySettings) {
+        FloatMask[] lowMasks = getTextureMasks(textureMasksLow, symmetrySettings, false);
+        FloatMask[] highMasks = getTextureMasks(textureMasksHigh, symmetrySettings, false);
+        return new FloatMask[]{lowMasks[0], lowMasks[1], lowMasks[2], lowMasks[3], highMasks[0], highMasks[1], highMasks[2], highMasks[3]};
+    }
+
+    private static void setTextureMasks(BufferedImage image, FloatMask[] masks, boolean scaled) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        Float[][] values0 = masks[0].mask;
+        Float[][] values1 = masks[1].mask;
+        Float[][] values2 = masks[2].mask;
+        Float[][] values3 = masks[3].mask;
+        boolean packed = image.getType() == BufferedImage.TYPE_INT_ARGB && image.getRaster().getParent() == null;
+        int[] data = packed ? ((DataBufferInt) image.getRaster().getDataBuffer()).getData() : new int[width * height * 4];
+        IntStream.range(0, height).parallel().forEach(y -> {
+            for (int x = 0; x < width; x++) {
+                int val0 = getTextureSample(values0[x][y], scaled);
+                int val1 = getTextureSample(values1[x][y], scaled);
+                int val2 = getTextureSample(values2[x][y], scaled);
+                int val3 = getTextureSample(values3[x][y], scaled);
+                int index = y * width + x;
+                if (packed) {
+                    data[index] = val3 << 24 | val0 << 16 | val1 << 8 | val2;
+                } else {
+                    data[index * 4] = val0;
+                    data[index * 4 + 1] = val1;
+                    data[index * 4 + 2] = val2;
+                    data[index * 4 + 3] = val3;
+                }
             }
+        });
+        if (!packed) {
+            image.getRaster().setPixels(0, 0, width, height, data);
         }
-        FloatMask mask4 = new FloatMask(this.textureMasksHigh.getHeight(), null, symmetrySettings);
-        FloatMask mask5 = new FloatMask(this.textureMasksHigh.getHeight(), null, symmetrySettings);
-        FloatMask mask6 = new FloatMask(this.textureMasksHigh.getHeight(), null, symmetrySettings);
-        FloatMask mask7 = new FloatMask(this.textureMasksHigh.getHeight(), null, symmetrySettings);
-        for (int y = 0; y < textureMasksHigh.getHeight(); y++) {
-            for (int x = 0; x < textureMasksHigh.getHeight(); x++) {
-                int[] valsHigh = new int[4];
-                textureMasksHigh.getRaster().getPixel(x, y, valsHigh);
-                mask4.setValueAt(x, y, valsHigh[0] > 0 ? (valsHigh[0] - 128) / 127f : 0f);
-                mask5.setValueAt(x, y, valsHigh[1] > 0 ? (valsHigh[1] - 128) / 127f : 0f);
-                mask6.setValueAt(x, y, valsHigh[2] > 0 ? (valsHigh[2] - 128) / 127f : 0f);
-                mask7.setValueAt(x, y, valsHigh[3] > 0 ? (valsHigh[3] - 128) / 127f : 0f);
-            }
+    }
+
+    private static int getTextureSample(float value, boolean scaled) {
+        if (scaled) {
+            return value > 0f ? StrictMath.round(StrictMath.min(1f, value) * 127 + 128) : 0;
         }
-        return new FloatMask[]{mask0, mask1, mask2, mask3, mask4, mask5, mask6, mask7};
+        return (int) value & 0xFF;
     }
 
-    public FloatMask[] getTextureMasksRaw(SymmetrySettings symmetrySettings) {
-        FloatMask mask0 = new FloatMask(this.textureMasksLow.getHeight(), null, symmetrySettings);
-        FloatMask mask1 = new FloatMask(this.textureMasksLow.getHeight(), null, symmetrySettings);
-        FloatMask mask2 = new FloatMask(this.textureMasksLow.getHeight(), null, symmetrySettings);
-        FloatMask mask3 = new FloatMask(this.textureMasksLow.getHeight(), null, symmetrySettings);
-        for (int y = 0; y < textureMasksLow.getHeight(); y++) {
-            for (int x = 0; x < textureMasksLow.getHeight(); x++) {
-                float[] valsLow = new float[4];
-                textureMasksLow.getRaster().getPixel(x, y, valsLow);
-                mask0.setValueAt(x, y, valsLow[0]);
-                mask1.setValueAt(x, y, valsLow[1]);
-                mask2.setValueAt(x, y, valsLow[2]);
-                mask3.setValueAt(x, y, valsLow[3]);
-            }
+    private static FloatMask[] getTextureMasks(BufferedImage image, SymmetrySettings symmetrySettings, boolean scaled) {
+        int size = image.getHeight();
+        FloatMask[] masks = new FloatMask[4];
+        Float[][][] values = new Float[4][][];
+        for (int i = 0; i < 4; i++) {
+            masks[i] = new FloatMask(size, null, symmetrySettings);
+            values[i] = masks[i].mask;
         }
-        FloatMask mask4 = new FloatMask(this.textureMasksHigh.getHeight(), null, symmetrySettings);
-        FloatMask mask5 = new FloatMask(this.textureMasksHigh.getHeight(), null, symmetrySettings);
-        FloatMask mask6 = new FloatMask(this.textureMasksHigh.getHeight(), null, symmetrySettings);
-        FloatMask mask7 = new FloatMask(this.textureMasksHigh.getHeight(), null, symmetrySettings);
-        for (int y = 0; y < textureMasksHigh.getHeight(); y++) {
-            for (int x = 0; x < textureMasksHigh.getHeight(); x++) {
-                float[] valsHigh = new float[4];
-                textureMasksHigh.getRaster().getPixel(x, y, valsHigh);
-                mask4.setValueAt(x, y, valsHigh[0]);
-                mask5.setValueAt(x, y, valsHigh[1]);
-                mask6.setValueAt(x, y, valsHigh[2]);
-                mask7.setValueAt(x, y, valsHigh[3]);
+        int[] samples = image.getRaster().getPixels(0, 0, size, size, (int[]) null);
+        IntStream.range(0, size).parallel().forEach(y -> {
+            for (int x = 0; x < size; x++) {
+                int index = (y * size + x) * 4;
+                for (int i = 0; i < 4; i++) {
+                    int sample = samples[index + i];
+                    values[i][x][y] = scaled ? (sample > 0 ? (sample - 128) / 127f : 0f) : (float) sample;
+                }
             }
-        }
-        return new FloatMask[]{mask0, mask1, mask2, mask3, mask4, mask5, mask6, mask7};
+        });
+        return masks;
     }
 
     @SneakyThrows
@@ -547,6 +589,7 @@ public strictfp class SCMap {
         for (int i = 0; i < decals.size(); i++) {
             stringBuilder.append(String.format("Decal %d: %s%n", i, decals.get(i).toString()));
         }
+        ArrayList<Prop> props = getProps();
         for (int i = 0; i < props.size(); i++) {
             stringBuilder.append(String.format("Prop %d: %s%n", i, props.get(i).toString()));
         }
@@ -27,6 +27,8 @@ public strictfp class MapPopulator {
     private String mapFolder;
     private String mapName;
     private SCMap map;
+    private String error;
+    private boolean debug = DEBUG;
     private Path propsPath;
     private boolean populateSpawns;
     private boolean populateMexes;
@@ -67,19 +69,24 @@ public strictfp class MapPopulator {
     public static void main(String[] args) throws IOException {
 
         Locale.setDefault(Locale.US);
-        if (DEBUG) {
-            Path debugDir = Paths.get(".", "debug");
-            FileUtils.deleteRecursiveIfExists(debugDir);
-            Files.createDirectory(debugDir);
-        }
 
         MapPopulator populator = new MapPopulator();
 
         populator.interpretArguments(args);
 
+        if (populator.debug) {
+            DEBUG = true;
+            Path debugDir = Paths.get(".", "debug");
+            FileUtils.deleteRecursiveIfExists(debugDir);
+            Files.createDirectory(debugDir);
+        }
+
         System.out.println("Populating map " + populator.inMapPath);
         populator.importMap();
         populator.populate();
+        if (populator.error != null) {
+            System.exit(1);
+        }
         populator.exportMap();
         System.out.println("Saving map to " + populator.outFolderPath.toAbsolutePath());
         System.out.println("Terrain Symmetry: " + populator.symmetrySettings.getTerrainSymmetry());
@@ -126,7 +133,7 @@ public strictfp class MapPopulator {
         }
 
         if (arguments.containsKey("debug")) {
-            DEBUG = true;
+            debug = true;
         }
 
         if (!arguments.containsKey("in-folder-path")) {
@@ -215,6 +222,7 @@ public strictfp class MapPopulator {
         } catch (IOException e) {
             e.printStackTrace();
             System.err.println("Error while saving the map.");
+            error = e.toString();
         }
     }
 
@@ -227,9 +235,18 @@ public strictfp class MapPopulator {
         } catch (IOException e) {
             e.printStackTrace();
             System.err.println("Error while saving the map.");
+            error = e.toString();
         }
     }
 
+    public SCMap getMap() {
+        return map;
+    }
+
+    public String getError() {
+        return error;
+    }
+
     public void populate() {
         /*SupComSlopeValues
         const float FlatHeight = 0.002f;
@@ -495,7 +512,8 @@ public strictfp class MapPopulator {
             } catch (IOException e) {
                 e.printStackTrace();
                 System.out.print("An error occured while loading props\n");
-                System.exit(1);
+                error = e.toString();
+                return;
             }
 
             BinaryMask flatEnough = new BinaryMask(slope, .02f, random.nextLong());
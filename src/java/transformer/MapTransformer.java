@@ -7,13 +7,19 @@ import importer.ScenarioImporter;
 import map.*;
 import util.*;
 
+import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public strictfp class MapTransformer {
 
@@ -24,9 +30,12 @@ public strictfp class MapTransformer {
     private String mapFolder;
     private String mapName;
     private SCMap map;
+    private String error;
+    private boolean debug = DEBUG;
 
     //masks used in transformation
     private FloatMask heightmapBase;
+    private Heightfield heightfield;
 
     private boolean transformResources;
     private boolean transformProps;
@@ -41,16 +50,18 @@ public strictfp class MapTransformer {
     public static void main(String[] args) throws IOException {
 
         Locale.setDefault(Locale.US);
-        if (DEBUG) {
-            Path debugDir = Paths.get(".", "debug");
-            FileUtils.deleteRecursiveIfExists(debugDir);
-            Files.createDirectory(debugDir);
-        }
 
         MapTransformer transformer = new MapTransformer();
 
         transformer.interpretArguments(args);
 
+        if (transformer.debug) {
+            DEBUG = true;
+            Path debugDir = Paths.get(".", "debug");
+            FileUtils.deleteRecursiveIfExists(debugDir);
+            Files.createDirectory(debugDir);
+        }
+
         System.out.println("Transforming map " + transformer.inMapPath);
         transformer.importMap();
         transformer.transform();
@@ -85,7 +96,7 @@ public strictfp class MapTransformer {
         }
 
         if (arguments.containsKey("debug")) {
-            DEBUG = true;
+            debug = true;
         }
 
         if (!arguments.containsKey("in-folder-path")) {
@@ -187,6 +198,7 @@ public strictfp class MapTransformer {
         } catch (IOException e) {
             e.printStackTrace();
             System.err.println("Error while saving the map.");
+            error = e.toString();
         }
     }
 
@@ -199,95 +211,59 @@ public strictfp class MapTransformer {
         } catch (IOException e) {
             e.printStackTrace();
             System.err.println("Error while saving the map.");
+            error = e.toString();
         }
     }
 
+    public SCMap getMap() {
+        return map;
+    }
+
+    public String getError() {
+        return error;
+    }
+
     public void transform() {
 
         heightmapBase = map.getHeightMask(symmetrySettings);
+        // markers are placed on the heights from before the terrain symmetry
+        heightfield = map.getHeightfield();
 
         if (transformTerrain) {
-            FloatMask previewMask = map.getPreviewMask(symmetrySettings);
-            FloatMask[] texturesMasks = map.getTextureMasksRaw(symmetrySettings);
-            FloatMask texture1 = texturesMasks[0];
-            FloatMask texture2 = texturesMasks[1];
-            FloatMask texture3 = texturesMasks[2];
-            FloatMask texture4 = texturesMasks[3];
-            FloatMask texture5 = texturesMasks[4];
-            FloatMask texture6 = texturesMasks[5];
-            FloatMask texture7 = texturesMasks[6];
-            FloatMask texture8 = texturesMasks[7];
-
-            if (!useAngle) {
-                previewMask.applySymmetry(SymmetryType.SPAWN, reverseSide);
-                heightmapBase.applySymmetry(SymmetryType.SPAWN, reverseSide);
-                texture1.applySymmetry(SymmetryType.SPAWN, reverseSide);
-                texture2.applySymmetry(SymmetryType.SPAWN, reverseSide);
-                texture3.applySymmetry(SymmetryType.SPAWN, reverseSide);
-                texture4.applySymmetry(SymmetryType.SPAWN, reverseSide);
-                texture5.applySymmetry(SymmetryType.SPAWN, reverseSide);
-                texture6.applySymmetry(SymmetryType.SPAWN, reverseSide);
-                texture7.applySymmetry(SymmetryType.SPAWN, reverseSide);
-                texture8.applySymmetry(SymmetryType.SPAWN, reverseSide);
-            } else {
-                previewMask.applySymmetry(angle);
-                heightmapBase.applySymmetry(angle);
-                texture1.applySymmetry(angle);
-                texture2.applySymmetry(angle);
-                texture3.applySymmetry(angle);
-                texture4.applySymmetry(angle);
-                texture5.applySymmetry(angle);
-                texture6.applySymmetry(angle);
-                texture7.applySymmetry(angle);
-                texture8.applySymmetry(angle);
+            long startTime = System.currentTimeMillis();
+            CompletableFuture<Void> terrainFuture = CompletableFuture.runAsync(this::transformTerrainLayers);
+
+            List<ArrayList<AIMarker>> aiMarkerLists = List.of(map.getAirAIMarkers(), map.getLandAIMarkers(), map.getNavyAIMarkers(),
+                    map.getAmphibiousAIMarkers(), map.getRallyMarkers(), map.getExpansionAIMarkers(), map.getLargeExpansionAIMarkers(),
+                    map.getNavalAreaAIMarkers(), map.getNavalRallyMarkers());
+            CompletableFuture<Void> blankMarkerFuture = CompletableFuture.runAsync(() -> {
+                ArrayList<BlankMarker> blankMarkers = getTransformedBlankMarkers(new ArrayList<>(map.getBlankMarkers()));
+                map.getBlankMarkers().clear();
+                map.getBlankMarkers().addAll(blankMarkers);
+            });
+            aiMarkerLists.parallelStream().forEach(aiMarkers -> {
+                ArrayList<AIMarker> transformedAIMarkers = getTransformedAIMarkers(new ArrayList<>(aiMarkers));
+                aiMarkers.clear();
+                aiMarkers.addAll(transformedAIMarkers);
+            });
+
+            blankMarkerFuture.join();
+            terrainFuture.join();
+            heightfield = map.getHeightfield();
+            if (debug) {
+                System.out.printf("Terrain transform done: %d ms\n", System.currentTimeMillis() - startTime);
             }
-
-            ArrayList<BlankMarker> blankMarkers = new ArrayList<>(map.getBlankMarkers());
-            map.getBlankMarkers().clear();
-            map.getBlankMarkers().addAll(getTransformedBlankMarkers(blankMarkers));
-            ArrayList<AIMarker> aiMarkers = new ArrayList<>(map.getAirAIMarkers());
-            map.getAirAIMarkers().clear();
-            map.getAirAIMarkers().addAll(getTransformedAIMarkers(aiMarkers));
-            aiMarkers = new ArrayList<>(map.getLandAIMarkers());
-            map.getLandAIMarkers().clear();
-            map.getLandAIMarkers().addAll(getTransformedAIMarkers(aiMarkers));
-            aiMarkers = new ArrayList<>(map.getNavyAIMarkers());
-            map.getNavyAIMarkers().clear();
-            map.getNavyAIMarkers().addAll(getTransformedAIMarkers(aiMarkers));
-            aiMarkers = new ArrayList<>(map.getAmphibiousAIMarkers());
-            map.getAmphibiousAIMarkers().clear();
-            map.getAmphibiousAIMarkers().addAll(getTransformedAIMarkers(aiMarkers));
-            aiMarkers = new ArrayList<>(map.getRallyMarkers());
-            map.getRallyMarkers().clear();
-            map.getRallyMarkers().addAll(getTransformedAIMarkers(aiMarkers));
-            aiMarkers = new ArrayList<>(map.getExpansionAIMarkers());
-            map.getExpansionAIMarkers().clear();
-            map.getExpansionAIMarkers().addAll(getTransformedAIMarkers(aiMarkers));
-            aiMarkers = new ArrayList<>(map.getLargeExpansionAIMarkers());
-            map.getLargeExpansionAIMarkers().clear();
-            map.getLargeExpansionAIMarkers().addAll(getTransformedAIMarkers(aiMarkers));
-            aiMarkers = new ArrayList<>(map.getNavalAreaAIMarkers());
-            map.getNavalAreaAIMarkers().clear();
-            map.getNavalAreaAIMarkers().addAll(getTransformedAIMarkers(aiMarkers));
-            aiMarkers = new ArrayList<>(map.getNavalRallyMarkers());
-            map.getNavalRallyMarkers().clear();
-            map.getNavalRallyMarkers().addAll(getTransformedAIMarkers(aiMarkers));
-
-            map.setPreviewImage(previewMask);
-            map.setHeightImage(heightmapBase);
-            map.setTextureMasksLowRaw(texture1, texture2, texture3, texture4);
-            map.setTextureMasksHighRaw(texture5, texture6, texture7, texture8);
         }
         if (transformResources) {
-            ArrayList<Spawn> spawns = new ArrayList<>(map.getSpawns());
-            ArrayList<Mex> mexes = new ArrayList<>(map.getMexes());
-            ArrayList<Hydro> hydros = new ArrayList<>(map.getHydros());
+            CompletableFuture<ArrayList<Spawn>> spawnsFuture = CompletableFuture.supplyAsync(() -> getTransformedSpawns(new ArrayList<>(map.getSpawns())));
+            CompletableFuture<ArrayList<Mex>> mexesFuture = CompletableFuture.supplyAsync(() -> getTransformedMexes(new ArrayList<>(map.getMexes())));
+            ArrayList<Hydro> hydros = getTransformedHydros(new ArrayList<>(map.getHydros()));
             map.getSpawns().clear();
-            map.getSpawns().addAll(getTransformedSpawns(spawns));
+            map.getSpawns().addAll(spawnsFuture.join());
             map.getMexes().clear();
-            map.getMexes().addAll(getTransformedMexes(mexes));
+            map.getMexes().addAll(mexesFuture.join());
             map.getHydros().clear();
-            map.getHydros().addAll(getTransformedHydros(hydros));
+            map.getHydros().addAll(hydros);
         }
 
         if (transformUnits) {
@@ -307,16 +283,54 @@ public strictfp class MapTransformer {
         }
     }
 
+    /**
+     * Applies the symmetry to the heightmap, preview and texture masks, one layer per task.
+     * Copy symmetries are replayed directly on the image samples, only symmetries that interpolate go through float masks.
+     */
+    private void transformTerrainLayers() {
+        if (useAngle && symmetrySettings.getSymmetry(SymmetryType.SPAWN) != Symmetry.POINT2) {
+            System.out.println("Spawn Symmetry must equal POINT2");
+        }
+        if (useAngle || symmetrySettings.getSymmetry(SymmetryType.SPAWN).isPerfectSymmetry()) {
+            Map<Integer, RasterSymmetry> rasterSymmetries = new ConcurrentHashMap<>();
+            Function<BufferedImage, RasterSymmetry> symmetryForImage = image -> rasterSymmetries.computeIfAbsent(image.getHeight(), this::getRasterSymmetry);
+            Stream.<Runnable>of(
+                    () -> map.applyHeightmapSymmetry(symmetryForImage.apply(map.getHeightmap())),
+                    () -> symmetryForImage.apply(map.getPreview()).apply(map.getPreview()),
+                    () -> symmetryForImage.apply(map.getTextureMasksLow()).apply(map.getTextureMasksLow()),
+                    () -> symmetryForImage.apply(map.getTextureMasksHigh()).apply(map.getTextureMasksHigh())
+            ).parallel().forEach(Runnable::run);
+        } else {
+            FloatMask heightMask = new FloatMask(heightmapBase, null);
+            FloatMask previewMask = map.getPreviewMask(symmetrySettings);
+            FloatMask[] textureMasks = map.getTextureMasksRaw(symmetrySettings);
+            ArrayList<FloatMask> layers = new ArrayList<>(List.of(textureMasks));
+            layers.add(heightMask);
+            layers.add(previewMask);
+            layers.parallelStream().forEach(layer -> layer.applySymmetry(SymmetryType.SPAWN, reverseSide));
+
+            map.setPreviewImage(previewMask);
+            map.setHeightImage(heightMask);
+            map.setTextureMasksLowRaw(textureMasks[0], textureMasks[1], textureMasks[2], textureMasks[3]);
+            map.setTextureMasksHighRaw(textureMasks[4], textureMasks[5], textureMasks[6], textureMasks[7]);
+        }
+    }
+
+    private RasterSymmetry getRasterSymmetry(int size) {
+        FloatMask template = size == heightmapBase.getSize() ? heightmapBase : new FloatMask(size, null, symmetrySettings);
+        return useAngle ? RasterSymmetry.of(template, angle) : RasterSymmetry.of(template, SymmetryType.SPAWN, reverseSide);
+    }
+
     public ArrayList<Spawn> getTransformedSpawns(ArrayList<Spawn> spawns) {
         ArrayList<Spawn> transformedSpawns = new ArrayList<>();
         spawns.forEach(spawn -> {
             if ((!useAngle && heightmapBase.inTeam(spawn.getPosition(), reverseSide)) || (useAngle && heightmapBase.inHalf(spawn.getPosition(), angle))) {
-                transformedSpawns.add(new Spawn("", Placement.placeOnHeightmap(map, spawn.getPosition()), spawn.getNoRushOffset()));
+                transformedSpawns.add(new Spawn("", Placement.placeOnHeightmap(heightfield, spawn.getPosition()), spawn.getNoRushOffset()));
                 ArrayList<SymmetryPoint> symmetryPoints = heightmapBase.getSymmetryPoints(spawn.getPosition(), SymmetryType.SPAWN);
                 for (SymmetryPoint symmetryPoint : symmetryPoints) {
                     Vector2f symmetricNoRushOffset = new Vector2f(spawn.getNoRushOffset());
                     symmetricNoRushOffset.flip(new Vector2f(0, 0), symmetryPoint.getSymmetry());
-                    transformedSpawns.add(new Spawn("", Placement.placeOnHeightmap(map, symmetryPoint.getLocation()), symmetricNoRushOffset));
+                    transformedSpawns.add(new Spawn("", Placement.placeOnHeightmap(heightfield, symmetryPoint.getLocation()), symmetricNoRushOffset));
                 }
             }
         });
@@ -340,69 +354,69 @@ public strictfp class MapTransformer {
     }
 
     public ArrayList<Mex> getTransformedMexes(ArrayList<Mex> mexes) {
-        ArrayList<Mex> transformedMexes = new ArrayList<>();
-        mexes.forEach(mex -> {
+        return mexes.parallelStream().flatMap(mex -> {
+            ArrayList<Mex> transformedMexes = new ArrayList<>();
             if ((!useAngle && heightmapBase.inTeam(mex.getPosition(), reverseSide)) || (useAngle && heightmapBase.inHalf(mex.getPosition(), angle))) {
-                transformedMexes.add(new Mex(mex.getId(), Placement.placeOnHeightmap(map, mex.getPosition())));
+                transformedMexes.add(new Mex(mex.getId(), Placement.placeOnHeightmap(heightfield, mex.getPosition())));
                 ArrayList<SymmetryPoint> symmetryPoints = heightmapBase.getSymmetryPoints(mex.getPosition(), SymmetryType.SPAWN);
                 for (SymmetryPoint symmetryPoint : symmetryPoints) {
-                    transformedMexes.add(new Mex(mex.getId() + " sym", Placement.placeOnHeightmap(map, symmetryPoint.getLocation())));
+                    transformedMexes.add(new Mex(mex.getId() + " sym", Placement.placeOnHeightmap(heightfield, symmetryPoint.getLocation())));
                 }
             }
-        });
-        return transformedMexes;
+            return transformedMexes.stream();
+        }).collect(Collectors.toCollection(ArrayList::new));
     }
 
     public ArrayList<Hydro> getTransformedHydros(ArrayList<Hydro> hydros) {
-        ArrayList<Hydro> transformedHydros = new ArrayList<>();
-        hydros.forEach(hydro -> {
+        return hydros.parallelStream().flatMap(hydro -> {
+            ArrayList<Hydro> transformedHydros = new ArrayList<>();
             if ((!useAngle && heightmapBase.inTeam(hydro.getPosition(), reverseSide)) || (useAngle && heightmapBase.inHalf(hydro.getPosition(), angle))) {
-                transformedHydros.add(new Hydro(hydro.getId(), Placement.placeOnHeightmap(map, hydro.getPosition())));
+                transformedHydros.add(new Hydro(hydro.getId(), Placement.placeOnHeightmap(heightfield, hydro.getPosition())));
                 ArrayList<SymmetryPoint> symmetryPoints = heightmapBase.getSymmetryPoints(hydro.getPosition(), SymmetryType.SPAWN);
                 for (SymmetryPoint symmetryPoint : symmetryPoints) {
-                    transformedHydros.add(new Hydro(hydro.getId() + " sym", Placement.placeOnHeightmap(map, symmetryPoint.getLocation())));
+                    transformedHydros.add(new Hydro(hydro.getId() + " sym", Placement.placeOnHeightmap(heightfield, symmetryPoint.getLocation())));
                 }
             }
-        });
-        return transformedHydros;
+            return transformedHydros.stream();
+        }).collect(Collectors.toCollection(ArrayList::new));
     }
 
     public ArrayList<AIMarker> getTransformedAIMarkers(ArrayList<AIMarker> aiMarkers) {
-        ArrayList<AIMarker> transformedAImarkers = new ArrayList<>();
-        aiMarkers.forEach(aiMarker -> {
+        return aiMarkers.parallelStream().flatMap(aiMarker -> {
+            ArrayList<AIMarker> transformedAImarkers = new ArrayList<>();
             if ((!useAngle && heightmapBase.inTeam(aiMarker.getPosition(), reverseSide)) || (useAngle && heightmapBase.inHalf(aiMarker.getPosition(), angle))) {
-                transformedAImarkers.add(new AIMarker(aiMarker.getId(), Placement.placeOnHeightmap(map, aiMarker.getPosition()), aiMarker.getNeighbors()));
+                transformedAImarkers.add(new AIMarker(aiMarker.getId(), Placement.placeOnHeightmap(heightfield, aiMarker.getPosition()), aiMarker.getNeighbors()));
                 ArrayList<SymmetryPoint> symmetryPoints = heightmapBase.getSymmetryPoints(aiMarker.getPosition(), SymmetryType.SPAWN);
                 for (SymmetryPoint symmetryPoint : symmetryPoints) {
                     LinkedHashSet<String> newNeighbors = new LinkedHashSet<>();
                     aiMarker.getNeighbors().forEach(marker -> newNeighbors.add(String.format(marker + "s%d", symmetryPoints.indexOf(symmetryPoint))));
-                    transformedAImarkers.add(new AIMarker(String.format(aiMarker.getId() + "s%d", symmetryPoints.indexOf(symmetryPoint)), Placement.placeOnHeightmap(map, symmetryPoint.getLocation()), newNeighbors));
+                    transformedAImarkers.add(new AIMarker(String.format(aiMarker.getId() + "s%d", symmetryPoints.indexOf(symmetryPoint)), Placement.placeOnHeightmap(heightfield, symmetryPoint.getLocation()), newNeighbors));
                 }
             }
-        });
-        return transformedAImarkers;
+            return transformedAImarkers.stream();
+        }).collect(Collectors.toCollection(ArrayList::new));
     }
 
     public ArrayList<BlankMarker> getTransformedBlankMarkers(ArrayList<BlankMarker> blankMarkers) {
-        ArrayList<BlankMarker> transformedBlanks = new ArrayList<>();
-        blankMarkers.forEach(blank -> {
+        return blankMarkers.parallelStream().flatMap(blank -> {
+            ArrayList<BlankMarker> transformedBlanks = new ArrayList<>();
             if ((!useAngle && heightmapBase.inTeam(blank.getPosition(), reverseSide)) || (useAngle && heightmapBase.inHalf(blank.getPosition(), angle))) {
-                transformedBlanks.add(new BlankMarker(blank.getId(), Placement.placeOnHeightmap(map, blank.getPosition())));
+                transformedBlanks.add(new BlankMarker(blank.getId(), Placement.placeOnHeightmap(heightfield, blank.getPosition())));
                 ArrayList<SymmetryPoint> symmetryPoints = heightmapBase.getSymmetryPoints(blank.getPosition(), SymmetryType.SPAWN);
                 for (SymmetryPoint symmetryPoint : symmetryPoints) {
-                    transformedBlanks.add(new BlankMarker(blank.getId() + "s", Placement.placeOnHeightmap(map, symmetryPoint.getLocation())));
+                    transformedBlanks.add(new BlankMarker(blank.getId() + "s", Placement.placeOnHeightmap(heightfield, symmetryPoint.getLocation())));
                 }
             }
-        });
-        return transformedBlanks;
+            return transformedBlanks.stream();
+        }).collect(Collectors.toCollection(ArrayList::new));
     }
 
     public void transformArmies() {
-        map.getArmies().forEach(this::transformArmy);
+        map.getArmies().parallelStream().forEach(this::transformArmy);
     }
 
     public void transformArmy(Army army) {
-        army.getGroups().forEach(this::transformGroup);
+        army.getGroups().parallelStream().forEach(this::transformGroup);
     }
 
     public void transformGroup(Group group) {
@@ -412,48 +426,48 @@ public strictfp class MapTransformer {
     }
 
     public ArrayList<Unit> getTransformedUnits(ArrayList<Unit> units) {
-        ArrayList<Unit> transformedUnits = new ArrayList<>();
-        units.forEach(unit -> {
+        return units.parallelStream().flatMap(unit -> {
+            ArrayList<Unit> transformedUnits = new ArrayList<>();
             if ((!useAngle && heightmapBase.inTeam(unit.getPosition(), reverseSide)) || (useAngle && heightmapBase.inHalf(unit.getPosition(), angle))) {
-                transformedUnits.add(new Unit(unit.getId(), unit.getType(), Placement.placeOnHeightmap(map, unit.getPosition()), unit.getRotation()));
+                transformedUnits.add(new Unit(unit.getId(), unit.getType(), Placement.placeOnHeightmap(heightfield, unit.getPosition()), unit.getRotation()));
                 ArrayList<SymmetryPoint> symmetryPoints = heightmapBase.getSymmetryPoints(unit.getPosition(), SymmetryType.SPAWN);
                 ArrayList<Float> symmetryRotation = heightmapBase.getSymmetryRotation(unit.getRotation());
                 for (int i = 0; i < symmetryPoints.size(); i++) {
-                    transformedUnits.add(new Unit(unit.getId() + " sym", unit.getType(), Placement.placeOnHeightmap(map, symmetryPoints.get(i).getLocation()), symmetryRotation.get(i)));
+                    transformedUnits.add(new Unit(unit.getId() + " sym", unit.getType(), Placement.placeOnHeightmap(heightfield, symmetryPoints.get(i).getLocation()), symmetryRotation.get(i)));
                 }
             }
-        });
-        return transformedUnits;
+            return transformedUnits.stream();
+        }).collect(Collectors.toCollection(ArrayList::new));
     }
 
     public ArrayList<Prop> getTransformedProps(ArrayList<Prop> props) {
-        ArrayList<Prop> transformedProps = new ArrayList<>();
-        props.forEach(prop -> {
+        return props.parallelStream().flatMap(prop -> {
+            ArrayList<Prop> transformedProps = new ArrayList<>();
             if ((!useAngle && heightmapBase.inTeam(prop.getPosition(), reverseSide)) || (useAngle && heightmapBase.inHalf(prop.getPosition(), angle))) {
-                transformedProps.add(new Prop(prop.getPath(), Placement.placeOnHeightmap(map, prop.getPosition()), prop.getRotation()));
+                transformedProps.add(new Prop(prop.getPath(), Placement.placeOnHeightmap(heightfield, prop.getPosition()), prop.getRotation()));
                 ArrayList<SymmetryPoint> symmetryPoints = heightmapBase.getSymmetryPoints(prop.getPosition(), SymmetryType.SPAWN);
                 ArrayList<Float> symmetryRotation = heightmapBase.getSymmetryRotation(prop.getRotation());
                 for (int i = 0; i < symmetryPoints.size(); i++) {
-                    transformedProps.add(new Prop(prop.getPath(), Placement.placeOnHeightmap(map, symmetryPoints.get(i).getLocation()), symmetryRotation.get(i)));
+                    transformedProps.add(new Prop(prop.getPath(), Placement.placeOnHeightmap(heightfield, symmetryPoints.get(i).getLocation()), symmetryRotation.get(i)));
                 }
             }
-        });
-        return transformedProps;
+            return transformedProps.stream();
+        }).collect(Collectors.toCollection(ArrayList::new));
     }
 
     public ArrayList<Decal> getTransformedDecals(ArrayList<Decal> decals) {
-        ArrayList<Decal> transformedDecals = new ArrayList<>();
-        decals.forEach(decal -> {
+        return decals.parallelStream().flatMap(decal -> {
+            ArrayList<Decal> transformedDecals = new ArrayList<>();
             if ((!useAngle && heightmapBase.inTeam(decal.getPosition(), reverseSide)) || (useAngle && heightmapBase.inHalf(decal.getPosition(), angle))) {
-                transformedDecals.add(new Decal(decal.getPath(), Placement.placeOnHeightmap(map, decal.getPosition()), decal.getRotation(), decal.getScale(), decal.getCutOffLOD()));
+                transformedDecals.add(new Decal(decal.getPath(), Placement.placeOnHeightmap(heightfield, decal.getPosition()), decal.getRotation(), decal.getScale(), decal.getCutOffLOD()));
                 ArrayList<SymmetryPoint> symmetryPoints = heightmapBase.getSymmetryPoints(decal.getPosition(), SymmetryType.SPAWN);
                 ArrayList<Float> symmetryRotation = heightmapBase.getSymmetryRotation(decal.getRotation().y);
                 for (int i = 0; i < symmetryPoints.size(); i++) {
                     Vector3f symVectorRotation = new Vector3f(decal.getRotation().x, symmetryRotation.get(i), decal.getRotation().z);
-                    transformedDecals.add(new Decal(decal.getPath(), Placement.placeOnHeightmap(map, symmetryPoints.get(i).getLocation()), symVectorRotation, decal.getScale(), decal.getCutOffLOD()));
+                    transformedDecals.add(new Decal(decal.getPath(), Placement.placeOnHeightmap(heightfield, symmetryPoints.get(i).getLocation()), symVectorRotation, decal.getScale(), decal.getCutOffLOD()));
                 }
             }
-        });
-        return transformedDecals;
+            return transformedDecals.stream();
+        }).collect(Collectors.toCollection(ArrayList::new));
     }
 }
@@ -14,6 +14,8 @@
 
 package util;
 
+import java.util.stream.IntStream;
+
 public final class DDSReader {
 
     public static final Order ARGB = new Order(16, 8, 0, 24);
@@ -93,16 +95,87 @@ public final class DDSReader {
     }
 
     public static int[] read(byte[] buffer, Order order, int mipmapLevel) {
+        return read(buffer, order, mipmapLevel, null);
+    }
 
-        // header
-        int width = getWidth(buffer);
-        int height = getHeight(buffer);
-        int mipmap = getMipmap(buffer);
+    public static int[] read(byte[] buffer, Order order, int mipmapLevel, int[] pixels) {
 
         // type
         int type = getType(buffer);
         if (type == 0) return null;
 
+        int[] dimensions = getMipmapDimensions(buffer, type, mipmapLevel);
+        int width = dimensions[0];
+        int height = dimensions[1];
+        int offset = dimensions[2];
+
+        if (pixels == null) {
+            pixels = new int[width * height];
+        } else if (pixels.length < width * height) {
+            throw new IllegalArgumentException(String.format("Pixel buffer too small: %d < %d", pixels.length, width * height));
+        }
+
+        return switch (type) {
+            case DXT1 -> decodeDXT1(width, height, offset, buffer, order, pixels);
+            case DXT2 -> decodeDXT2(width, height, offset, buffer, order, pixels);
+            case DXT3 -> decodeDXT3(width, height, offset, buffer, order, pixels);
+            case DXT4 -> decodeDXT4(width, height, offset, buffer, order, pixels);
+            case DXT5 -> decodeDXT5(width, height, offset, buffer, order, pixels);
+            case A1R5G5B5 -> readA1R5G5B5(width, height, offset, buffer, order, pixels);
+            case X1R5G5B5 -> readX1R5G5B5(width, height, offset, buffer, order, pixels);
+            case A4R4G4B4 -> readA4R4G4B4(width, height, offset, buffer, order, pixels);
+            case X4R4G4B4 -> readX4R4G4B4(width, height, offset, buffer, order, pixels);
+            case R5G6B5 -> readR5G6B5(width, height, offset, buffer, order, pixels);
+            case R8G8B8 -> readR8G8B8(width, height, offset, buffer, order, pixels);
+            case A8B8G8R8 -> readA8B8G8R8(width, height, offset, buffer, order, pixels);
+            case X8B8G8R8 -> readX8B8G8R8(width, height, offset, buffer, order, pixels);
+            case A8R8G8B8 -> readA8R8G8B8(width, height, offset, buffer, order, pixels);
+            case X8R8G8B8 -> readX8R8G8B8(width, height, offset, buffer, order, pixels);
+            default -> null;
+        };
+    }
+
+    /**
+     * Returns the average {alpha, red, green, blue} of the given mipmap level, or null if the format is not supported.
+     * Block compressed images are averaged block by block without decoding the whole image.
+     */
+    public static int[] readAverageColor(byte[] buffer, int mipmapLevel) {
+        int type = getType(buffer);
+        if (type == 0) return null;
+
+        int[] dimensions = getMipmapDimensions(buffer, type, mipmapLevel);
+        int width = dimensions[0];
+        int height = dimensions[1];
+        int offset = dimensions[2];
+
+        return switch (type) {
+            case DXT1 -> averageDXT(width, height, offset, buffer, 8, DDSReader::decodeDXT1Block);
+            case DXT2, DXT3 -> averageDXT(width, height, offset, buffer, 16, DDSReader::decodeDXT3Block);
+            case DXT4, DXT5 -> averageDXT(width, height, offset, buffer, 16, DDSReader::decodeDXT5Block);
+            default -> {
+                int[] pixels = read(buffer, ARGB, mipmapLevel);
+                if (pixels == null) {
+                    yield null;
+                }
+                long[] sums = new long[4];
+                for (int pixel : pixels) {
+                    sums[0] += (pixel >>> 24) & 0xFF;
+                    sums[1] += (pixel >>> 16) & 0xFF;
+                    sums[2] += (pixel >>> 8) & 0xFF;
+                    sums[3] += pixel & 0xFF;
+                }
+                yield getAverageColor(sums, pixels.length);
+            }
+        };
+    }
+
+    private static int[] getMipmapDimensions(byte[] buffer, int type, int mipmapLevel) {
+
+        // header
+        int width = getWidth(buffer);
+        int height = getHeight(buffer);
+        int mipmap = getMipmap(buffer);
+
         // offset
         int offset = 128; // header size
         if (mipmapLevel > 0 && mipmapLevel < mipmap) {
@@ -118,25 +191,12 @@ public final class DDSReader {
             if (width <= 0) width = 1;
             if (height <= 0) height = 1;
         }
+        return new int[]{width, height, offset};
+    }
 
-        return switch (type) {
-            case DXT1 -> decodeDXT1(width, height, offset, buffer, order);
-            case DXT2 -> decodeDXT2(width, height, offset, buffer, order);
-            case DXT3 -> decodeDXT3(width, height, offset, buffer, order);
-            case DXT4 -> decodeDXT4(width, height, offset, buffer, order);
-            case DXT5 -> decodeDXT5(width, height, offset, buffer, order);
-            case A1R5G5B5 -> readA1R5G5B5(width, height, offset, buffer, order);
-            case X1R5G5B5 -> readX1R5G5B5(width, height, offset, buffer, order);
-            case A4R4G4B4 -> readA4R4G4B4(width, height, offset, buffer, order);
-            case X4R4G4B4 -> readX4R4G4B4(width, height, offset, buffer, order);
-            case R5G6B5 -> readR5G6B5(width, height, offset, buffer, order);
-            case R8G8B8 -> readR8G8B8(width, height, offset, buffer, order);
-            case A8B8G8R8 -> readA8B8G8R8(width, height, offset, buffer, order);
-            case X8B8G8R8 -> readX8B8G8R8(width, height, offset, buffer, order);
-            case A8R8G8B8 -> readA8R8G8B8(width, height, offset, buffer, order);
-            case X8R8G8B8 -> readX8R8G8B8(width, height, offset, buffer, order);
-            default -> null;
-        };
+    private static int[] getAverageColor(long[] sums, long count) {
+        if (count == 0) return new int[4];
+        return new int[]{(int) (sums[0] / count), (int) (sums[1] / count), (int) (sums[2] / count), (int) (sums[3] / count)};
     }
 
     private static int getType(byte[] buffer) {
@@ -206,142 +266,128 @@ public final class DDSReader {
 
     }
 
-    private static int[] decodeDXT1(int width, int height, int offset, byte[] buffer, Order order) {
-        int[] pixels = new int[width * height];
-        int index = offset;
+    private static int[] decodeDXT1(int width, int height, int offset, byte[] buffer, Order order, int[] pixels) {
+        return decodeDXT(width, height, offset, buffer, order, pixels, 8, DDSReader::decodeDXT1Block);
+    }
+
+    private static int[] decodeDXT2(int width, int height, int offset, byte[] buffer, Order order, int[] pixels) {
+        return decodeDXT3(width, height, offset, buffer, order, pixels);
+    }
+
+    private static int[] decodeDXT3(int width, int height, int offset, byte[] buffer, Order order, int[] pixels) {
+        return decodeDXT(width, height, offset, buffer, order, pixels, 16, DDSReader::decodeDXT3Block);
+    }
+
+    private static int[] decodeDXT4(int width, int height, int offset, byte[] buffer, Order order, int[] pixels) {
+        return decodeDXT5(width, height, offset, buffer, order, pixels);
+    }
+
+    private static int[] decodeDXT5(int width, int height, int offset, byte[] buffer, Order order, int[] pixels) {
+        return decodeDXT(width, height, offset, buffer, order, pixels, 16, DDSReader::decodeDXT5Block);
+    }
+
+    private static int[] decodeDXT(int width, int height, int offset, byte[] buffer, Order order, int[] pixels, int blockSize, BlockDecoder blockDecoder) {
         int w = (width + 3) / 4;
         int h = (height + 3) / 4;
-        for (int i = 0; i < h; i++) {
+        IntStream.range(0, h).parallel().forEach(i -> {
+            int[] block = new int[16];
+            int index = offset + i * w * blockSize;
             for (int j = 0; j < w; j++) {
-                int c0 = (buffer[index] & 0xFF) | (buffer[index + 1] & 0xFF) << 8;
-                index += 2;
-                int c1 = (buffer[index] & 0xFF) | (buffer[index + 1] & 0xFF) << 8;
-                index += 2;
+                blockDecoder.decode(buffer, index, order, block);
+                index += blockSize;
                 for (int k = 0; k < 4; k++) {
                     if (4 * i + k >= height) break;
-                    int t0 = (buffer[index] & 0x03);
-                    int t1 = (buffer[index] & 0x0C) >> 2;
-                    int t2 = (buffer[index] & 0x30) >> 4;
-                    int t3 = (buffer[index++] & 0xC0) >> 6;
-                    pixels[4 * width * i + 4 * j + width * k] = getDXTColor(c0, c1, 0xFF, t0, order);
-                    if (4 * j + 1 >= width) continue;
-                    pixels[4 * width * i + 4 * j + width * k + 1] = getDXTColor(c0, c1, 0xFF, t1, order);
-                    if (4 * j + 2 >= width) continue;
-                    pixels[4 * width * i + 4 * j + width * k + 2] = getDXTColor(c0, c1, 0xFF, t2, order);
-                    if (4 * j + 3 >= width) continue;
-                    pixels[4 * width * i + 4 * j + width * k + 3] = getDXTColor(c0, c1, 0xFF, t3, order);
+                    for (int m = 0; m < 4; m++) {
+                        if (4 * j + m >= width) break;
+                        pixels[4 * width * i + 4 * j + width * k + m] = block[4 * k + m];
+                    }
                 }
             }
-        }
+        });
         return pixels;
     }
 
-    private static int[] decodeDXT2(int width, int height, int offset, byte[] buffer, Order order) {
-        return decodeDXT3(width, height, offset, buffer, order);
-    }
-
-    private static int[] decodeDXT3(int width, int height, int offset, byte[] buffer, Order order) {
-        int index = offset;
+    private static int[] averageDXT(int width, int height, int offset, byte[] buffer, int blockSize, BlockDecoder blockDecoder) {
         int w = (width + 3) / 4;
         int h = (height + 3) / 4;
-        int[] pixels = new int[width * height];
-        int[] alphaTable = new int[16];
-        for (int i = 0; i < h; i++) {
+        long[] sums = IntStream.range(0, h).parallel().mapToObj(i -> {
+            int[] block = new int[16];
+            long[] rowSums = new long[4];
+            int index = offset + i * w * blockSize;
             for (int j = 0; j < w; j++) {
-                // create alpha table(4bit to 8bit)
-                for (int k = 0; k < 4; k++) {
-                    int a0 = (buffer[index++] & 0xFF);
-                    int a1 = (buffer[index++] & 0xFF);
-                    // 4bit alpha to 8bit alpha
-                    alphaTable[4 * k] = 17 * ((a0 & 0xF0) >> 4);
-                    alphaTable[4 * k + 1] = 17 * (a0 & 0x0F);
-                    alphaTable[4 * k + 2] = 17 * ((a1 & 0xF0) >> 4);
-                    alphaTable[4 * k + 3] = 17 * (a1 & 0x0F);
-                }
-                int c0 = (buffer[index] & 0xFF) | (buffer[index + 1] & 0xFF) << 8;
-                index += 2;
-                int c1 = (buffer[index] & 0xFF) | (buffer[index + 1] & 0xFF) << 8;
-                index += 2;
+                blockDecoder.decode(buffer, index, ARGB, block);
+                index += blockSize;
                 for (int k = 0; k < 4; k++) {
                     if (4 * i + k >= height) break;
-                    int t0 = (buffer[index] & 0x03);
-                    int t1 = (buffer[index] & 0x0C) >> 2;
-                    int t2 = (buffer[index] & 0x30) >> 4;
-                    int t3 = (buffer[index++] & 0xC0) >> 6;
-                    pixels[4 * width * i + 4 * j + width * k] = getDXTColor(c0, c1, alphaTable[4 * k], t0, order);
-                    if (4 * j + 1 >= width) continue;
-                    pixels[4 * width * i + 4 * j + width * k + 1] = getDXTColor(c0, c1, alphaTable[4 * k + 1], t1, order);
-                    if (4 * j + 2 >= width) continue;
-                    pixels[4 * width * i + 4 * j + width * k + 2] = getDXTColor(c0, c1, alphaTable[4 * k + 2], t2, order);
-                    if (4 * j + 3 >= width) continue;
-                    pixels[4 * width * i + 4 * j + width * k + 3] = getDXTColor(c0, c1, alphaTable[4 * k + 3], t3, order);
+                    for (int m = 0; m < 4; m++) {
+                        if (4 * j + m >= width) break;
+                        int pixel = block[4 * k + m];
+                        rowSums[0] += (pixel >>> 24) & 0xFF;
+                        rowSums[1] += (pixel >>> 16) & 0xFF;
+                        rowSums[2] += (pixel >>> 8) & 0xFF;
+                        rowSums[3] += pixel & 0xFF;
+                    }
                 }
             }
-        }
-        return pixels;
+            return rowSums;
+        }).reduce(new long[4], (first, second) -> new long[]{first[0] + second[0], first[1] + second[1], first[2] + second[2], first[3] + second[3]});
+        return getAverageColor(sums, (long) width * height);
     }
 
-    private static int[] decodeDXT4(int width, int height, int offset, byte[] buffer, Order order) {
-        return decodeDXT5(width, height, offset, buffer, order);
+    private static void decodeDXT1Block(byte[] buffer, int index, Order order, int[] block) {
+        int c0 = (buffer[index] & 0xFF) | (buffer[index + 1] & 0xFF) << 8;
+        int c1 = (buffer[index + 2] & 0xFF) | (buffer[index + 3] & 0xFF) << 8;
+        decodeDXTColors(buffer, index + 4, c0, c1, null, order, block);
     }
 
-    private static int[] decodeDXT5(int width, int height, int offset, byte[] buffer, Order order) {
-        int index = offset;
-        int w = (width + 3) / 4;
-        int h = (height + 3) / 4;
-        int[] pixels = new int[width * height];
+    private static void decodeDXT3Block(byte[] buffer, int index, Order order, int[] block) {
         int[] alphaTable = new int[16];
-        for (int i = 0; i < h; i++) {
-            for (int j = 0; j < w; j++) {
-                // create alpha table
-                int a0 = (buffer[index++] & 0xFF);
-                int a1 = (buffer[index++] & 0xFF);
-                int b0 = (buffer[index] & 0xFF) | (buffer[index + 1] & 0xFF) << 8 | (buffer[index + 2] & 0xFF) << 16;
-                index += 3;
-                int b1 = (buffer[index] & 0xFF) | (buffer[index + 1] & 0xFF) << 8 | (buffer[index + 2] & 0xFF) << 16;
-                index += 3;
-                alphaTable[0] = b0 & 0x07;
-                alphaTable[1] = (b0 >> 3) & 0x07;
-                alphaTable[2] = (b0 >> 6) & 0x07;
-                alphaTable[3] = (b0 >> 9) & 0x07;
-                alphaTable[4] = (b0 >> 12) & 0x07;
-                alphaTable[5] = (b0 >> 15) & 0x07;
-                alphaTable[6] = (b0 >> 18) & 0x07;
-                alphaTable[7] = (b0 >> 21) & 0x07;
-                alphaTable[8] = b1 & 0x07;
-                alphaTable[9] = (b1 >> 3) & 0x07;
-                alphaTable[10] = (b1 >> 6) & 0x07;
-                alphaTable[11] = (b1 >> 9) & 0x07;
-                alphaTable[12] = (b1 >> 12) & 0x07;
-                alphaTable[13] = (b1 >> 15) & 0x07;
-                alphaTable[14] = (b1 >> 18) & 0x07;
-                alphaTable[15] = (b1 >> 21) & 0x07;
-                int c0 = (buffer[index] & 0xFF) | (buffer[index + 1] & 0xFF) << 8;
-                index += 2;
-                int c1 = (buffer[index] & 0xFF) | (buffer[index + 1] & 0xFF) << 8;
-                index += 2;
-                for (int k = 0; k < 4; k++) {
-                    if (4 * i + k >= height) break;
-                    int t0 = (buffer[index] & 0x03);
-                    int t1 = (buffer[index] & 0x0C) >> 2;
-                    int t2 = (buffer[index] & 0x30) >> 4;
-                    int t3 = (buffer[index++] & 0xC0) >> 6;
-                    pixels[4 * width * i + 4 * j + width * k] = getDXTColor(c0, c1, getDXT5Alpha(a0, a1, alphaTable[4 * k]), t0, order);
-                    if (4 * j + 1 >= width) continue;
-                    pixels[4 * width * i + 4 * j + width * k + 1] = getDXTColor(c0, c1, getDXT5Alpha(a0, a1, alphaTable[4 * k + 1]), t1, order);
-                    if (4 * j + 2 >= width) continue;
-                    pixels[4 * width * i + 4 * j + width * k + 2] = getDXTColor(c0, c1, getDXT5Alpha(a0, a1, alphaTable[4 * k + 2]), t2, order);
-                    if (4 * j + 3 >= width) continue;
-                    pixels[4 * width * i + 4 * j + width * k + 3] = getDXTColor(c0, c1, getDXT5Alpha(a0, a1, alphaTable[4 * k + 3]), t3, order);
-                }
+        // create alpha table(4bit to 8bit)
+        for (int k = 0; k < 4; k++) {
+            int a0 = (buffer[index++] & 0xFF);
+            int a1 = (buffer[index++] & 0xFF);
+            // 4bit alpha to 8bit alpha
+            alphaTable[4 * k] = 17 * ((a0 & 0xF0) >> 4);
+            alphaTable[4 * k + 1] = 17 * (a0 & 0x0F);
+            alphaTable[4 * k + 2] = 17 * ((a1 & 0xF0) >> 4);
+            alphaTable[4 * k + 3] = 17 * (a1 & 0x0F);
+        }
+        int c0 = (buffer[index] & 0xFF) | (buffer[index + 1] & 0xFF) << 8;
+        int c1 = (buffer[index + 2] & 0xFF) | (buffer[index + 3] & 0xFF) << 8;
+        decodeDXTColors(buffer, index + 4, c0, c1, alphaTable, order, block);
+    }
+
+    private static void decodeDXT5Block(byte[] buffer, int index, Order order, int[] block) {
+        int[] alphaTable = new int[16];
+        // create alpha table
+        int a0 = (buffer[index++] & 0xFF);
+        int a1 = (buffer[index++] & 0xFF);
+        int b0 = (buffer[index] & 0xFF) | (buffer[index + 1] & 0xFF) << 8 | (buffer[index + 2] & 0xFF) << 16;
+        index += 3;
+        int b1 = (buffer[index] & 0xFF) | (buffer[index + 1] & 0xFF) << 8 | (buffer[index + 2] & 0xFF) << 16;
+        index += 3;
+        for (int k = 0; k < 8; k++) {
+            alphaTable[k] = getDXT5Alpha(a0, a1, (b0 >> (3 * k)) & 0x07);
+            alphaTable[k + 8] = getDXT5Alpha(a0, a1, (b1 >> (3 * k)) & 0x07);
+        }
+        int c0 = (buffer[index] & 0xFF) | (buffer[index + 1] & 0xFF) << 8;
+        int c1 = (buffer[index + 2] & 0xFF) | (buffer[index + 3] & 0xFF) << 8;
+        decodeDXTColors(buffer, index + 4, c0, c1, alphaTable, order, block);
+    }
+
+    private static void decodeDXTColors(byte[] buffer, int index, int c0, int c1, int[] alphaTable, Order order, int[] block) {
+        for (int k = 0; k < 4; k++) {
+            int row = buffer[index + k] & 0xFF;
+            for (int m = 0; m < 4; m++) {
+                int t = (row >> (2 * m)) & 0x03;
+                int a = alphaTable == null ? 0xFF : alphaTable[4 * k + m];
+                block[4 * k + m] = getDXTColor(c0, c1, a, t, order);
             }
         }
-        return pixels;
     }
 
-    private static int[] readA1R5G5B5(int width, int height, int offset, byte[] buffer, Order order) {
+    private static int[] readA1R5G5B5(int width, int height, int offset, byte[] buffer, Order order, int[] pixels) {
         int index = offset;
-        int[] pixels = new int[width * height];
         for (int i = 0; i < height * width; i++) {
             int rgba = (buffer[index] & 0xFF) | (buffer[index + 1] & 0xFF) << 8;
             index += 2;
@@ -354,9 +400,8 @@ public final class DDSReader {
         return pixels;
     }
 
-    private static int[] readX1R5G5B5(int width, int height, int offset, byte[] buffer, Order order) {
+    private static int[] readX1R5G5B5(int width, int height, int offset, byte[] buffer, Order order, int[] pixels) {
         int index = offset;
-        int[] pixels = new int[width * height];
         for (int i = 0; i < height * width; i++) {
             int rgba = (buffer[index] & 0xFF) | (buffer[index + 1] & 0xFF) << 8;
             index += 2;
@@ -369,9 +414,8 @@ public final class DDSReader {
         return pixels;
     }
 
-    private static int[] readA4R4G4B4(int width, int height, int offset, byte[] buffer, Order order) {
+    private static int[] readA4R4G4B4(int width, int height, int offset, byte[] buffer, Order order, int[] pixels) {
         int index = offset;
-        int[] pixels = new int[width * height];
         for (int i = 0; i < height * width; i++) {
             int rgba = (buffer[index] & 0xFF) | (buffer[index + 1] & 0xFF) << 8;
             index += 2;
@@ -384,9 +428,8 @@ public final class DDSReader {
         return pixels;
     }
 
-    private static int[] readX4R4G4B4(int width, int height, int offset, byte[] buffer, Order order) {
+    private static int[] readX4R4G4B4(int width, int height, int offset, byte[] buffer, Order order, int[] pixels) {
         int index = offset;
-        int[] pixels = new int[width * height];
         for (int i = 0; i < height * width; i++) {
             int rgba = (buffer[index] & 0xFF) | (buffer[index + 1] & 0xFF) << 8;
             index += 2;
@@ -399,9 +442,8 @@ public final class DDSReader {
         return pixels;
     }
 
-    private static int[] readR5G6B5(int width, int height, int offset, byte[] buffer, Order order) {
+    private static int[] readR5G6B5(int width, int height, int offset, byte[] buffer, Order order, int[] pixels) {
         int index = offset;
-        int[] pixels = new int[width * height];
         for (int i = 0; i < height * width; i++) {
             int rgba = (buffer[index] & 0xFF) | (buffer[index + 1] & 0xFF) << 8;
             index += 2;
@@ -414,9 +456,8 @@ public final class DDSReader {
         return pixels;
     }
 
-    private static int[] readR8G8B8(int width, int height, int offset, byte[] buffer, Order order) {
+    private static int[] readR8G8B8(int width, int height, int offset, byte[] buffer, Order order, int[] pixels) {
         int index = offset;
-        int[] pixels = new int[width * height];
         for (int i = 0; i < height * width; i++) {
             int b = buffer[index++] & 0xFF;
             int g = buffer[index++] & 0xFF;
@@ -427,9 +468,8 @@ public final class DDSReader {
         return pixels;
     }
 
-    private static int[] readA8B8G8R8(int width, int height, int offset, byte[] buffer, Order order) {
+    private static int[] readA8B8G8R8(int width, int height, int offset, byte[] buffer, Order order, int[] pixels) {
         int index = offset;
-        int[] pixels = new int[width * height];
         for (int i = 0; i < height * width; i++) {
             int r = buffer[index++] & 0xFF;
             int g = buffer[index++] & 0xFF;
@@ -440,9 +480,8 @@ public final class DDSReader {
         return pixels;
     }
 
-    private static int[] readX8B8G8R8(int width, int height, int offset, byte[] buffer, Order order) {
+    private static int[] readX8B8G8R8(int width, int height, int offset, byte[] buffer, Order order, int[] pixels) {
         int index = offset;
-        int[] pixels = new int[width * height];
         for (int i = 0; i < height * width; i++) {
             int r = buffer[index++] & 0xFF;
             int g = buffer[index++] & 0xFF;
@@ -454,9 +493,8 @@ public final class DDSReader {
         return pixels;
     }
 
-    private static int[] readA8R8G8B8(int width, int height, int offset, byte[] buffer, Order order) {
+    private static int[] readA8R8G8B8(int width, int height, int offset, byte[] buffer, Order order, int[] pixels) {
         int index = offset;
-        int[] pixels = new int[width * height];
         for (int i = 0; i < height * width; i++) {
             int b = buffer[index++] & 0xFF;
             int g = buffer[index++] & 0xFF;
@@ -467,9 +505,8 @@ public final class DDSReader {
         return pixels;
     }
 
-    private static int[] readX8R8G8B8(int width, int height, int offset, byte[] buffer, Order order) {
+    private static int[] readX8R8G8B8(int width, int height, int offset, byte[] buffer, Order order, int[] pixels) {
         int index = offset;
-        int[] pixels = new int[width * height];
         for (int i = 0; i < height * width; i++) {
             int b = buffer[index++] & 0xFF;
             int g = buffer[index++] & 0xFF;
@@ -539,6 +576,11 @@ public final class DDSReader {
         };
     }
 
+    @FunctionalInterface
+    private interface BlockDecoder {
+        void decode(byte[] buffer, int index, Order order, int[] block);
+    }
+
     private static final class Order {
         public int redShift;
         public int greenShift;
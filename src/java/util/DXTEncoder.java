@@ -0,0 +1,341 @@
+package util;
+
+import lombok.Getter;
+
+import java.util.stream.IntStream;
+
+public strictfp class DXTEncoder {
+
+    private static final int[] BIT5 = {0, 8, 16, 25, 33, 41, 49, 58, 66, 74, 82, 90, 99, 107, 115, 123, 132, 140, 148, 156, 165, 173, 181, 189, 197, 206, 214, 222, 230, 239, 247, 255};
+    private static final int[] BIT6 = {0, 4, 8, 12, 16, 20, 24, 28, 32, 36, 40, 45, 49, 53, 57, 61, 65, 69, 73, 77, 81, 85, 89, 93, 97, 101, 105, 109, 113, 117, 121, 125, 130, 134, 138, 142, 146, 150, 154, 158, 162, 166, 170, 174, 178, 182, 186, 190, 194, 198, 202, 206, 210, 215, 219, 223, 227, 231, 235, 239, 243, 247, 251, 255};
+
+    @Getter
+    public enum Format {
+        DXT1("DXT1", 8),
+        DXT5("DXT5", 16);
+
+        private final String fourCC;
+        private final int blockSize;
+
+        Format(String fourCC, int blockSize) {
+            this.fourCC = fourCC;
+            this.blockSize = blockSize;
+        }
+    }
+
+    public enum Quality {
+        FAST,
+        NORMAL,
+        HIGH
+    }
+
+    public static int getCompressedSize(int width, int height, Format format) {
+        return ((width + 3) / 4) * ((height + 3) / 4) * format.getBlockSize();
+    }
+
+    public static DDSHeader getHeader(int width, int height, Format format) {
+        DDSHeader ddsHeader = new DDSHeader();
+        ddsHeader.setWidth(width);
+        ddsHeader.setHeight(height);
+        ddsHeader.setFourCC(format.getFourCC());
+        ddsHeader.setPitchOrLinearSize(getCompressedSize(width, height, format), true);
+        return ddsHeader;
+    }
+
+    public static byte[] encode(int[] argbPixels, int width, int height, Format format, Quality quality) {
+        int blocksWide = (width + 3) / 4;
+        int blocksHigh = (height + 3) / 4;
+        byte[] encoded = new byte[getCompressedSize(width, height, format)];
+        IntStream.range(0, blocksHigh).parallel().forEach(blockY -> {
+            int[] alphas = new int[16];
+            int[] reds = new int[16];
+            int[] greens = new int[16];
+            int[] blues = new int[16];
+            for (int blockX = 0; blockX < blocksWide; blockX++) {
+                for (int k = 0; k < 16; k++) {
+                    int x = StrictMath.min(blockX * 4 + (k & 3), width - 1);
+                    int y = StrictMath.min(blockY * 4 + (k >> 2), height - 1);
+                    int argb = argbPixels[y * width + x];
+                    alphas[k] = (argb >>> 24) & 0xFF;
+                    reds[k] = (argb >>> 16) & 0xFF;
+                    greens[k] = (argb >>> 8) & 0xFF;
+                    blues[k] = argb & 0xFF;
+                }
+                int offset = (blockY * blocksWide + blockX) * format.getBlockSize();
+                if (format == Format.DXT5) {
+                    encodeAlphaBlock(alphas, encoded, offset, quality);
+                    offset += 8;
+                }
+                encodeColorBlock(reds, greens, blues, encoded, offset, quality);
+            }
+        });
+        return encoded;
+    }
+
+    private static void encodeColorBlock(int[] reds, int[] greens, int[] blues, byte[] encoded, int offset, Quality quality) {
+        int minR = 255, minG = 255, minB = 255, maxR = 0, maxG = 0, maxB = 0;
+        for (int k = 0; k < 16; k++) {
+            minR = StrictMath.min(minR, reds[k]);
+            minG = StrictMath.min(minG, greens[k]);
+            minB = StrictMath.min(minB, blues[k]);
+            maxR = StrictMath.max(maxR, reds[k]);
+            maxG = StrictMath.max(maxG, greens[k]);
+            maxB = StrictMath.max(maxB, blues[k]);
+        }
+
+        int[] indices = new int[16];
+        int bestColor0;
+        int bestColor1;
+        if (quality == Quality.FAST) {
+            bestColor0 = to565(maxR, maxG, maxB);
+            bestColor1 = to565(minR, minG, minB);
+            getColorError(bestColor0, bestColor1, reds, greens, blues, indices);
+        } else {
+            int insetR = (maxR - minR) >> 4;
+            int insetG = (maxG - minG) >> 4;
+            int insetB = (maxB - minB) >> 4;
+            bestColor0 = to565(maxR - insetR, maxG - insetG, maxB - insetB);
+            bestColor1 = to565(minR + insetR, minG + insetG, minB + insetB);
+            long bestError = getColorError(bestColor0, bestColor1, reds, greens, blues, indices);
+            if (quality == Quality.HIGH && bestError > 0) {
+                int[] candidateIndices = new int[16];
+                int[] endpoints = getPrincipalAxisEndpoints(reds, greens, blues);
+                for (int iteration = 0; iteration < 3 && endpoints != null; iteration++) {
+                    int color0 = to565(endpoints[0], endpoints[1], endpoints[2]);
+                    int color1 = to565(endpoints[3], endpoints[4], endpoints[5]);
+                    long error = getColorError(color0, color1, reds, greens, blues, candidateIndices);
+                    if (error < bestError) {
+                        bestError = error;
+                        bestColor0 = color0;
+                        bestColor1 = color1;
+                        System.arraycopy(candidateIndices, 0, indices, 0, 16);
+                    }
+                    endpoints = getLeastSquaresEndpoints(candidateIndices, reds, greens, blues);
+                }
+            }
+        }
+
+        if (bestColor0 < bestColor1) {
+            int swap = bestColor0;
+            bestColor0 = bestColor1;
+            bestColor1 = swap;
+            for (int k = 0; k < 16; k++) {
+                indices[k] ^= 1;
+            }
+        } else if (bestColor0 == bestColor1) {
+            for (int k = 0; k < 16; k++) {
+                indices[k] = 0;
+            }
+        }
+
+        encoded[offset] = (byte) bestColor0;
+        encoded[offset + 1] = (byte) (bestColor0 >> 8);
+        encoded[offset + 2] = (byte) bestColor1;
+        encoded[offset + 3] = (byte) (bestColor1 >> 8);
+        for (int row = 0; row < 4; row++) {
+            encoded[offset + 4 + row] = (byte) (indices[row * 4] | indices[row * 4 + 1] << 2 | indices[row * 4 + 2] << 4 | indices[row * 4 + 3] << 6);
+        }
+    }
+
+    private static long getColorError(int color0, int color1, int[] reds, int[] greens, int[] blues, int[] indices) {
+        int high = StrictMath.max(color0, color1);
+        int low = StrictMath.min(color0, color1);
+        int[] paletteR = new int[4];
+        int[] paletteG = new int[4];
+        int[] paletteB = new int[4];
+        paletteR[0] = BIT5[high >> 11];
+        paletteG[0] = BIT6[(high >> 5) & 0x3F];
+        paletteB[0] = BIT5[high & 0x1F];
+        paletteR[1] = BIT5[low >> 11];
+        paletteG[1] = BIT6[(low >> 5) & 0x3F];
+        paletteB[1] = BIT5[low & 0x1F];
+        paletteR[2] = (2 * paletteR[0] + paletteR[1]) / 3;
+        paletteG[2] = (2 * paletteG[0] + paletteG[1]) / 3;
+        paletteB[2] = (2 * paletteB[0] + paletteB[1]) / 3;
+        paletteR[3] = (paletteR[0] + 2 * paletteR[1]) / 3;
+        paletteG[3] = (paletteG[0] + 2 * paletteG[1]) / 3;
+        paletteB[3] = (paletteB[0] + 2 * paletteB[1]) / 3;
+
+        long error = 0;
+        for (int k = 0; k < 16; k++) {
+            int bestIndex = 0;
+            int bestDistance = Integer.MAX_VALUE;
+            for (int i = 0; i < 4; i++) {
+                int dr = reds[k] - paletteR[i];
+                int dg = greens[k] - paletteG[i];
+                int db = blues[k] - paletteB[i];
+                int distance = dr * dr + dg * dg + db * db;
+                if (distance < bestDistance) {
+                    bestDistance = distance;
+                    bestIndex = i;
+                }
+            }
+            indices[k] = color0 >= color1 ? bestIndex : bestIndex ^ 1;
+            error += bestDistance;
+        }
+        return error;
+    }
+
+    private static int[] getPrincipalAxisEndpoints(int[] reds, int[] greens, int[] blues) {
+        float meanR = 0, meanG = 0, meanB = 0;
+        for (int k = 0; k < 16; k++) {
+            meanR += reds[k];
+            meanG += greens[k];
+            meanB += blues[k];
+        }
+        meanR /= 16;
+        meanG /= 16;
+        meanB /= 16;
+
+        float rr = 0, rg = 0, rb = 0, gg = 0, gb = 0, bb = 0;
+        for (int k = 0; k < 16; k++) {
+            float r = reds[k] - meanR;
+            float g = greens[k] - meanG;
+            float b = blues[k] - meanB;
+            rr += r * r;
+            rg += r * g;
+            rb += r * b;
+            gg += g * g;
+            gb += g * b;
+            bb += b * b;
+        }
+
+        float axisR = 1, axisG = 1, axisB = 1;
+        for (int i = 0; i < 8; i++) {
+            float newR = rr * axisR + rg * axisG + rb * axisB;
+            float newG = rg * axisR + gg * axisG + gb * axisB;
+            float newB = rb * axisR + gb * axisG + bb * axisB;
+            float length = (float) StrictMath.sqrt(newR * newR + newG * newG + newB * newB);
+            if (length < 1e-6f) {
+                return null;
+            }
+            axisR = newR / length;
+            axisG = newG / length;
+            axisB = newB / length;
+        }
+
+        float minProjection = Float.MAX_VALUE;
+        float maxProjection = -Float.MAX_VALUE;
+        for (int k = 0; k < 16; k++) {
+            float projection = (reds[k] - meanR) * axisR + (greens[k] - meanG) * axisG + (blues[k] - meanB) * axisB;
+            minProjection = StrictMath.min(minProjection, projection);
+            maxProjection = StrictMath.max(maxProjection, projection);
+        }
+        return new int[]{
+                clampByte(meanR + axisR * maxProjection), clampByte(meanG + axisG * maxProjection), clampByte(meanB + axisB * maxProjection),
+                clampByte(meanR + axisR * minProjection), clampByte(meanG + axisG * minProjection), clampByte(meanB + axisB * minProjection)};
+    }
+
+    private static int[] getLeastSquaresEndpoints(int[] indices, int[] reds, int[] greens, int[] blues) {
+        float alpha2Sum = 0, beta2Sum = 0, alphaBetaSum = 0;
+        float alphaR = 0, alphaG = 0, alphaB = 0, betaR = 0, betaG = 0, betaB = 0;
+        for (int k = 0; k < 16; k++) {
+            float alpha = switch (indices[k]) {
+                case 0 -> 1f;
+                case 1 -> 0f;
+                case 2 -> 2f / 3f;
+                default -> 1f / 3f;
+            };
+            float beta = 1 - alpha;
+            alpha2Sum += alpha * alpha;
+            beta2Sum += beta * beta;
+            alphaBetaSum += alpha * beta;
+            alphaR += alpha * reds[k];
+            alphaG += alpha * greens[k];
+            alphaB += alpha * blues[k];
+            betaR += beta * reds[k];
+            betaG += beta * greens[k];
+            betaB += beta * blues[k];
+        }
+        float denominator = alpha2Sum * beta2Sum - alphaBetaSum * alphaBetaSum;
+        if (StrictMath.abs(denominator) < 1e-6f) {
+            return null;
+        }
+        float factor = 1f / denominator;
+        return new int[]{
+                clampByte((alphaR * beta2Sum - betaR * alphaBetaSum) * factor),
+                clampByte((alphaG * beta2Sum - betaG * alphaBetaSum) * factor),
+                clampByte((alphaB * beta2Sum - betaB * alphaBetaSum) * factor),
+                clampByte((betaR * alpha2Sum - alphaR * alphaBetaSum) * factor),
+                clampByte((betaG * alpha2Sum - alphaG * alphaBetaSum) * factor),
+                clampByte((betaB * alpha2Sum - alphaB * alphaBetaSum) * factor)};
+    }
+
+    private static void encodeAlphaBlock(int[] alphas, byte[] encoded, int offset, Quality quality) {
+        int min = 255, max = 0;
+        int minInner = 255, maxInner = 0;
+        for (int k = 0; k < 16; k++) {
+            min = StrictMath.min(min, alphas[k]);
+            max = StrictMath.max(max, alphas[k]);
+            if (alphas[k] != 0 && alphas[k] != 255) {
+                minInner = StrictMath.min(minInner, alphas[k]);
+                maxInner = StrictMath.max(maxInner, alphas[k]);
+            }
+        }
+
+        int[] indices = new int[16];
+        int alpha0 = max;
+        int alpha1 = min;
+        long error = getAlphaError(alpha0, alpha1, alphas, indices);
+        if (quality == Quality.HIGH && error > 0 && minInner <= maxInner) {
+            int[] candidateIndices = new int[16];
+            long candidateError = getAlphaError(minInner, maxInner, alphas, candidateIndices);
+            if (candidateError < error) {
+                alpha0 = minInner;
+                alpha1 = maxInner;
+                System.arraycopy(candidateIndices, 0, indices, 0, 16);
+            }
+        }
+
+        encoded[offset] = (byte) alpha0;
+        encoded[offset + 1] = (byte) alpha1;
+        long bits = 0;
+        for (int k = 0; k < 16; k++) {
+            bits |= (long) indices[k] << (3 * k);
+        }
+        for (int i = 0; i < 6; i++) {
+            encoded[offset + 2 + i] = (byte) (bits >>> (8 * i));
+        }
+    }
+
+    private static long getAlphaError(int alpha0, int alpha1, int[] alphas, int[] indices) {
+        int[] palette = new int[8];
+        palette[0] = alpha0;
+        palette[1] = alpha1;
+        if (alpha0 > alpha1) {
+            for (int i = 1; i < 7; i++) {
+                palette[i + 1] = ((7 - i) * alpha0 + i * alpha1) / 7;
+            }
+        } else {
+            for (int i = 1; i < 5; i++) {
+                palette[i + 1] = ((5 - i) * alpha0 + i * alpha1) / 5;
+            }
+            palette[6] = 0;
+            palette[7] = 255;
+        }
+
+        long error = 0;
+        for (int k = 0; k < 16; k++) {
+            int bestIndex = 0;
+            int bestDistance = Integer.MAX_VALUE;
+            for (int i = 0; i < 8; i++) {
+                int distance = StrictMath.abs(alphas[k] - palette[i]);
+                if (distance < bestDistance) {
+                    bestDistance = distance;
+                    bestIndex = i;
+                }
+            }
+            indices[k] = bestIndex;
+            error += bestDistance * bestDistance;
+        }
+        return error;
+    }
+
+    private static int to565(int r, int g, int b) {
+        return ((r * 31 + 127) / 255) << 11 | ((g * 63 + 127) / 255) << 5 | ((b * 31 + 127) / 255);
+    }
+
+    private static int clampByte(float value) {
+        return StrictMath.max(0, StrictMath.min(255, StrictMath.round(value)));
+    }
+}
@@ -0,0 +1,314 @@
+package util;
+
+import map.BinaryMask;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+/**
+ * Near-optimal 8-connected path costs over a passability mask using a cluster abstraction (HPA*).
+ * The mask is split into square clusters, entrances are spaced along passable runs on cluster borders
+ * and intra-cluster costs between entrances are precomputed. Queries search the abstract graph only.
+ * Instances are immutable after construction and queries may run concurrently.
+ */
+public strictfp class HierarchicalPathfinder {
+
+    public static final float UNREACHABLE = Float.POSITIVE_INFINITY;
+    private static final float DIAGONAL_COST = (float) StrictMath.sqrt(2);
+    private static final int ENTRANCE_SPACING = 8;
+    private static final int MAX_SNAP_DISTANCE = 8;
+    private static final int[] NEIGHBOR_X = {1, -1, 0, 0, 1, 1, -1, -1};
+    private static final int[] NEIGHBOR_Y = {0, 0, 1, -1, 1, -1, 1, -1};
+
+    private final int size;
+    private final int clusterSize;
+    private final int clustersPerSide;
+    private final boolean[] passable;
+    private final ArrayList<Integer>[] clusterNodes;
+    private final int[] nodeCells;
+    private final int[][] edgeTargets;
+    private final float[][] edgeCosts;
+    private final ConcurrentHashMap<Integer, float[]> clusterDistanceCache = new ConcurrentHashMap<>();
+
+    @SuppressWarnings("unchecked")
+    public HierarchicalPathfinder(BinaryMask mask, int clusterSize) {
+        this.size = mask.getSize();
+        this.clusterSize = clusterSize;
+        this.clustersPerSide = (size + clusterSize - 1) / clusterSize;
+        this.passable = new boolean[size * size];
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                passable[y * size + x] = mask.getValueAt(x, y);
+            }
+        }
+
+        HashMap<Integer, Integer> nodeIndices = new HashMap<>();
+        ArrayList<Integer> cells = new ArrayList<>();
+        ArrayList<int[]> borderEdges = new ArrayList<>();
+        for (int clusterY = 0; clusterY < clustersPerSide; clusterY++) {
+            for (int clusterX = 0; clusterX < clustersPerSide; clusterX++) {
+                int startX = clusterX * clusterSize;
+                int startY = clusterY * clusterSize;
+                int endX = StrictMath.min(startX + clusterSize, size);
+                int endY = StrictMath.min(startY + clusterSize, size);
+                if (endX < size) {
+                    addEntrances(nodeIndices, cells, borderEdges, endX - 1, startY, 0, 1, endY - startY, 1, 0);
+                }
+                if (endY < size) {
+                    addEntrances(nodeIndices, cells, borderEdges, startX, endY - 1, 1, 0, endX - startX, 0, 1);
+                }
+            }
+        }
+
+        int nodeCount = cells.size();
+        nodeCells = new int[nodeCount];
+        clusterNodes = new ArrayList[clustersPerSide * clustersPerSide];
+        for (int i = 0; i < clusterNodes.length; i++) {
+            clusterNodes[i] = new ArrayList<>();
+        }
+        for (int i = 0; i < nodeCount; i++) {
+            nodeCells[i] = cells.get(i);
+            clusterNodes[getCluster(nodeCells[i])].add(i);
+        }
+
+        float[][][] intraCosts = new float[clusterNodes.length][][];
+        IntStream.range(0, clusterNodes.length).parallel().forEach(cluster -> {
+            ArrayList<Integer> nodes = clusterNodes[cluster];
+            intraCosts[cluster] = new float[nodes.size()][];
+            for (int i = 0; i < nodes.size(); i++) {
+                float[] distances = getClusterDistances(nodeCells[nodes.get(i)]);
+                intraCosts[cluster][i] = new float[nodes.size()];
+                for (int j = 0; j < nodes.size(); j++) {
+                    intraCosts[cluster][i][j] = distances[getClusterIndex(nodeCells[nodes.get(j)])];
+                }
+            }
+        });
+
+        ArrayList<Integer>[] targets = new ArrayList[nodeCount];
+        ArrayList<Float>[] costs = new ArrayList[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            targets[i] = new ArrayList<>();
+            costs[i] = new ArrayList<>();
+        }
+        for (int cluster = 0; cluster < clusterNodes.length; cluster++) {
+            ArrayList<Integer> nodes = clusterNodes[cluster];
+            for (int i = 0; i < nodes.size(); i++) {
+                for (int j = 0; j < nodes.size(); j++) {
+                    if (i != j && intraCosts[cluster][i][j] < UNREACHABLE) {
+                        targets[nodes.get(i)].add(nodes.get(j));
+                        costs[nodes.get(i)].add(intraCosts[cluster][i][j]);
+                    }
+                }
+            }
+        }
+        for (int[] borderEdge : borderEdges) {
+            targets[borderEdge[0]].add(borderEdge[1]);
+            costs[borderEdge[0]].add(1f);
+            targets[borderEdge[1]].add(borderEdge[0]);
+            costs[borderEdge[1]].add(1f);
+        }
+        edgeTargets = new int[nodeCount][];
+        edgeCosts = new float[nodeCount][];
+        for (int i = 0; i < nodeCount; i++) {
+            edgeTargets[i] = new int[targets[i].size()];
+            edgeCosts[i] = new float[costs[i].size()];
+            for (int j = 0; j < targets[i].size(); j++) {
+                edgeTargets[i][j] = targets[i].get(j);
+                edgeCosts[i][j] = costs[i].get(j);
+            }
+        }
+    }
+
+    public int getNodeCount() {
+        return nodeCells.length;
+    }
+
+    /**
+     * Returns the path cost between two positions or {@link #UNREACHABLE}.
+     * Positions on impassable cells are moved to the nearest passable cell within a few pixels.
+     */
+    public float getPathCost(Vector2f start, Vector2f goal) {
+        int startCell = snapToPassable(start);
+        int goalCell = snapToPassable(goal);
+        if (startCell < 0 || goalCell < 0) {
+            return UNREACHABLE;
+        }
+        if (startCell == goalCell) {
+            return 0;
+        }
+        float[] startDistances = clusterDistanceCache.computeIfAbsent(startCell, this::getClusterDistances);
+        float[] goalDistances = clusterDistanceCache.computeIfAbsent(goalCell, this::getClusterDistances);
+        int goalCluster = getCluster(goalCell);
+        float best = getCluster(startCell) == goalCluster ? startDistances[getClusterIndex(goalCell)] : UNREACHABLE;
+
+        float[] costs = new float[nodeCells.length];
+        Arrays.fill(costs, UNREACHABLE);
+        PriorityQueue<QueueEntry> open = new PriorityQueue<>();
+        for (int node : clusterNodes[getCluster(startCell)]) {
+            float cost = startDistances[getClusterIndex(nodeCells[node])];
+            if (cost < costs[node]) {
+                costs[node] = cost;
+                open.add(new QueueEntry(cost + getHeuristic(nodeCells[node], goalCell), node));
+            }
+        }
+        while (!open.isEmpty()) {
+            QueueEntry entry = open.poll();
+            if (entry.priority >= best) {
+                break;
+            }
+            int node = entry.index;
+            float cost = costs[node];
+            if (entry.priority > cost + getHeuristic(nodeCells[node], goalCell)) {
+                continue;
+            }
+            if (getCluster(nodeCells[node]) == goalCluster) {
+                best = StrictMath.min(best, cost + goalDistances[getClusterIndex(nodeCells[node])]);
+            }
+            for (int i = 0; i < edgeTargets[node].length; i++) {
+                int target = edgeTargets[node][i];
+                float targetCost = cost + edgeCosts[node][i];
+                if (targetCost < costs[target]) {
+                    costs[target] = targetCost;
+                    open.add(new QueueEntry(targetCost + getHeuristic(nodeCells[target], goalCell), target));
+                }
+            }
+        }
+        return best;
+    }
+
+    private void addEntrances(HashMap<Integer, Integer> nodeIndices, ArrayList<Integer> cells, ArrayList<int[]> borderEdges, int x, int y, int stepX, int stepY,
+                              int length, int crossX, int crossY) {
+        int runStart = -1;
+        for (int i = 0; i <= length; i++) {
+            boolean open = i < length && passable[(y + i * stepY) * size + x + i * stepX]
+                    && passable[(y + i * stepY + crossY) * size + x + i * stepX + crossX];
+            if (open && runStart < 0) {
+                runStart = i;
+            } else if (!open && runStart >= 0) {
+                int runLength = i - runStart;
+                if (runLength < ENTRANCE_SPACING) {
+                    addEntrance(nodeIndices, cells, borderEdges, x + (runStart + runLength / 2) * stepX, y + (runStart + runLength / 2) * stepY, crossX, crossY);
+                } else {
+                    for (int j = runStart; j < i - 1; j += ENTRANCE_SPACING) {
+                        addEntrance(nodeIndices, cells, borderEdges, x + j * stepX, y + j * stepY, crossX, crossY);
+                    }
+                    addEntrance(nodeIndices, cells, borderEdges, x + (i - 1) * stepX, y + (i - 1) * stepY, crossX, crossY);
+                }
+                runStart = -1;
+            }
+        }
+    }
+
+    private void addEntrance(HashMap<Integer, Integer> nodeIndices, ArrayList<Integer> cells, ArrayList<int[]> borderEdges,
+                             int x, int y, int crossX, int crossY) {
+        int first = getNode(nodeIndices, cells, y * size + x);
+        int second = getNode(nodeIndices, cells, (y + crossY) * size + x + crossX);
+        borderEdges.add(new int[]{first, second});
+    }
+
+    private static int getNode(HashMap<Integer, Integer> nodeIndices, ArrayList<Integer> cells, int cell) {
+        return nodeIndices.computeIfAbsent(cell, key -> {
+            cells.add(key);
+            return cells.size() - 1;
+        });
+    }
+
+    /**
+     * Dijkstra restricted to the cluster containing the source cell, indexed by {@link #getClusterIndex}.
+     */
+    private float[] getClusterDistances(int sourceCell) {
+        int cluster = getCluster(sourceCell);
+        int startX = (cluster % clustersPerSide) * clusterSize;
+        int startY = (cluster / clustersPerSide) * clusterSize;
+        int endX = StrictMath.min(startX + clusterSize, size);
+        int endY = StrictMath.min(startY + clusterSize, size);
+        float[] distances = new float[clusterSize * clusterSize];
+        Arrays.fill(distances, UNREACHABLE);
+        distances[getClusterIndex(sourceCell)] = 0;
+        PriorityQueue<QueueEntry> open = new PriorityQueue<>();
+        open.add(new QueueEntry(0, sourceCell));
+        while (!open.isEmpty()) {
+            QueueEntry entry = open.poll();
+            int cell = entry.index;
+            if (entry.priority > distances[getClusterIndex(cell)]) {
+                continue;
+            }
+            int x = cell % size;
+            int y = cell / size;
+            for (int i = 0; i < NEIGHBOR_X.length; i++) {
+                int neighborX = x + NEIGHBOR_X[i];
+                int neighborY = y + NEIGHBOR_Y[i];
+                if (neighborX < startX || neighborX >= endX || neighborY < startY || neighborY >= endY
+                        || !passable[neighborY * size + neighborX]) {
+                    continue;
+                }
+                boolean diagonal = i >= 4;
+                if (diagonal && (!passable[y * size + neighborX] || !passable[neighborY * size + x])) {
+                    continue;
+                }
+                int neighborCell = neighborY * size + neighborX;
+                float distance = entry.priority + (diagonal ? DIAGONAL_COST : 1);
+                int neighborIndex = getClusterIndex(neighborCell);
+                if (distance < distances[neighborIndex]) {
+                    distances[neighborIndex] = distance;
+                    open.add(new QueueEntry(distance, neighborCell));
+                }
+            }
+        }
+        return distances;
+    }
+
+    private int snapToPassable(Vector2f location) {
+        int x = StrictMath.max(StrictMath.min((int) location.x, size - 1), 0);
+        int y = StrictMath.max(StrictMath.min((int) location.y, size - 1), 0);
+        for (int radius = 0; radius <= MAX_SNAP_DISTANCE; radius++) {
+            for (int dy = -radius; dy <= radius; dy++) {
+                for (int dx = -radius; dx <= radius; dx++) {
+                    if (StrictMath.max(StrictMath.abs(dx), StrictMath.abs(dy)) != radius) {
+                        continue;
+                    }
+                    int snapX = x + dx;
+                    int snapY = y + dy;
+                    if (snapX >= 0 && snapX < size && snapY >= 0 && snapY < size && passable[snapY * size + snapX]) {
+                        return snapY * size + snapX;
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    private float getHeuristic(int cell, int goalCell) {
+        int dx = StrictMath.abs(cell % size - goalCell % size);
+        int dy = StrictMath.abs(cell / size - goalCell / size);
+        return StrictMath.max(dx, dy) + (DIAGONAL_COST - 1) * StrictMath.min(dx, dy);
+    }
+
+    private int getCluster(int cell) {
+        return (cell / size / clusterSize) * clustersPerSide + (cell % size) / clusterSize;
+    }
+
+    private int getClusterIndex(int cell) {
+        return (cell / size % clusterSize) * clusterSize + cell % size % clusterSize;
+    }
+
+    private static final class QueueEntry implements Comparable<QueueEntry> {
+        private final float priority;
+        private final int index;
+
+        private QueueEntry(float priority, int index) {
+            this.priority = priority;
+            this.index = index;
+        }
+
+        @Override
+        public int compareTo(QueueEntry other) {
+            int comparison = Float.compare(priority, other.priority);
+            return comparison != 0 ? comparison : Integer.compare(index, other.index);
+        }
+    }
+}
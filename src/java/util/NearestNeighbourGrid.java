@@ -0,0 +1,165 @@
+package util;
+
+import java.util.Arrays;
+
+/**
+ * Nearest neighbour queries over a fixed set of points that can be removed one by one.
+ * Points are identified by their index, and ties on distance go to the lowest index so results
+ * match a linear scan over the points in index order.
+ */
+public strictfp class NearestNeighbourGrid {
+
+    private static final float POINTS_PER_CELL = 2f;
+
+    private final float[] xs;
+    private final float[] ys;
+    private final boolean[] removed;
+    private int aliveCount;
+
+    private float originX;
+    private float originY;
+    private float cellSize;
+    private int cellsX;
+    private int cellsY;
+    private int[] cellStarts;
+    private int[] cellItems;
+    private int indexedCount;
+
+    public NearestNeighbourGrid(float[] xs, float[] ys) {
+        if (xs.length != ys.length) {
+            throw new IllegalArgumentException("Coordinate arrays do not match");
+        }
+        this.xs = xs;
+        this.ys = ys;
+        this.removed = new boolean[xs.length];
+        this.aliveCount = xs.length;
+        rebuild();
+    }
+
+    public void remove(int index) {
+        if (!removed[index]) {
+            removed[index] = true;
+            aliveCount--;
+        }
+    }
+
+    public boolean isRemoved(int index) {
+        return removed[index];
+    }
+
+    /**
+     * Returns the index of the remaining point closest to (x, y) whose distance is strictly less than maxDistance,
+     * or -1 if there is none. Distances are computed as (float) sqrt(dx * dx + dy * dy).
+     */
+    public int getNearest(float x, float y, float maxDistance) {
+        if (aliveCount == 0) {
+            return -1;
+        }
+        if (aliveCount * 2 < indexedCount) {
+            rebuild();
+        }
+        int centerX = getCell(x, originX, cellsX);
+        int centerY = getCell(y, originY, cellsY);
+        float bestDistance = maxDistance;
+        int best = -1;
+        int maxRing = StrictMath.max(StrictMath.max(centerX, cellsX - 1 - centerX), StrictMath.max(centerY, cellsY - 1 - centerY));
+        for (int ring = 0; ring <= maxRing; ring++) {
+            if (ring > 0 && getRingLowerBound(x, y, centerX, centerY, ring) > bestDistance) {
+                break;
+            }
+            int startX = centerX - ring;
+            int endX = centerX + ring;
+            int startY = centerY - ring;
+            int endY = centerY + ring;
+            for (int cellY = StrictMath.max(startY, 0); cellY <= StrictMath.min(endY, cellsY - 1); cellY++) {
+                boolean edgeRow = cellY == startY || cellY == endY;
+                for (int cellX = StrictMath.max(startX, 0); cellX <= StrictMath.min(endX, cellsX - 1); cellX++) {
+                    if (!edgeRow && cellX != startX && cellX != endX) {
+                        continue;
+                    }
+                    int cell = cellY * cellsX + cellX;
+                    for (int i = cellStarts[cell]; i < cellStarts[cell + 1]; i++) {
+                        int index = cellItems[i];
+                        if (removed[index]) {
+                            continue;
+                        }
+                        float dx = x - xs[index];
+                        float dy = y - ys[index];
+                        float distance = (float) StrictMath.sqrt(dx * dx + dy * dy);
+                        if (distance < bestDistance || (distance == bestDistance && best != -1 && index < best)) {
+                            bestDistance = distance;
+                            best = index;
+                        }
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Every point outside the rings before the given one lies outside the square of cells scanned so far,
+     * so its distance is at least the distance from the query to the nearest edge of that square.
+     */
+    private float getRingLowerBound(float x, float y, int centerX, int centerY, int ring) {
+        float minX = originX + (centerX - ring + 1) * cellSize;
+        float maxX = originX + (centerX + ring) * cellSize;
+        float minY = originY + (centerY - ring + 1) * cellSize;
+        float maxY = originY + (centerY + ring) * cellSize;
+        if (x < minX || x > maxX || y < minY || y > maxY) {
+            return 0;
+        }
+        float bound = StrictMath.min(StrictMath.min(x - minX, maxX - x), StrictMath.min(y - minY, maxY - y));
+        // leave room for rounding in the distance computation
+        return bound * .999f - .001f;
+    }
+
+    private void rebuild() {
+        float minX = Float.POSITIVE_INFINITY;
+        float minY = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY;
+        float maxY = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < xs.length; i++) {
+            if (!removed[i]) {
+                minX = StrictMath.min(minX, xs[i]);
+                minY = StrictMath.min(minY, ys[i]);
+                maxX = StrictMath.max(maxX, xs[i]);
+                maxY = StrictMath.max(maxY, ys[i]);
+            }
+        }
+        if (aliveCount == 0) {
+            minX = minY = maxX = maxY = 0;
+        }
+        float extent = StrictMath.max(StrictMath.max(maxX - minX, maxY - minY), 1f);
+        int cellsPerSide = StrictMath.max((int) StrictMath.sqrt(aliveCount / POINTS_PER_CELL), 1);
+        originX = minX;
+        originY = minY;
+        cellSize = extent / cellsPerSide * 1.0001f;
+        cellsX = StrictMath.max((int) ((maxX - minX) / cellSize) + 1, 1);
+        cellsY = StrictMath.max((int) ((maxY - minY) / cellSize) + 1, 1);
+
+        int[] cells = new int[xs.length];
+        cellStarts = new int[cellsX * cellsY + 1];
+        for (int i = 0; i < xs.length; i++) {
+            if (!removed[i]) {
+                cells[i] = getCell(ys[i], originY, cellsY) * cellsX + getCell(xs[i], originX, cellsX);
+                cellStarts[cells[i] + 1]++;
+            }
+        }
+        for (int i = 0; i < cellsX * cellsY; i++) {
+            cellStarts[i + 1] += cellStarts[i];
+        }
+        int[] offsets = Arrays.copyOf(cellStarts, cellStarts.length - 1);
+        cellItems = new int[aliveCount];
+        for (int i = 0; i < xs.length; i++) {
+            if (!removed[i]) {
+                cellItems[offsets[cells[i]]++] = i;
+            }
+        }
+        indexedCount = aliveCount;
+    }
+
+    private int getCell(float coordinate, float origin, int cellCount) {
+        return StrictMath.max(StrictMath.min((int) StrictMath.floor((coordinate - origin) / cellSize), cellCount - 1), 0);
+    }
+}
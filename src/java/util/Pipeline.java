@@ -13,6 +13,8 @@ import java.nio.file.Path;
 import java.security.NoSuchAlgorithmException;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -22,6 +24,8 @@ public strictfp class Pipeline {
     private static final List<Entry> pipeline = new ArrayList<>();
     public static CompletableFuture<List<ConcurrentMask>> started = new CompletableFuture<>();
     public static String[] hashArray;
+    public static long[] timeArray;
+    public static Executor executor = ForkJoinPool.commonPool();
 
     public static void reset() {
         started = new CompletableFuture<>();
@@ -56,6 +60,7 @@ public strictfp class Pipeline {
                     long startTime = System.currentTimeMillis();
                     Object res = function.apply(m);
                     long functionTime = System.currentTimeMillis() - startTime;
+                    timeArray[index] = functionTime;
                     startTime = System.currentTimeMillis();
                     try {
                         hashArray[index] = String.format("%s,\t%s,\t%s,\t%s%n", executingMask.toHash(), callingLine, executingMask.getName(), callingMethod);
@@ -74,7 +79,7 @@ public strictfp class Pipeline {
                         );
                     }
                     return res;
-                })
+                }, executor)
                 .thenRun(() -> {
 
                 });
@@ -98,6 +103,7 @@ public strictfp class Pipeline {
     public static void start() {
         System.out.println("Starting pipeline");
         hashArray = new String[getPipelineSize()];
+        timeArray = new long[getPipelineSize()];
         started.complete(null);
     }
 
@@ -151,7 +157,8 @@ public strictfp class Pipeline {
                 .thenApplyAsync(aVoid ->
                         dependencyList.stream()
                                 .map(e -> e.getResult(requestingMask))
-                                .collect(Collectors.toList())
+                                .collect(Collectors.toList()),
+                        executor
                 );
     }
 
@@ -159,6 +166,18 @@ public strictfp class Pipeline {
         return pipeline.size();
     }
 
+    /**
+     * Sums the function time of the entries by the name of the mask they execute on,
+     * so the totals stay comparable when entries are added or reordered.
+     */
+    public static Map<String, Long> getFunctionTimesByMask() {
+        Map<String, Long> functionTimes = new TreeMap<>();
+        for (int i = 0; i < timeArray.length; i++) {
+            functionTimes.merge(pipeline.get(i).getExecutingMask().getName(), timeArray[i], Long::sum);
+        }
+        return functionTimes;
+    }
+
     public static void toFile(Path path) throws IOException {
         Files.deleteIfExists(path);
         File outFile = path.toFile();
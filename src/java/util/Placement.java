@@ -1,7 +1,12 @@
 package util;
 
+import map.Heightfield;
 import map.SCMap;
 
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
 public strictfp class Placement {
 
     public static Vector3f placeOnHeightmap(SCMap map, Vector2f v) {
@@ -13,10 +18,41 @@ public strictfp class Placement {
     }
 
     public static Vector3f placeOnHeightmap(SCMap map, float x, float z) {
-        Vector3f v = new Vector3f(x, 0, z);
-        if ((int) x < map.getHeightmap().getWidth() && (int) x > 0 && (int) z < map.getHeightmap().getHeight() && (int) z > 0) {
-            v.y = map.getHeightmap().getRaster().getPixel((int) v.x, (int) v.z, new int[]{0})[0] * (map.getHeightMapScale());
+        return placeOnHeightmap(map.getHeightfield(), x, z);
+    }
+
+    public static Vector3f placeOnHeightmap(Heightfield heightfield, Vector2f v) {
+        return placeOnHeightmap(heightfield, v.x, v.y);
+    }
+
+    public static Vector3f placeOnHeightmap(Heightfield heightfield, Vector3f v) {
+        return placeOnHeightmap(heightfield, v.x, v.z);
+    }
+
+    public static Vector3f placeOnHeightmap(Heightfield heightfield, float x, float z) {
+        return new Vector3f(x, heightfield.getHeight(x, z), z);
+    }
+
+    public static <T> void placeOnHeightmap(SCMap map, List<T> entities, Function<T, Vector3f> positionGetter, BiConsumer<T, Vector3f> positionSetter) {
+        Heightfield heightfield = map.getHeightfield();
+        int count = entities.size();
+        float[] xs = new float[count];
+        float[] zs = new float[count];
+        float[] heights = new float[count];
+        for (int i = 0; i < count; i++) {
+            T entity = entities.get(i);
+            if (entity != null) {
+                Vector3f position = positionGetter.apply(entity);
+                xs[i] = position.x;
+                zs[i] = position.z;
+            }
+        }
+        heightfield.getHeights(xs, zs, heights);
+        for (int i = 0; i < count; i++) {
+            T entity = entities.get(i);
+            if (entity != null) {
+                positionSetter.accept(entity, new Vector3f(xs[i], heights[i], zs[i]));
+            }
         }
-        return v;
     }
 }
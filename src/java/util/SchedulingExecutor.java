@@ -0,0 +1,92 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Fixed size executor that picks the next queued task in a given order instead of the order tasks were submitted in.
+ * Used to check that the pipeline output does not depend on how ready entries are scheduled.
+ * In random order each task is also delayed by up to maxDelay ms to shake up the interleaving further.
+ * Closing the executor interrupts the worker threads, tasks still queued at that point are dropped.
+ */
+public strictfp class SchedulingExecutor implements Executor, AutoCloseable {
+
+    public enum Order {
+        FIFO,
+        LIFO,
+        RANDOM
+    }
+
+    private final Order order;
+    private final Random random;
+    private final int maxDelay;
+    private final List<Runnable> tasks = new ArrayList<>();
+    private final List<Thread> threads = new ArrayList<>();
+    private boolean closed;
+
+    public SchedulingExecutor(int threadCount, Order order, long seed, int maxDelay) {
+        this.order = order;
+        this.random = new Random(seed);
+        this.maxDelay = maxDelay;
+        for (int i = 0; i < StrictMath.max(threadCount, 1); i++) {
+            Thread thread = new Thread(this::work, "scheduled-" + order.name().toLowerCase() + "-" + i);
+            thread.setDaemon(true);
+            threads.add(thread);
+            thread.start();
+        }
+    }
+
+    @Override
+    public synchronized void execute(Runnable task) {
+        if (closed) {
+            throw new RejectedExecutionException("Executor is closed");
+        }
+        tasks.add(task);
+        notify();
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            tasks.clear();
+        }
+        threads.forEach(Thread::interrupt);
+    }
+
+    private void work() {
+        try {
+            while (true) {
+                Runnable task;
+                int delay;
+                synchronized (this) {
+                    while (tasks.isEmpty()) {
+                        if (closed) {
+                            return;
+                        }
+                        wait();
+                    }
+                    task = tasks.remove(switch (order) {
+                        case FIFO -> 0;
+                        case LIFO -> tasks.size() - 1;
+                        case RANDOM -> random.nextInt(tasks.size());
+                    });
+                    delay = order == Order.RANDOM && maxDelay > 0 ? random.nextInt(maxDelay + 1) : 0;
+                }
+                if (delay > 0) {
+                    Thread.sleep(delay);
+                }
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
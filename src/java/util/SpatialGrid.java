@@ -0,0 +1,52 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Uniform grid over a square area for radius queries.
+ * Positions outside the area are clamped into the border cells.
+ */
+public strictfp class SpatialGrid<T> {
+
+    private final float cellSize;
+    private final int cellCount;
+    private final ArrayList<T>[] cells;
+
+    @SuppressWarnings("unchecked")
+    public SpatialGrid(float size, float radius) {
+        // one unit of slack so float rounding at the radius never skips a cell
+        this.cellSize = StrictMath.max(radius, 0) + 1;
+        this.cellCount = StrictMath.max((int) StrictMath.ceil(size / this.cellSize), 1);
+        this.cells = new ArrayList[cellCount * cellCount];
+    }
+
+    public void add(T item, float x, float y) {
+        int index = getCell(y) * cellCount + getCell(x);
+        if (cells[index] == null) {
+            cells[index] = new ArrayList<>();
+        }
+        cells[index].add(item);
+    }
+
+    /**
+     * Visits every item that may lie within the grid radius of the given position.
+     * Callers still have to check the exact distance.
+     */
+    public void forEachCandidate(float x, float y, Consumer<T> consumer) {
+        int cellX = getCell(x);
+        int cellY = getCell(y);
+        for (int j = StrictMath.max(cellY - 1, 0); j <= StrictMath.min(cellY + 1, cellCount - 1); j++) {
+            for (int i = StrictMath.max(cellX - 1, 0); i <= StrictMath.min(cellX + 1, cellCount - 1); i++) {
+                ArrayList<T> cell = cells[j * cellCount + i];
+                if (cell != null) {
+                    cell.forEach(consumer);
+                }
+            }
+        }
+    }
+
+    private int getCell(float coordinate) {
+        return StrictMath.max(StrictMath.min((int) StrictMath.floor(coordinate / cellSize), cellCount - 1), 0);
+    }
+}
@@ -0,0 +1,42 @@
+package util;
+
+import map.BinaryMask;
+
+/**
+ * Counts of true pixels of a binary mask over any axis aligned rectangle in constant time.
+ */
+public strictfp class SummedAreaTable {
+
+    private final int size;
+    private final int[] sums;
+
+    public SummedAreaTable(BinaryMask mask) {
+        this.size = mask.getSize();
+        int stride = size + 1;
+        this.sums = new int[stride * stride];
+        for (int y = 0; y < size; y++) {
+            int rowSum = 0;
+            for (int x = 0; x < size; x++) {
+                if (mask.getValueAt(x, y)) {
+                    rowSum++;
+                }
+                sums[(y + 1) * stride + x + 1] = sums[y * stride + x + 1] + rowSum;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of true pixels with startX <= x < endX and startY <= y < endY, clipped to the mask.
+     */
+    public int getCount(int startX, int startY, int endX, int endY) {
+        startX = StrictMath.max(startX, 0);
+        startY = StrictMath.max(startY, 0);
+        endX = StrictMath.min(endX, size);
+        endY = StrictMath.min(endY, size);
+        if (startX >= endX || startY >= endY) {
+            return 0;
+        }
+        int stride = size + 1;
+        return sums[endY * stride + endX] - sums[startY * stride + endX] - sums[endY * stride + startX] + sums[startY * stride + startX];
+    }
+}
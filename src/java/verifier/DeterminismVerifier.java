@@ -0,0 +1,353 @@
+package verifier;
+
+import benchmark.BenchmarkCase;
+import benchmark.GenerationBenchmark;
+import com.google.common.io.BaseEncoding;
+import generator.MapGenerator;
+import lombok.Value;
+import util.ArgumentParser;
+import util.FileUtils;
+import util.Pipeline;
+import util.SchedulingExecutor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Generates the same maps under several executor sizes and scheduling orders and checks that the pipeline mask hashes
+ * and the exported files all match the first configuration. Every run is a separate jvm, since the size of the common
+ * pool is fixed when it is first used. Runs in an order other than DEFAULT execute the pipeline entries on a
+ * {@link SchedulingExecutor} instead of the common pool. For every diverging run the first pipeline entry with a different
+ * hash is reported with its call site. Entries only depend on earlier entries, so that is where the divergence starts.
+ */
+public strictfp class DeterminismVerifier {
+
+    private static final String DEFAULT_ORDER = "DEFAULT";
+    private static final String HASH_FILE = "debug/pipelineMaskHashes.txt";
+
+    private Path folderPath = Paths.get("determinism");
+    private Path corpusPath;
+    private String mapName;
+    private List<Integer> threadCounts = new ArrayList<>(new TreeSet<>(List.of(1, 2, Runtime.getRuntime().availableProcessors())));
+    private List<String> orders = List.of(SchedulingExecutor.Order.FIFO.name(), SchedulingExecutor.Order.LIFO.name());
+    private int stressRuns = 0;
+    private int maxDelay = 2;
+    private long seed = 0;
+
+    public static void main(String[] args) throws IOException {
+
+        Locale.setDefault(Locale.US);
+
+        Map<String, String> arguments = ArgumentParser.parse(args);
+        if (arguments.containsKey("run")) {
+            runGenerator(arguments);
+            return;
+        }
+
+        DeterminismVerifier verifier = new DeterminismVerifier();
+
+        verifier.interpretArguments(arguments);
+
+        int diverged = verifier.verify();
+        System.out.println("Done");
+        if (diverged > 0) {
+            System.exit(5);
+        }
+    }
+
+    public void interpretArguments(String[] args) {
+        interpretArguments(ArgumentParser.parse(args));
+    }
+
+    private void interpretArguments(Map<String, String> arguments) {
+        if (arguments.containsKey("help")) {
+            System.out.println("determinism-verifier usage:\n" +
+                    "--help                 produce help message\n" +
+                    "--folder-path arg      optional, set the folder the runs are generated into (default determinism)\n" +
+                    "--map-name arg         optional, set the map to verify instead of the benchmark corpus\n" +
+                    "--corpus-path arg      optional, set a file with one map name per line to verify instead of the benchmark corpus\n" +
+                    "--threads arg          optional, set the comma separated executor sizes to run with (default 1,2 and the processor count)\n" +
+                    "--orders arg           optional, set the comma separated scheduling orders run with the largest size (default FIFO,LIFO)\n" +
+                    "--stress arg           optional, set the number of extra runs per map in random order with random delays\n" +
+                    "--max-delay arg        optional, set the longest delay in ms before a task in random order (default 2)\n" +
+                    "--seed arg             optional, set the seed of the random order runs\n");
+            System.exit(0);
+        }
+
+        if (arguments.containsKey("folder-path") && arguments.get("folder-path") != null) {
+            folderPath = Paths.get(arguments.get("folder-path"));
+        }
+
+        if (arguments.containsKey("map-name") && arguments.get("map-name") != null) {
+            mapName = arguments.get("map-name");
+        }
+
+        if (arguments.containsKey("corpus-path") && arguments.get("corpus-path") != null) {
+            corpusPath = Paths.get(arguments.get("corpus-path"));
+        }
+
+        if (arguments.containsKey("threads") && arguments.get("threads") != null) {
+            threadCounts = Arrays.stream(arguments.get("threads").split(",")).map(String::trim).map(Integer::parseInt).collect(Collectors.toList());
+        }
+
+        if (arguments.containsKey("orders")) {
+            orders = arguments.get("orders") == null ? List.of() : Arrays.stream(arguments.get("orders").split(","))
+                    .map(order -> SchedulingExecutor.Order.valueOf(order.trim().toUpperCase()).name()).collect(Collectors.toList());
+        }
+
+        if (arguments.containsKey("stress") && arguments.get("stress") != null) {
+            stressRuns = Integer.parseInt(arguments.get("stress"));
+        }
+
+        if (arguments.containsKey("max-delay") && arguments.get("max-delay") != null) {
+            maxDelay = Integer.parseInt(arguments.get("max-delay"));
+        }
+
+        if (arguments.containsKey("seed") && arguments.get("seed") != null) {
+            seed = Long.parseLong(arguments.get("seed"));
+        }
+
+        if (threadCounts.isEmpty()) {
+            System.out.println("Threads not Specified");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Runs every configuration for every map and returns the number of runs that did not match the first configuration.
+     */
+    public int verify() throws IOException {
+        List<String> mapNames = getMapNames();
+        List<RunConfiguration> configurations = getConfigurations();
+        System.out.printf("Verifying %d maps in %d configurations\n", mapNames.size(), configurations.size());
+        int diverged = 0;
+        for (int i = 0; i < mapNames.size(); i++) {
+            String name = mapNames.get(i);
+            Path mapFolder = folderPath.resolve(Integer.toString(i));
+            RunResult reference = null;
+            for (RunConfiguration configuration : configurations) {
+                RunResult result = run(name, configuration, mapFolder.resolve(configuration.getId()));
+                if (reference == null) {
+                    reference = result;
+                    if (result.getError() != null) {
+                        System.out.printf("%s: reference run %s failed: %s\n", name, configuration.getId(), result.getError());
+                        diverged++;
+                        break;
+                    }
+                    continue;
+                }
+                List<String> differences = compare(reference, result);
+                if (differences.isEmpty()) {
+                    System.out.printf("%s: %s matches %s\n", name, configuration.getId(), reference.getConfiguration().getId());
+                    FileUtils.deleteRecursiveIfExists(mapFolder.resolve(configuration.getId()));
+                } else {
+                    diverged++;
+                    System.out.printf("%s: %s diverges from %s\n", name, configuration.getId(), reference.getConfiguration().getId());
+                    differences.forEach(difference -> System.out.println("    " + difference));
+                }
+            }
+        }
+        System.out.printf("%d runs diverged\n", diverged);
+        return diverged;
+    }
+
+    private List<String> getMapNames() throws IOException {
+        if (mapName != null) {
+            return List.of(mapName);
+        }
+        List<BenchmarkCase> corpus = corpusPath != null ? GenerationBenchmark.readCorpus(corpusPath) : GenerationBenchmark.getDefaultCorpus();
+        return corpus.stream().map(benchmarkCase -> {
+            MapGenerator generator = new MapGenerator();
+            generator.interpretArguments(benchmarkCase.getArguments());
+            return generator.getMapName();
+        }).collect(Collectors.toList());
+    }
+
+    private List<RunConfiguration> getConfigurations() {
+        List<RunConfiguration> configurations = new ArrayList<>();
+        threadCounts.forEach(threadCount -> configurations.add(new RunConfiguration(threadCount, DEFAULT_ORDER, 0)));
+        int maxThreadCount = Collections.max(threadCounts);
+        orders.forEach(order -> configurations.add(new RunConfiguration(maxThreadCount, order, 0)));
+        for (int i = 0; i < stressRuns; i++) {
+            configurations.add(new RunConfiguration(threadCounts.get(i % threadCounts.size()), SchedulingExecutor.Order.RANDOM.name(), seed + i));
+        }
+        return configurations;
+    }
+
+    private RunResult run(String name, RunConfiguration configuration, Path runFolder) throws IOException {
+        FileUtils.deleteRecursiveIfExists(runFolder);
+        Files.createDirectories(runFolder);
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        ManagementFactory.getRuntimeMXBean().getInputArguments().stream()
+                .filter(argument -> argument.startsWith("-Xmx") || argument.startsWith("-Xms"))
+                .forEach(command::add);
+        command.add("-Djava.util.concurrent.ForkJoinPool.common.parallelism=" + configuration.getThreads());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(DeterminismVerifier.class.getName());
+        command.addAll(List.of("--run",
+                "--map-name", name,
+                "--folder-path", runFolder.toString(),
+                "--threads", Integer.toString(configuration.getThreads()),
+                "--order", configuration.getOrder(),
+                "--seed", Long.toString(configuration.getSeed()),
+                "--max-delay", Integer.toString(maxDelay)));
+
+        long sTime = System.currentTimeMillis();
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(runFolder.resolve("log.txt").toFile())
+                .start();
+        int exitCode;
+        try {
+            exitCode = process.waitFor();
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for run " + configuration.getId(), e);
+        }
+        System.out.printf("Run %s: %d ms\n", configuration.getId(), System.currentTimeMillis() - sTime);
+
+        Path exportFolder;
+        try (Stream<Path> paths = Files.list(runFolder)) {
+            exportFolder = paths.filter(Files::isDirectory).findFirst().orElse(null);
+        }
+        if (exitCode != 0 || exportFolder == null || !Files.isRegularFile(exportFolder.resolve(HASH_FILE))) {
+            return new RunResult(configuration, List.of(), Map.of(),
+                    String.format("exit code %d, see %s", exitCode, runFolder.resolve("log.txt")));
+        }
+        return new RunResult(configuration, Files.readAllLines(exportFolder.resolve(HASH_FILE)), hashFiles(exportFolder), null);
+    }
+
+    private static SortedMap<String, String> hashFiles(Path exportFolder) throws IOException {
+        SortedMap<String, String> fileHashes = new TreeMap<>();
+        List<Path> files;
+        try (Stream<Path> paths = Files.walk(exportFolder)) {
+            files = paths.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+        for (Path file : files) {
+            String relativePath = exportFolder.relativize(file).toString().replace('\\', '/');
+            if (!relativePath.equals(HASH_FILE)) {
+                fileHashes.put(relativePath, hashFile(file));
+            }
+        }
+        return fileHashes;
+    }
+
+    private static String hashFile(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("Cannot hash file " + file, e);
+        }
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return BaseEncoding.base16().lowerCase().encode(digest.digest());
+    }
+
+    private static List<String> compare(RunResult reference, RunResult result) {
+        List<String> differences = new ArrayList<>();
+        if (result.getError() != null) {
+            differences.add("run failed: " + result.getError());
+            return differences;
+        }
+
+        List<String> referenceEntries = reference.getPipelineHashes();
+        List<String> entries = result.getPipelineHashes();
+        if (referenceEntries.size() != entries.size()) {
+            differences.add(String.format("pipeline has %d entries instead of %d", entries.size(), referenceEntries.size()));
+        }
+        int firstDiverging = -1;
+        int divergingCount = 0;
+        for (int i = 0; i < StrictMath.min(referenceEntries.size(), entries.size()); i++) {
+            if (!referenceEntries.get(i).equals(entries.get(i))) {
+                divergingCount++;
+                if (firstDiverging == -1) {
+                    firstDiverging = i;
+                }
+            }
+        }
+        if (firstDiverging != -1) {
+            // entry lines are "hash,\tcalling line,\tmask name,\tcalling method"
+            String[] entry = entries.get(firstDiverging).split(",\t", 4);
+            String[] referenceEntry = referenceEntries.get(firstDiverging).split(",\t", 4);
+            differences.add(String.format("first diverging pipeline entry %d: %s->%s at %s, %d of %d entries differ",
+                    firstDiverging,
+                    entry.length > 2 ? entry[2] : "?",
+                    entry.length > 3 ? entry[3] : "?",
+                    entry.length > 1 ? entry[1] : "?",
+                    divergingCount,
+                    referenceEntries.size()));
+            differences.add(String.format("hash %s instead of %s", entry[0], referenceEntry[0]));
+        }
+
+        Set<String> files = new TreeSet<>(reference.getFileHashes().keySet());
+        files.addAll(result.getFileHashes().keySet());
+        for (String file : files) {
+            String referenceHash = reference.getFileHashes().get(file);
+            String hash = result.getFileHashes().get(file);
+            if (referenceHash == null) {
+                differences.add("extra file " + file);
+            } else if (hash == null) {
+                differences.add("missing file " + file);
+            } else if (!referenceHash.equals(hash)) {
+                differences.add("different file " + file);
+            }
+        }
+        return differences;
+    }
+
+    /**
+     * Entry point of the child jvm of a single run. Generates and saves the map with the pipeline on the requested executor.
+     */
+    private static void runGenerator(Map<String, String> arguments) {
+        String order = arguments.getOrDefault("order", DEFAULT_ORDER);
+        if (!DEFAULT_ORDER.equals(order)) {
+            Pipeline.executor = new SchedulingExecutor(Integer.parseInt(arguments.get("threads")), SchedulingExecutor.Order.valueOf(order),
+                    Long.parseLong(arguments.get("seed")), Integer.parseInt(arguments.get("max-delay")));
+        }
+        try {
+            MapGenerator generator = new MapGenerator();
+            generator.interpretArguments(new String[]{"--folder-path", arguments.get("folder-path"), "--map-name", arguments.get("map-name")});
+            generator.generate();
+            generator.save();
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    @Value
+    private static class RunConfiguration {
+        int threads;
+        String order;
+        long seed;
+
+        private String getId() {
+            String id = String.format("%d_threads_%s", threads, order.toLowerCase());
+            return order.equals(SchedulingExecutor.Order.RANDOM.name()) ? id + "_" + seed : id;
+        }
+    }
+
+    @Value
+    private static class RunResult {
+        RunConfiguration configuration;
+        List<String> pipelineHashes;
+        Map<String, String> fileHashes;
+        String error;
+    }
+}
@@ -0,0 +1,156 @@
+package exporter;
+
+import map.*;
+import org.openjdk.jmh.annotations.*;
+import util.FileUtils;
+import util.Vector3f;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to write the save of a map with 50k units through LuaWriter and through the String.format calls SaveExporter
+ * used before. The map only holds spawns and units, so the marker sections both paths would write are empty.
+ * Run with {@code ./gradlew jmh -PjmhInclude=SaveExporterBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SaveExporterBenchmark {
+
+    private static final long SEED = 1234L;
+    private static final int UNIT_COUNT = 50000;
+    private static final int GROUPS_PER_ARMY = 10;
+
+    private SCMap map;
+    private Path folderPath;
+
+    @Setup(Level.Trial)
+    public void setupMap() throws IOException {
+        Random random = new Random(SEED);
+        map = new SCMap(1024, 0, 0, 0, null);
+        for (int i = 0; i < 8; i++) {
+            map.addSpawn(new Spawn("ARMY_" + (i + 1), getRandomPosition(random), null));
+        }
+        int unitsPerGroup = UNIT_COUNT / (map.getSpawnCount() * GROUPS_PER_ARMY);
+        for (int i = 0; i < map.getSpawnCount(); i++) {
+            Army army = new Army("ARMY_" + (i + 1), new ArrayList<>());
+            for (int j = 0; j < GROUPS_PER_ARMY; j++) {
+                Group group = new Group("GROUP_" + j, new ArrayList<>());
+                for (int k = 0; k < unitsPerGroup; k++) {
+                    group.addUnit(new Unit("UNIT_" + k, "xec8001", getRandomPosition(random), (float) (random.nextFloat() * StrictMath.PI * 2)));
+                }
+                army.addGroup(group);
+            }
+            map.addArmy(army);
+        }
+        folderPath = Files.createTempDirectory("save_benchmark");
+        if (!Arrays.equals(Files.readAllBytes(luaWriter().toPath()), Files.readAllBytes(stringFormat().toPath()))) {
+            throw new IllegalStateException("LuaWriter and String.format saves differ");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFolder() {
+        FileUtils.deleteRecursiveIfExists(folderPath);
+    }
+
+    @Benchmark
+    public File luaWriter() throws IOException {
+        return SaveExporter.exportSave(folderPath, "luaWriter", map);
+    }
+
+    @Benchmark
+    public File stringFormat() throws IOException {
+        File file = folderPath.resolve("stringFormat_save.lua").toFile();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeBytes("Scenario = {\n");
+            out.writeBytes("  next_area_id = '1',\n");
+            out.writeBytes("  Props = {},\n");
+            out.writeBytes("  Areas = {},\n");
+            out.writeBytes("  MasterChain = {\n");
+            out.writeBytes("    ['_MASTERCHAIN_'] = {\n");
+            out.writeBytes("      Markers = {\n");
+            for (Spawn spawn : map.getSpawns()) {
+                out.writeBytes(String.format(Locale.US, "        ['%s'] = {\n", spawn.getId()));
+                out.writeBytes("          ['type'] = STRING( 'Blank Marker' ),\n");
+                Vector3f v = spawn.getPosition();
+                out.writeBytes(String.format(Locale.US, "          ['position'] = VECTOR3( %f, %f, %f),\n", v.x, v.y, v.z));
+                out.writeBytes("          ['orientation'] = VECTOR3( 0.00, 0.00, 0.00 ),\n");
+                out.writeBytes("          ['color'] = STRING( 'ff800080' ),\n");
+                out.writeBytes("          ['prop'] = STRING( '/env/common/props/markers/M_Blank_prop.bp' ),\n");
+                out.writeBytes("        },\n");
+            }
+            out.writeBytes("      },\n");
+            out.writeBytes("    },\n");
+            out.writeBytes("  },\n");
+            out.writeBytes("  Chains = {},\n");
+            out.writeBytes("  next_queue_id = '1',\n");
+            out.writeBytes("  Orders = {},\n");
+            out.writeBytes("  next_platoon_id = '1',\n");
+            out.writeBytes("  Platoons = {},\n");
+            out.writeBytes("  next_army_id = '1',\n");
+            out.writeBytes("  next_group_id = '1',\n");
+            out.writeBytes("  next_unit_id = '1',\n");
+            out.writeBytes("  Armies = {\n");
+            for (Army army : map.getArmies()) {
+                writeArmy(out, army);
+            }
+            out.writeBytes("  },\n");
+            out.writeBytes("}\n");
+        }
+        return file;
+    }
+
+    private static void writeArmy(DataOutputStream out, Army army) throws IOException {
+        out.writeBytes(String.format(Locale.US, "    ['%s'] = {\n", army.getId()));
+        out.writeBytes("      personality = '',\n");
+        out.writeBytes("      plans = '',\n");
+        out.writeBytes("      color = 0,\n");
+        out.writeBytes("      faction = 0,\n");
+        out.writeBytes("      Economy = {mass = 0, energy = 0},\n");
+        out.writeBytes("      Alliances = {},\n");
+        out.writeBytes("      ['Units'] = GROUP {\n");
+        out.writeBytes("        orders = '',\n");
+        out.writeBytes("        platoon = '',\n");
+        out.writeBytes("        Units = {\n");
+        for (Group group : army.getGroups()) {
+            out.writeBytes(String.format(Locale.US, "          ['%s'] = GROUP {\n", group.getId()));
+            out.writeBytes("            orders = '',\n");
+            out.writeBytes("            platoon = '',\n");
+            out.writeBytes("            Units = {\n");
+            for (Unit unit : group.getUnits()) {
+                out.writeBytes(String.format(Locale.US, "              ['%s'] = {\n", unit.getId()));
+                out.writeBytes(String.format(Locale.US, "	              type = '%s',\n", unit.getType()));
+                out.writeBytes("			              orders = '',\n");
+                out.writeBytes("			              platoon = '',\n");
+                Vector3f v = unit.getPosition();
+                out.writeBytes(String.format(Locale.US, "			              Position = { %f, %f, %f },\n", v.x, v.y, v.z));
+                out.writeBytes(String.format(Locale.US, "			              Orientation = { 0, %f, 0 },\n", unit.getRotation()));
+                out.writeBytes("              },\n");
+            }
+            out.writeBytes("            },\n");
+            out.writeBytes("          },\n");
+        }
+        out.writeBytes("        },\n");
+        out.writeBytes("      },\n");
+        out.writeBytes("      PlatoonBuilders = {\n");
+        out.writeBytes("        next_platoon_builder_id = '0',\n");
+        out.writeBytes("        Builders = {},\n");
+        out.writeBytes("      },\n");
+        out.writeBytes("    },\n");
+    }
+
+    private static Vector3f getRandomPosition(Random random) {
+        return new Vector3f(random.nextFloat() * 1024, random.nextFloat() * 128, random.nextFloat() * 1024);
+    }
+}
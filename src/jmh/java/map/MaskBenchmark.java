@@ -0,0 +1,101 @@
+package map;
+
+import org.openjdk.jmh.annotations.*;
+import util.Vector2f;
+
+import java.util.LinkedList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the core mask operations for every map size and symmetry.
+ * Operations work in place, so each invocation gets fresh copies of the same seeded masks.
+ * Run everything with {@code ./gradlew jmh}, or a subset with {@code ./gradlew jmh -PjmhInclude=MaskBenchmark.inflate}.
+ * To narrow the parameters run the benchmark jar directly, e.g.
+ * {@code java -jar build/libs/<name>-jmh.jar MaskBenchmark.inflate -p size=513 -p symmetry=POINT2 -prof gc}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MaskBenchmark {
+
+    private static final long SEED = 1234L;
+
+    @Param({"257", "513", "1025", "2049"})
+    public int size;
+
+    @Param({"POINT2", "POINT3", "POINT4", "POINT5", "POINT6", "POINT7", "POINT8", "POINT9", "POINT10", "POINT11", "POINT12",
+            "POINT13", "POINT14", "POINT15", "POINT16", "XZ", "ZX", "X", "Z", "QUAD", "DIAG", "NONE"})
+    public Symmetry symmetry;
+
+    private BinaryMask land;
+    private FloatMask heightmap;
+    private BinaryMask landCopy;
+    private FloatMask heightmapCopy;
+
+    @Setup(Level.Trial)
+    public void setupMasks() {
+        SymmetrySettings symmetrySettings = new SymmetrySettings(symmetry, symmetry, symmetry);
+        land = new BinaryMask(size, SEED, symmetrySettings).randomize(.4f).smooth(size / 64, SymmetryType.SPAWN);
+        heightmap = new FloatMask(land, 0f, 10f, SEED).smooth(size / 128);
+    }
+
+    @Setup(Level.Invocation)
+    public void copyMasks() {
+        landCopy = new BinaryMask(land, SEED);
+        heightmapCopy = new FloatMask(heightmap, SEED);
+    }
+
+    @Benchmark
+    public BinaryMask inflate() {
+        return landCopy.inflate(size / 64f);
+    }
+
+    @Benchmark
+    public BinaryMask deflate() {
+        return landCopy.deflate(size / 64f);
+    }
+
+    @Benchmark
+    public BinaryMask smoothBinary() {
+        return landCopy.smooth(size / 64, SymmetryType.SPAWN);
+    }
+
+    @Benchmark
+    public FloatMask smoothFloat() {
+        return heightmapCopy.smooth(size / 64);
+    }
+
+    @Benchmark
+    public FloatMask getDistanceField() {
+        return landCopy.getDistanceField();
+    }
+
+    @Benchmark
+    public BinaryMask removeAreasSmallerThan() {
+        return landCopy.removeAreasSmallerThan(size * size / 256);
+    }
+
+    @Benchmark
+    public LinkedList<Vector2f> getRandomCoordinates() {
+        return landCopy.getRandomCoordinates(size / 32f);
+    }
+
+    @Benchmark
+    public FloatMask applySymmetry() {
+        heightmapCopy.applySymmetry(SymmetryType.SPAWN);
+        return heightmapCopy;
+    }
+
+    @Benchmark
+    public FloatMask supcomGradient() {
+        return heightmapCopy.supcomGradient();
+    }
+
+    @Benchmark
+    public FloatMask useBrushWithinArea() {
+        return heightmapCopy.useBrushWithinArea(landCopy, "mountain1.png", size / 8, 8, 10f);
+    }
+}
@@ -0,0 +1,102 @@
+package evaluator;
+
+import map.*;
+import org.junit.Test;
+import util.Vector3f;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+public class MapEvaluatorTest {
+
+    private static final Symmetry[] SYMMETRIES = {Symmetry.POINT2, Symmetry.POINT4, Symmetry.X, Symmetry.Z, Symmetry.XZ, Symmetry.ZX,
+            Symmetry.QUAD, Symmetry.DIAG};
+
+    @Test
+    public void TestLocationListScoreMatchesBruteForce() {
+        Random random = new Random(1234);
+        for (int i = 0; i < 1000; i++) {
+            SymmetrySettings symmetrySettings = getRandomSymmetrySettings(random);
+            int size = 16 + random.nextInt(512);
+            boolean onGrid = random.nextBoolean();
+            List<Vector3f> locations = new ArrayList<>();
+            int count = random.nextInt(i < 950 ? 64 : 600);
+            for (int j = 0; j < count; j++) {
+                if (j > 0 && random.nextInt(10) == 0) {
+                    Vector3f duplicate = locations.get(random.nextInt(j));
+                    locations.add(new Vector3f(duplicate.x, duplicate.y, duplicate.z));
+                } else if (onGrid) {
+                    locations.add(new Vector3f(random.nextInt(size), random.nextInt(2), random.nextInt(size)));
+                } else {
+                    locations.add(new Vector3f(random.nextFloat() * size, random.nextInt(2), random.nextFloat() * size));
+                }
+            }
+            assertScoreEquals(new SCMap(size, 0, 0, 0, null), symmetrySettings, locations);
+        }
+    }
+
+    @Test
+    public void TestLocationListScoreWithCollidingHashes() {
+        Random random = new Random(1234);
+        for (int i = 0; i < 100; i++) {
+            SymmetrySettings symmetrySettings = getRandomSymmetrySettings(random);
+            int size = 16 + random.nextInt(512);
+            List<Vector3f> locations = new ArrayList<>();
+            for (int j = 0; j < 100; j++) {
+                locations.add(new Vector3f(random.nextFloat() * size, 0, random.nextFloat() * size));
+            }
+            // the Vector3f hash adds the bits of x times 59 * 59 to the bits of z, so raising x by one step and lowering z
+            // by 59 * 59 steps keeps the hash and puts all of these in one bucket, which HashMap turns into a tree
+            int xBits = Float.floatToIntBits(random.nextFloat() * size / 2 + size / 4f);
+            int zBits = Float.floatToIntBits(random.nextFloat() * size / 2 + size / 4f);
+            for (int j = 0; j < 12; j++) {
+                locations.add(random.nextInt(locations.size()), new Vector3f(Float.intBitsToFloat(xBits + j * 64),
+                        0, Float.intBitsToFloat(zBits - j * 64 * 59 * 59)));
+            }
+            assertScoreEquals(new SCMap(size, 0, 0, 0, null), symmetrySettings, locations);
+        }
+    }
+
+    private static SymmetrySettings getRandomSymmetrySettings(Random random) {
+        Symmetry symmetry = SYMMETRIES[random.nextInt(SYMMETRIES.length)];
+        return new SymmetrySettings(symmetry, symmetry, symmetry);
+    }
+
+    private static void assertScoreEquals(SCMap map, SymmetrySettings symmetrySettings, List<Vector3f> locations) {
+        float expected = getScoreByBruteForce(map, symmetrySettings, new ArrayList<>(locations));
+        float actual = new MapEvaluator(map, symmetrySettings).getLocationListScore(locations);
+        assertEquals(Float.floatToIntBits(expected), Float.floatToIntBits(actual));
+    }
+
+    /**
+     * The original pairing, which rescans every remaining location for each location it takes off the list.
+     */
+    private static float getScoreByBruteForce(SCMap map, SymmetrySettings symmetrySettings, List<Vector3f> locations) {
+        FloatMask heightmapBase = new FloatMask(map.getSize() + 1, null, symmetrySettings);
+        float locationScore = 0f;
+        Set<Vector3f> locationsSet = new HashSet<>(locations);
+        while (locationsSet.size() > 0) {
+            Vector3f location = locations.remove(0);
+            Vector3f closestLoc = null;
+            float minDist = (float) StrictMath.sqrt(map.getSize() * map.getSize());
+            for (Vector3f other : locations) {
+                SymmetryPoint symmetryPoint = heightmapBase.getSymmetryPoints(other, SymmetryType.SPAWN).get(0);
+                float dist = location.getXZDistance(symmetryPoint.getLocation());
+                if (dist < minDist) {
+                    closestLoc = other;
+                    minDist = dist;
+                }
+            }
+            locationsSet.remove(location);
+            locationsSet.remove(closestLoc);
+            locationScore += minDist;
+            locations = new ArrayList<>(locationsSet);
+        }
+        return locationScore;
+    }
+}
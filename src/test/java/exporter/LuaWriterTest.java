@@ -0,0 +1,40 @@
+package exporter;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class LuaWriterTest {
+
+    @Test
+    public void TestFloatFormatting() throws IOException {
+        Random random = new Random(1234);
+        float[] specialValues = {0f, -0f, .5f, -.5f, 0.0078125f, -0.0078125f, 0.0000005f, -0.0000005f, 99999.99f, 1e5f,
+                Float.MIN_VALUE, Float.MAX_VALUE, Float.NaN, Float.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY};
+        for (float value : specialValues) {
+            assertEquals(String.format(Locale.US, "%f", value), format(value));
+        }
+        for (int i = 0; i < 200000; i++) {
+            float value = switch (i % 4) {
+                case 0 -> random.nextFloat() * 1024;
+                case 1 -> (random.nextFloat() - .5f) * 20;
+                case 2 -> (random.nextInt(2000000) - 1000000) / 128f;
+                default -> Float.intBitsToFloat(random.nextInt());
+            };
+            assertEquals(String.format(Locale.US, "%f", value), format(value));
+        }
+    }
+
+    private static String format(float value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        LuaWriter writer = new LuaWriter(bytes);
+        writer.writeFloat(value);
+        writer.flush();
+        return bytes.toString("US-ASCII");
+    }
+}
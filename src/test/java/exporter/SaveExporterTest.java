@@ -0,0 +1,240 @@
+package exporter;
+
+import map.*;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import util.Vector3f;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+
+public class SaveExporterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void TestSaveMatchesFormattedOutput() throws IOException {
+        for (boolean unexplored : new boolean[]{false, true}) {
+            SCMap map = getRandomMap(new Random(1234), unexplored);
+            File file = SaveExporter.exportSave(folder.newFolder().toPath(), "test", map);
+            assertArrayEquals(getFormattedSave(map), Files.readAllBytes(file.toPath()));
+        }
+    }
+
+    private static SCMap getRandomMap(Random random, boolean unexplored) {
+        SCMap map = new SCMap(512, 0, 0, 0, null);
+        map.setUnexplored(unexplored);
+        for (int i = 0; i < 8; i++) {
+            map.addSpawn(new Spawn("ARMY_" + (i + 1), getRandomPosition(random), null));
+        }
+        for (int i = 0; i < 64; i++) {
+            map.getMexes().add(new Mex("Mex " + i, getRandomPosition(random)));
+        }
+        for (int i = 0; i < 16; i++) {
+            map.getHydros().add(new Hydro("Hydro " + i, getRandomPosition(random)));
+            map.getBlankMarkers().add(new BlankMarker("Blank " + i, getRandomPosition(random)));
+        }
+        for (ArrayList<AIMarker> aiMarkers : List.of(map.getAirAIMarkers(), map.getLandAIMarkers(), map.getAmphibiousAIMarkers(),
+                map.getNavyAIMarkers(), map.getLargeExpansionAIMarkers())) {
+            for (int i = 0; i < 32; i++) {
+                LinkedHashSet<String> neighbors = new LinkedHashSet<>();
+                int neighborCount = random.nextInt(4);
+                for (int j = 0; j < neighborCount; j++) {
+                    neighbors.add("AIMarker " + random.nextInt(32));
+                }
+                aiMarkers.add(new AIMarker("AIMarker " + i, getRandomPosition(random), neighbors));
+            }
+        }
+        for (int i = 0; i < 3; i++) {
+            Army army = new Army("ARMY_" + (i + 1), new ArrayList<>());
+            for (int j = 0; j < 2; j++) {
+                Group group = new Group("GROUP_" + j, new ArrayList<>());
+                for (int k = 0; k < 200; k++) {
+                    group.addUnit(new Unit("UNIT_" + k, "xec8001", getRandomPosition(random), (float) (random.nextFloat() * StrictMath.PI * 2)));
+                }
+                army.addGroup(group);
+            }
+            map.addArmy(army);
+        }
+        return map;
+    }
+
+    private static Vector3f getRandomPosition(Random random) {
+        return new Vector3f(random.nextFloat() * 1024, (random.nextFloat() - .5f) * 128, random.nextInt(1024 * 128) / 128f);
+    }
+
+    /**
+     * Writes the save the way SaveExporter did before it moved to LuaWriter.
+     */
+    private static byte[] getFormattedSave(SCMap map) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeBytes("Scenario = {\n");
+        out.writeBytes("  next_area_id = '1',\n");
+        out.writeBytes("  Props = {},\n");
+        out.writeBytes("  Areas = {},\n");
+        out.writeBytes("  MasterChain = {\n");
+        out.writeBytes("    ['_MASTERCHAIN_'] = {\n");
+        out.writeBytes("      Markers = {\n");
+        for (Spawn spawn : map.getSpawns()) {
+            out.writeBytes(String.format(Locale.US, "        ['%s'] = {\n", spawn.getId()));
+            out.writeBytes("          ['type'] = STRING( 'Blank Marker' ),\n");
+            Vector3f v = spawn.getPosition();
+            out.writeBytes(String.format(Locale.US, "          ['position'] = VECTOR3( %f, %f, %f),\n", v.x, v.y, v.z));
+            out.writeBytes("          ['orientation'] = VECTOR3( 0.00, 0.00, 0.00 ),\n");
+            out.writeBytes("          ['color'] = STRING( 'ff800080' ),\n");
+            out.writeBytes("          ['prop'] = STRING( '/env/common/props/markers/M_Blank_prop.bp' ),\n");
+            out.writeBytes("        },\n");
+        }
+        if (!map.isUnexplored()) {
+            for (Mex mex : map.getMexes()) {
+                out.writeBytes(String.format(Locale.US, "        ['%s'] = {\n", mex.getId()));
+                out.writeBytes("          ['size'] = FLOAT( 1.000000 ),\n");
+                out.writeBytes("          ['resource'] = BOOLEAN( true ),\n");
+                out.writeBytes("          ['amount'] = FLOAT( 100.000000 ),\n");
+                out.writeBytes("          ['color'] = STRING( 'ff808080' ),\n");
+                out.writeBytes("          ['type'] = STRING( 'Mass' ),\n");
+                out.writeBytes("          ['prop'] = STRING( '/env/common/props/markers/M_Mass_prop.bp' ),\n");
+                out.writeBytes("          ['orientation'] = VECTOR3( 0, 0, 0 ),\n");
+                Vector3f v = mex.getPosition();
+                out.writeBytes(String.format(Locale.US, "          ['position'] = VECTOR3( %f, %f, %f),\n", v.x, v.y, v.z));
+                out.writeBytes("        },\n");
+            }
+            for (Hydro hydro : map.getHydros()) {
+                out.writeBytes(String.format(Locale.US, "        ['%s'] = {\n", hydro.getId()));
+                out.writeBytes("          ['size'] = FLOAT( 3.00 ),\n");
+                out.writeBytes("          ['resource'] = BOOLEAN( true ),\n");
+                out.writeBytes("          ['amount'] = FLOAT( 100.000000 ),\n");
+                out.writeBytes("          ['color'] = STRING( 'ff808080' ),\n");
+                out.writeBytes("          ['type'] = STRING( 'Hydrocarbon' ),\n");
+                out.writeBytes("          ['prop'] = STRING( '/env/common/props/markers/M_Hydrocarbon_prop.bp' ),\n");
+                out.writeBytes("          ['orientation'] = VECTOR3( 0, 0, 0 ),\n");
+                Vector3f v = hydro.getPosition();
+                out.writeBytes(String.format(Locale.US, "          ['position'] = VECTOR3( %f, %f, %f),\n", v.x, v.y, v.z));
+                out.writeBytes("        },\n");
+            }
+        }
+        for (BlankMarker blankMarker : map.getBlankMarkers()) {
+            out.writeBytes("        ['" + blankMarker.getId() + "'] = {\n");
+            out.writeBytes("          ['type'] = STRING( 'Blank Marker' ),\n");
+            Vector3f v = blankMarker.getPosition();
+            out.writeBytes(String.format(Locale.US, "          ['position'] = VECTOR3( %f, %f, %f),\n", v.x, v.y, v.z));
+            out.writeBytes("          ['orientation'] = VECTOR3( 0.00, 0.00, 0.00 ),\n");
+            out.writeBytes("          ['color'] = STRING( 'ff800080' ),\n");
+            out.writeBytes("          ['prop'] = STRING( '/env/common/props/markers/M_Blank_prop.bp' ),\n");
+            out.writeBytes("        },\n");
+        }
+        writePathMarkers(out, map.getAirAIMarkers(), "Air Path Node", "ffffffff", "DefaultAir");
+        writePathMarkers(out, map.getLandAIMarkers(), "Land Path Node", "ff00ff00", "DefaultLand");
+        writePathMarkers(out, map.getAmphibiousAIMarkers(), "Amphibious Path Node", "ff00ffff", "DefaultAmphibious");
+        writePathMarkers(out, map.getNavyAIMarkers(), "Water Path Node", "ff0000ff", "DefaultWater");
+        writeAIMarkers(out, map.getLargeExpansionAIMarkers(), "Large Expansion Area", "ffff0080", "/env/common/props/markers/M_Expansion_prop.bp");
+        writeAIMarkers(out, map.getLargeExpansionAIMarkers(), "Expansion Area", "ff008080", "/env/common/props/markers/M_Expansion_prop.bp");
+        out.writeBytes("      },\n");
+        out.writeBytes("    },\n");
+        out.writeBytes("  },\n");
+        out.writeBytes("  Chains = {},\n");
+        out.writeBytes("  next_queue_id = '1',\n");
+        out.writeBytes("  Orders = {},\n");
+        out.writeBytes("  next_platoon_id = '1',\n");
+        out.writeBytes("  Platoons = {},\n");
+        out.writeBytes("  next_army_id = '1',\n");
+        out.writeBytes("  next_group_id = '1',\n");
+        out.writeBytes("  next_unit_id = '1',\n");
+        out.writeBytes("  Armies = {\n");
+        for (Army army : map.getArmies()) {
+            writeArmy(out, army);
+        }
+        out.writeBytes("  },\n");
+        out.writeBytes("}\n");
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static void writePathMarkers(DataOutputStream out, ArrayList<AIMarker> aiMarkers, String type, String color, String graph) throws IOException {
+        for (AIMarker aiMarker : aiMarkers) {
+            if (aiMarker.getNeighborCount() > 0) {
+                out.writeBytes(String.format(Locale.US, "        ['%s'] = {\n", aiMarker.getId()));
+                out.writeBytes("          ['hint'] = BOOLEAN( true ),\n");
+                out.writeBytes(String.format(Locale.US, "          ['type'] = STRING( '%s' ),\n", type));
+                out.writeBytes("          ['adjacentTo'] = STRING( '");
+                for (String id : aiMarker.getNeighbors()) {
+                    out.writeBytes(" " + id);
+                }
+                out.writeBytes(" '),\n");
+                out.writeBytes(String.format(Locale.US, "          ['color'] = STRING( '%s' ),\n", color));
+                out.writeBytes(String.format(Locale.US, "          ['graph'] = STRING( '%s' ),\n", graph));
+                out.writeBytes("          ['prop'] = STRING( '/env/common/props/markers/M_Path_prop.bp' ),\n");
+                out.writeBytes("          ['orientation'] = VECTOR3( 0, 0, 0 ),\n");
+                Vector3f v = aiMarker.getPosition();
+                out.writeBytes(String.format(Locale.US, "          ['position'] = VECTOR3( %f, %f, %f),\n", v.x, v.y, v.z));
+                out.writeBytes("        },\n");
+            }
+        }
+    }
+
+    private static void writeAIMarkers(DataOutputStream out, ArrayList<AIMarker> aiMarkers, String type, String color, String prop) throws IOException {
+        for (AIMarker aiMarker : aiMarkers) {
+            out.writeBytes("        ['" + aiMarker.getId() + "'] = {\n");
+            out.writeBytes("          ['hint'] = BOOLEAN( true ),\n");
+            out.writeBytes("          ['color'] = STRING( '" + color + "' ),\n");
+            out.writeBytes("          ['type'] = STRING( '" + type + "' ),\n");
+            out.writeBytes("          ['prop'] = STRING( '" + prop + "' ),\n");
+            out.writeBytes("          ['orientation'] = VECTOR3( 0, 0, 0 ),\n");
+            Vector3f v = aiMarker.getPosition();
+            out.writeBytes(String.format(Locale.US, "          ['position'] = VECTOR3( %f, %f, %f),\n", v.x, v.y, v.z));
+            out.writeBytes("        },\n");
+        }
+    }
+
+    private static void writeArmy(DataOutputStream out, Army army) throws IOException {
+        out.writeBytes(String.format(Locale.US, "    ['%s'] = {\n", army.getId()));
+        out.writeBytes("      personality = '',\n");
+        out.writeBytes("      plans = '',\n");
+        out.writeBytes("      color = 0,\n");
+        out.writeBytes("      faction = 0,\n");
+        out.writeBytes("      Economy = {mass = 0, energy = 0},\n");
+        out.writeBytes("      Alliances = {},\n");
+        out.writeBytes("      ['Units'] = GROUP {\n");
+        out.writeBytes("        orders = '',\n");
+        out.writeBytes("        platoon = '',\n");
+        out.writeBytes("        Units = {\n");
+        for (Group group : army.getGroups()) {
+            out.writeBytes(String.format(Locale.US, "          ['%s'] = GROUP {\n", group.getId()));
+            out.writeBytes("            orders = '',\n");
+            out.writeBytes("            platoon = '',\n");
+            out.writeBytes("            Units = {\n");
+            for (Unit unit : group.getUnits()) {
+                out.writeBytes(String.format(Locale.US, "              ['%s'] = {\n", unit.getId()));
+                out.writeBytes(String.format(Locale.US, "	              type = '%s',\n", unit.getType()));
+                out.writeBytes("			              orders = '',\n");
+                out.writeBytes("			              platoon = '',\n");
+                Vector3f v = unit.getPosition();
+                out.writeBytes(String.format(Locale.US, "			              Position = { %f, %f, %f },\n", v.x, v.y, v.z));
+                out.writeBytes(String.format(Locale.US, "			              Orientation = { 0, %f, 0 },\n", unit.getRotation()));
+                out.writeBytes("              },\n");
+            }
+            out.writeBytes("            },\n");
+            out.writeBytes("          },\n");
+        }
+        out.writeBytes("        },\n");
+        out.writeBytes("      },\n");
+        out.writeBytes("      PlatoonBuilders = {\n");
+        out.writeBytes("        next_platoon_builder_id = '0',\n");
+        out.writeBytes("        Builders = {},\n");
+        out.writeBytes("      },\n");
+        out.writeBytes("    },\n");
+    }
+}
@@ -7,10 +7,12 @@ import org.junit.Before;
 import org.junit.Test;
 import util.FileUtils;
 import util.Pipeline;
+import util.SchedulingExecutor;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.file.Paths;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.Assert.*;
 import static util.ImageUtils.compareImages;
@@ -172,6 +174,34 @@ public class MapGeneratorTest {
         }
     }
 
+    @Test
+    public void TestDeterminismSchedulingOrder() throws IOException {
+        instance.interpretArguments(keywordArgs);
+        SCMap map1 = instance.generate();
+        String[] hashArray1 = Pipeline.hashArray.clone();
+
+        for (SchedulingExecutor.Order order : SchedulingExecutor.Order.values()) {
+            Pipeline.reset();
+            SCMap map2;
+            String[] hashArray2;
+            try (SchedulingExecutor executor = new SchedulingExecutor(2, order, seed, 2)) {
+                Pipeline.executor = executor;
+
+                instance.interpretArguments(keywordArgs);
+                map2 = instance.generate();
+                hashArray2 = Pipeline.hashArray.clone();
+            } finally {
+                Pipeline.executor = ForkJoinPool.commonPool();
+            }
+
+            assertArrayEquals(hashArray1, hashArray2);
+            assertEquals(map1.toString(), map2.toString());
+            assertTrue(compareImages(map1.getHeightmap(), map2.getHeightmap()));
+            assertTrue(compareImages(map1.getTextureMasksHigh(), map2.getTextureMasksHigh()));
+            assertTrue(compareImages(map1.getTextureMasksLow(), map2.getTextureMasksLow()));
+        }
+    }
+
     @Test
     public void TestEqualityMapNameKeyword() throws IOException {
         instance.interpretArguments(keywordArgs);
@@ -375,6 +405,7 @@ public class MapGeneratorTest {
     @After
     public void cleanup() {
         Pipeline.reset();
+        Pipeline.executor = ForkJoinPool.commonPool();
         FileUtils.deleteRecursiveIfExists(Paths.get(instance.getMapName()));
     }
 
@@ -0,0 +1,115 @@
+package map;
+
+import org.junit.Test;
+import util.Vector2f;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class BinaryMaskTest {
+
+    private static final int SIZE = 64;
+
+    @Test
+    public void TestFillCirclesMatchesPixelScan() {
+        Random random = new Random(1234);
+        for (int i = 0; i < 2000; i++) {
+            BinaryMask mask = getRandomMask(random);
+            boolean[][] expected = copyValues(mask);
+            int circleCount = random.nextInt(8) + 1;
+            Vector2f[] positions = new Vector2f[circleCount];
+            float[] radii = new float[circleCount];
+            boolean value = random.nextBoolean();
+            for (int j = 0; j < circleCount; j++) {
+                positions[j] = new Vector2f(getRandomCoordinate(random), getRandomCoordinate(random));
+                radii[j] = getRandomRadius(random);
+                fillCircleByPixel(expected, positions[j].x, positions[j].y, radii[j], value);
+            }
+            mask.fillCircles(positions, radii, value);
+            assertValuesEqual(expected, mask);
+        }
+    }
+
+    @Test
+    public void TestFillCircleMatchesPixelScan() {
+        Random random = new Random(1234);
+        for (int i = 0; i < 2000; i++) {
+            BinaryMask mask = getRandomMask(random);
+            boolean[][] expected = copyValues(mask);
+            float x = getRandomCoordinate(random);
+            float y = getRandomCoordinate(random);
+            float radius = getRandomRadius(random);
+            boolean value = random.nextBoolean();
+            fillCircleByPixel(expected, x, y, radius, value);
+            mask.fillCircle(x, y, radius, value);
+            assertValuesEqual(expected, mask);
+        }
+    }
+
+    /**
+     * The per pixel scan fillArc used before it moved to column spans.
+     */
+    private static void fillCircleByPixel(boolean[][] values, float x, float y, float radius, boolean value) {
+        int ex = StrictMath.round(StrictMath.min(SIZE, x + radius + 1));
+        int ey = StrictMath.round(StrictMath.min(SIZE, y + radius + 1));
+        float radius2 = radius * radius;
+        for (int cx = StrictMath.round(StrictMath.max(0, x - radius)); cx < ex; cx++) {
+            for (int cy = StrictMath.round(StrictMath.max(0, y - radius)); cy < ey; cy++) {
+                float dx = x - cx;
+                float dy = y - cy;
+                if (dx * dx + dy * dy <= radius2) {
+                    values[cx][cy] = value;
+                }
+            }
+        }
+    }
+
+    private static BinaryMask getRandomMask(Random random) {
+        BinaryMask mask = new BinaryMask(SIZE, null, null);
+        for (int x = 0; x < SIZE; x++) {
+            for (int y = 0; y < SIZE; y++) {
+                mask.mask[x][y] = random.nextBoolean();
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Centers reach past every edge so clipped circles are covered, and half of them sit on whole or half pixels
+     * so pixels exactly on the radius are hit.
+     */
+    private static float getRandomCoordinate(Random random) {
+        if (random.nextBoolean()) {
+            return random.nextInt((SIZE + 32) * 2) / 2f - 16;
+        }
+        return random.nextFloat() * (SIZE + 32) - 16;
+    }
+
+    private static float getRandomRadius(Random random) {
+        return switch (random.nextInt(4)) {
+            case 0 -> 0;
+            case 1 -> random.nextInt(48) / 2f;
+            case 2 -> (float) StrictMath.sqrt(random.nextInt(576));
+            default -> random.nextFloat() * 24;
+        };
+    }
+
+    private static boolean[][] copyValues(BinaryMask mask) {
+        boolean[][] values = new boolean[SIZE][SIZE];
+        for (int x = 0; x < SIZE; x++) {
+            for (int y = 0; y < SIZE; y++) {
+                values[x][y] = mask.getValueAt(x, y);
+            }
+        }
+        return values;
+    }
+
+    private static void assertValuesEqual(boolean[][] expected, BinaryMask mask) {
+        for (int x = 0; x < SIZE; x++) {
+            for (int y = 0; y < SIZE; y++) {
+                assertEquals(String.format("Pixel %d, %d", x, y), expected[x][y], mask.getValueAt(x, y));
+            }
+        }
+    }
+}
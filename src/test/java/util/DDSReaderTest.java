@@ -0,0 +1,50 @@
+package util;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNull;
+
+public class DDSReaderTest {
+
+    private static final int SIZE = 4;
+
+    @Test
+    public void TestAverageColorOfUnsupportedFourCC() {
+        for (String fourCC : new String[]{"DX10", "ATI2", "BC5U"}) {
+            byte[] buffer = getBuffer(0x04, fourCC, 16);
+            assertNull(DDSReader.read(buffer, DDSReader.ARGB, 0));
+            assertNull(DDSReader.readAverageColor(buffer, 0));
+        }
+    }
+
+    @Test
+    public void TestAverageColorOfSupportedFormats() {
+        byte[] dxt1 = getBuffer(0x04, "DXT1", 8);
+        // white in both endpoints with every index on the first one
+        dxt1[128] = dxt1[129] = dxt1[130] = dxt1[131] = -1;
+        assertArrayEquals(new int[]{255, 255, 255, 255}, DDSReader.readAverageColor(dxt1, 0));
+
+        byte[] argb = getBuffer(0x41, null, SIZE * SIZE * 4);
+        ByteBuffer header = ByteBuffer.wrap(argb).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(88, 32).putInt(92, 0x00FF0000).putInt(96, 0x0000FF00).putInt(100, 0x000000FF).putInt(104, 0xFF000000);
+        Arrays.fill(argb, 128, argb.length, (byte) 0x80);
+        assertArrayEquals(new int[]{128, 128, 128, 128}, DDSReader.readAverageColor(argb, 0));
+    }
+
+    private static byte[] getBuffer(int pixelFormatFlags, String fourCC, int dataLength) {
+        byte[] buffer = new byte[128 + dataLength];
+        ByteBuffer header = ByteBuffer.wrap(buffer).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(0, "DDS ".getBytes(StandardCharsets.US_ASCII));
+        header.putInt(4, 124).putInt(8, 0x1007).putInt(12, SIZE).putInt(16, SIZE).putInt(76, 32).putInt(80, pixelFormatFlags);
+        if (fourCC != null) {
+            header.put(84, fourCC.getBytes(StandardCharsets.US_ASCII));
+        }
+        return buffer;
+    }
+}
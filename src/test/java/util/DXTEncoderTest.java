@@ -0,0 +1,86 @@
+package util;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class DXTEncoderTest {
+
+    private static final int SIZE = 64;
+
+    @Test
+    public void TestSolidColorIsLossless() {
+        int[] pixels = new int[SIZE * SIZE];
+        Arrays.fill(pixels, 0xFF84C610);
+        for (DXTEncoder.Format format : DXTEncoder.Format.values()) {
+            for (DXTEncoder.Quality quality : DXTEncoder.Quality.values()) {
+                assertArrayEquals(pixels, decode(DXTEncoder.encode(pixels, SIZE, SIZE, format, quality), SIZE, SIZE, format));
+            }
+        }
+    }
+
+    @Test
+    public void TestQualityOrdering() {
+        int[] pixels = getTestImage(SIZE, SIZE);
+        double fastError = getError(pixels, DXTEncoder.Format.DXT5, DXTEncoder.Quality.FAST);
+        double normalError = getError(pixels, DXTEncoder.Format.DXT5, DXTEncoder.Quality.NORMAL);
+        double highError = getError(pixels, DXTEncoder.Format.DXT5, DXTEncoder.Quality.HIGH);
+        assertTrue(highError <= normalError);
+        assertTrue(highError <= fastError);
+        assertTrue(highError < 8);
+    }
+
+    @Test
+    public void TestNonMultipleOfFourSize() {
+        int[] pixels = getTestImage(13, 7);
+        byte[] encoded = DXTEncoder.encode(pixels, 13, 7, DXTEncoder.Format.DXT1, DXTEncoder.Quality.HIGH);
+        assertEquals(DXTEncoder.getCompressedSize(13, 7, DXTEncoder.Format.DXT1), encoded.length);
+        assertEquals(13 * 7, decode(encoded, 13, 7, DXTEncoder.Format.DXT1).length);
+    }
+
+    @Test
+    public void TestDeterministic() {
+        int[] pixels = getTestImage(SIZE * 4, SIZE * 4);
+        byte[] first = DXTEncoder.encode(pixels, SIZE * 4, SIZE * 4, DXTEncoder.Format.DXT5, DXTEncoder.Quality.HIGH);
+        byte[] second = DXTEncoder.encode(pixels, SIZE * 4, SIZE * 4, DXTEncoder.Format.DXT5, DXTEncoder.Quality.HIGH);
+        assertArrayEquals(first, second);
+    }
+
+    private static double getError(int[] pixels, DXTEncoder.Format format, DXTEncoder.Quality quality) {
+        int[] decoded = decode(DXTEncoder.encode(pixels, SIZE, SIZE, format, quality), SIZE, SIZE, format);
+        double error = 0;
+        for (int i = 0; i < pixels.length; i++) {
+            for (int shift = 0; shift < 32; shift += 8) {
+                int difference = ((pixels[i] >>> shift) & 0xFF) - ((decoded[i] >>> shift) & 0xFF);
+                error += difference * difference;
+            }
+        }
+        return StrictMath.sqrt(error / (pixels.length * 4));
+    }
+
+    private static int[] decode(byte[] encoded, int width, int height, DXTEncoder.Format format) {
+        byte[] headerBytes = DXTEncoder.getHeader(width, height, format).toBytes();
+        byte[] buffer = new byte[headerBytes.length + encoded.length];
+        System.arraycopy(headerBytes, 0, buffer, 0, headerBytes.length);
+        System.arraycopy(encoded, 0, buffer, headerBytes.length, encoded.length);
+        return DDSReader.read(buffer, DDSReader.ARGB, 0);
+    }
+
+    private static int[] getTestImage(int width, int height) {
+        Random random = new Random(1234);
+        int[] pixels = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int a = 255 - y * 255 / height;
+                int r = x * 255 / width;
+                int g = (x + y) * 127 / (width + height) + random.nextInt(8);
+                int b = 200 - y * 100 / height;
+                pixels[y * width + x] = a << 24 | r << 16 | g << 8 | b;
+            }
+        }
+        return pixels;
+    }
+}
@@ -0,0 +1,130 @@
+package util;
+
+import map.BinaryMask;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HierarchicalPathfinderTest {
+
+    private static final int SIZE = 128;
+
+    @Test
+    public void TestOpenFieldIsCloseToOctileDistance() {
+        BinaryMask passable = new BinaryMask(SIZE, null, null).invert();
+        HierarchicalPathfinder pathfinder = new HierarchicalPathfinder(passable, 32);
+        float diagonal = (float) StrictMath.sqrt(2);
+        assertEquals(100f, pathfinder.getPathCost(new Vector2f(10, 10), new Vector2f(110, 10)), 100f * .05f);
+        assertEquals(100f * diagonal, pathfinder.getPathCost(new Vector2f(10, 10), new Vector2f(110, 110)), 100f * .05f);
+        assertEquals(0f, pathfinder.getPathCost(new Vector2f(40, 40), new Vector2f(40, 40)), 0f);
+    }
+
+    @Test
+    public void TestWallWithGap() {
+        BinaryMask passable = new BinaryMask(SIZE, null, null).invert();
+        passable.fillRect(60, 0, 8, SIZE, false);
+        HierarchicalPathfinder pathfinder = new HierarchicalPathfinder(passable, 32);
+        assertEquals(HierarchicalPathfinder.UNREACHABLE, pathfinder.getPathCost(new Vector2f(20, 64), new Vector2f(100, 64)), 0f);
+
+        passable.fillRect(60, 100, 8, 4, true);
+        pathfinder = new HierarchicalPathfinder(passable, 32);
+        float cost = pathfinder.getPathCost(new Vector2f(20, 64), new Vector2f(100, 64));
+        assertTrue(cost > 80 && cost < 80 * 1.5f);
+        assertEquals(cost, pathfinder.getPathCost(new Vector2f(100, 64), new Vector2f(20, 64)), .01f);
+    }
+
+    @Test
+    public void TestRandomObstaclesMatchDijkstra() {
+        Random random = new Random(1234);
+        float totalCost = 0;
+        float totalExpectedCost = 0;
+        for (int i = 0; i < 40; i++) {
+            BinaryMask passable = new BinaryMask(SIZE, null, null).invert();
+            int obstacleCount = random.nextInt(120) + 10;
+            for (int j = 0; j < obstacleCount; j++) {
+                // long thin walls split the map into pockets, small blocks leave many detours
+                if (random.nextBoolean()) {
+                    passable.fillRect(random.nextInt(SIZE), random.nextInt(SIZE), random.nextInt(3) + 1, random.nextInt(64) + 1, false);
+                } else {
+                    passable.fillRect(random.nextInt(SIZE), random.nextInt(SIZE), random.nextInt(12) + 1, random.nextInt(3) + 1, false);
+                }
+            }
+            HierarchicalPathfinder pathfinder = new HierarchicalPathfinder(passable, random.nextBoolean() ? 16 : 32);
+            for (int j = 0; j < 5; j++) {
+                int startX;
+                int startY;
+                do {
+                    startX = random.nextInt(SIZE);
+                    startY = random.nextInt(SIZE);
+                } while (!passable.getValueAt(startX, startY));
+                float[] distances = getDistancesByDijkstra(passable, startX, startY);
+                for (int k = 0; k < 20; k++) {
+                    int goalX;
+                    int goalY;
+                    do {
+                        goalX = random.nextInt(SIZE);
+                        goalY = random.nextInt(SIZE);
+                    } while (!passable.getValueAt(goalX, goalY));
+                    float expected = distances[goalY * SIZE + goalX];
+                    float actual = pathfinder.getPathCost(new Vector2f(startX, startY), new Vector2f(goalX, goalY));
+                    String message = String.format("Path %d, %d to %d, %d", startX, startY, goalX, goalY);
+                    assertEquals(message, expected == HierarchicalPathfinder.UNREACHABLE, actual == HierarchicalPathfinder.UNREACHABLE);
+                    if (expected < HierarchicalPathfinder.UNREACHABLE) {
+                        assertFalse(message, actual < expected - .001f);
+                        // entrances are up to 8 pixels apart, so a path may detour a little to reach one on either side
+                        assertFalse(message, actual > expected * 1.1f + 16);
+                        totalCost += actual;
+                        totalExpectedCost += expected;
+                    }
+                }
+            }
+        }
+        assertTrue(totalCost < totalExpectedCost * 1.05f);
+    }
+
+    /**
+     * Plain 8-connected Dijkstra over the whole mask, where a diagonal step needs both orthogonal neighbours passable.
+     */
+    private static float[] getDistancesByDijkstra(BinaryMask passable, int startX, int startY) {
+        float diagonal = (float) StrictMath.sqrt(2);
+        float[] distances = new float[SIZE * SIZE];
+        Arrays.fill(distances, HierarchicalPathfinder.UNREACHABLE);
+        distances[startY * SIZE + startX] = 0;
+        PriorityQueue<float[]> open = new PriorityQueue<>((a, b) -> Float.compare(a[0], b[0]));
+        open.add(new float[]{0, startY * SIZE + startX});
+        while (!open.isEmpty()) {
+            float[] entry = open.poll();
+            int cell = (int) entry[1];
+            if (entry[0] > distances[cell]) {
+                continue;
+            }
+            int x = cell % SIZE;
+            int y = cell / SIZE;
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    int neighborX = x + dx;
+                    int neighborY = y + dy;
+                    if ((dx == 0 && dy == 0) || neighborX < 0 || neighborX >= SIZE || neighborY < 0 || neighborY >= SIZE
+                            || !passable.getValueAt(neighborX, neighborY)) {
+                        continue;
+                    }
+                    if (dx != 0 && dy != 0 && (!passable.getValueAt(neighborX, y) || !passable.getValueAt(x, neighborY))) {
+                        continue;
+                    }
+                    float distance = entry[0] + (dx != 0 && dy != 0 ? diagonal : 1);
+                    if (distance < distances[neighborY * SIZE + neighborX]) {
+                        distances[neighborY * SIZE + neighborX] = distance;
+                        open.add(new float[]{distance, neighborY * SIZE + neighborX});
+                    }
+                }
+            }
+        }
+        return distances;
+    }
+}
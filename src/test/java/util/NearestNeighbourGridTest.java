@@ -0,0 +1,66 @@
+package util;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class NearestNeighbourGridTest {
+
+    @Test
+    public void TestNearestMatchesLinearScan() {
+        Random random = new Random(1234);
+        for (int i = 0; i < 500; i++) {
+            int count = random.nextInt(300) + 1;
+            float extent = random.nextBoolean() ? 16 : 1024;
+            float[] xs = new float[count];
+            float[] ys = new float[count];
+            for (int j = 0; j < count; j++) {
+                // whole coordinates give plenty of ties, the clustered ones leave most cells empty
+                if (random.nextBoolean()) {
+                    xs[j] = random.nextInt((int) extent);
+                    ys[j] = random.nextInt((int) extent);
+                } else {
+                    xs[j] = random.nextFloat() * extent / (random.nextInt(3) == 0 ? 64 : 1);
+                    ys[j] = random.nextFloat() * extent;
+                }
+            }
+            NearestNeighbourGrid grid = new NearestNeighbourGrid(xs, ys);
+            boolean[] removed = new boolean[count];
+            for (int j = 0; j < count * 2; j++) {
+                float x = random.nextFloat() * extent * 1.5f - extent / 4;
+                float y = random.nextFloat() * extent * 1.5f - extent / 4;
+                float maxDistance = random.nextBoolean() ? extent * 2 : random.nextFloat() * extent / 8;
+                int nearest = grid.getNearest(x, y, maxDistance);
+                assertEquals(getNearestByScan(xs, ys, removed, x, y, maxDistance), nearest);
+                if (nearest != -1 && random.nextBoolean()) {
+                    grid.remove(nearest);
+                    removed[nearest] = true;
+                } else {
+                    int index = random.nextInt(count);
+                    grid.remove(index);
+                    removed[index] = true;
+                }
+            }
+        }
+    }
+
+    private static int getNearestByScan(float[] xs, float[] ys, boolean[] removed, float x, float y, float maxDistance) {
+        int best = -1;
+        float bestDistance = maxDistance;
+        for (int i = 0; i < xs.length; i++) {
+            if (removed[i]) {
+                continue;
+            }
+            float dx = x - xs[i];
+            float dy = y - ys[i];
+            float distance = (float) StrictMath.sqrt(dx * dx + dy * dy);
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                best = i;
+            }
+        }
+        return best;
+    }
+}